@@ -0,0 +1,70 @@
+package com.clashroyale.api.benchmarks;
+
+import com.clashroyale.api.patterns.singleton.CacheService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+//CacheService get/put from several threads at once, over a fixed set of keys
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheServiceBenchmark {
+
+    private static final int KEYS = 1024;
+
+    private final String[] keys = new String[KEYS];
+    private CacheService cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        Fixtures.silenceLogger();
+        cache = CacheService.getInstance();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "benchmark:" + i;
+            cache.put(keys[i], i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.clearAll();
+    }
+
+    //every thread walks the keys from its own position
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = (int) (Thread.currentThread().getId() * 31);
+
+        int nextIndex() {
+            return next++ & (KEYS - 1);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Object> get(Cursor cursor) {
+        return cache.get(keys[cursor.nextIndex()]);
+    }
+
+    // 3 readers and 1 writer on the same keys
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Optional<Object> readWriteGet(Cursor cursor) {
+        return cache.get(keys[cursor.nextIndex()]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWritePut(Cursor cursor) {
+        int index = cursor.nextIndex();
+        cache.put(keys[index], index);
+    }
+}
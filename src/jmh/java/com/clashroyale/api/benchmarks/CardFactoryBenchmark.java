@@ -0,0 +1,27 @@
+package com.clashroyale.api.benchmarks;
+
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.patterns.factory.CardFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardFactoryBenchmark {
+
+    // lower case goes through toUpperCase like a request body would
+    @Param({"WARRIOR", "spell", "BUILDING"})
+    public String type;
+
+    private final CardFactory factory = new CardFactory();
+
+    @Benchmark
+    public Card createCard() {
+        return factory.createCard(type, 42, "Knight", "COMMON", 3, 11, 1766, 202, 2, 30);
+    }
+}
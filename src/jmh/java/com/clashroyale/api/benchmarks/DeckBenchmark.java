@@ -0,0 +1,32 @@
+package com.clashroyale.api.benchmarks;
+
+import com.clashroyale.api.exception.InvalidInputException;
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.Deck;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeckBenchmark {
+
+    private Deck deck;
+
+    @Setup
+    public void setUp() throws InvalidInputException {
+        deck = new Deck(1, "Hog cycle");
+        for (Card card : Fixtures.cards(8)) {
+            deck.addCard(card);
+        }
+    }
+
+    @Benchmark
+    public double averageElixirCost() {
+        return deck.getAverageElixirCost();
+    }
+}
@@ -0,0 +1,41 @@
+package com.clashroyale.api.benchmarks;
+
+import com.clashroyale.api.model.BuildingCard;
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.SpellCard;
+import com.clashroyale.api.model.WarriorCard;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//sample data shared by the benchmarks
+final class Fixtures {
+
+    private static final String[] RARITIES = {"COMMON", "RARE", "EPIC", "LEGENDARY"};
+
+    private Fixtures() {
+    }
+
+    //warriors, spells and buildings in turn, ids from 1
+    static List<Card> cards(int count) {
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String rarity = RARITIES[i % RARITIES.length];
+            int elixir = 1 + i % 9;
+            int level = 1 + i % 14;
+            cards.add(switch (i % 3) {
+                case 0 -> new WarriorCard(i, "Warrior " + i, rarity, elixir, level, 1000 + i, 100 + i);
+                case 1 -> new SpellCard(i, "Spell " + i, rarity, elixir, level, 3, 200 + i);
+                default -> new BuildingCard(i, "Building " + i, rarity, elixir, level, 1500 + i, 30);
+            });
+        }
+        return cards;
+    }
+
+    // LoggerService writes to the console by default, which would be measured and mix with JMH output
+    static void silenceLogger() throws IOException {
+        LoggerService.getInstance().configure(LoggerService.Level.INFO, false, null, 0, 0);
+    }
+}
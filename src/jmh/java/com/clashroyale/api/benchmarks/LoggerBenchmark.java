@@ -0,0 +1,47 @@
+package com.clashroyale.api.benchmarks;
+
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoggerService.info as the caller sees it: the event goes into the ring buffer, formatting and writing
+ * happen on the logger thread (console off here). When the writer can't keep up events are dropped,
+ * see LoggerService.getDroppedCount().
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggerBenchmark {
+
+    private LoggerService logger;
+    private Integer id = 42;
+
+    @Setup
+    public void setUp() throws IOException {
+        Fixtures.silenceLogger();
+        logger = LoggerService.getInstance();
+    }
+
+    @Benchmark
+    public void info() {
+        logger.info("Showing player with ID: {}", id);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void infoFourThreads() {
+        logger.info("Showing player with ID: {}", id);
+    }
+
+    // below the configured level: only the level check
+    @Benchmark
+    public void debugDisabled() {
+        logger.debug("Showing player with ID: {}", id);
+    }
+}
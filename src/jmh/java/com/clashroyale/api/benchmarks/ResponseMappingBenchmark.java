@@ -0,0 +1,38 @@
+package com.clashroyale.api.benchmarks;
+
+import com.clashroyale.api.dto.CardResponse;
+import com.clashroyale.api.dto.PlayerResponse;
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//entity -> DTO, once per card / player of every response
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseMappingBenchmark {
+
+    private Card card;
+    private Player player;
+
+    @Setup
+    public void setUp() {
+        card = Fixtures.cards(1).get(0);
+        player = new Player(7, "ProGamer123", 10, 5000);
+    }
+
+    @Benchmark
+    public CardResponse cardFromEntity() {
+        return CardResponse.fromEntity(card);
+    }
+
+    @Benchmark
+    public PlayerResponse playerFromEntity() {
+        return PlayerResponse.fromEntity(player);
+    }
+}
@@ -0,0 +1,58 @@
+package com.clashroyale.api.benchmarks;
+
+import com.clashroyale.api.dto.CardResponse;
+import com.clashroyale.api.model.Card;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//GET /api/cards body for a 10k card catalog: DTO mapping + Jackson, mapper set up like application.properties
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"10000"})
+    public int cards;
+
+    private ObjectMapper objectMapper;
+    private List<Card> entities;
+    private List<CardResponse> responses;
+
+    @Setup
+    public void setUp() {
+        // spring.jackson.default-property-inclusion=non_null
+        objectMapper = JsonMapper.builder()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+        entities = Fixtures.cards(cards);
+        responses = toResponses(entities);
+    }
+
+    @Benchmark
+    public byte[] serializeResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toResponses(entities));
+    }
+
+    private static List<CardResponse> toResponses(List<Card> cards) {
+        List<CardResponse> list = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            list.add(CardResponse.fromEntity(card));
+        }
+        return list;
+    }
+}
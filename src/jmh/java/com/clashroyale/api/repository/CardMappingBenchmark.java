@@ -0,0 +1,33 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.model.Card;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+//CardRepository.mapResultSetToCard: one row to a Card subclass (in this package, the method is package-private)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardMappingBenchmark {
+
+    @Param({"WARRIOR", "SPELL", "BUILDING"})
+    public String type;
+
+    private ResultSet row;
+
+    @Setup
+    public void setUp() {
+        row = StubResultSet.card(type);
+    }
+
+    @Benchmark
+    public Card mapResultSetToCard() throws SQLException {
+        return CardRepository.mapResultSetToCard(row);
+    }
+}
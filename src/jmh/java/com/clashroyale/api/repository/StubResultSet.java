@@ -0,0 +1,49 @@
+package com.clashroyale.api.repository;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One-row ResultSet for mapping benchmarks, without a database. Only getInt / getString by column label
+ * are supported. It's a dynamic proxy: every call costs a little dispatch, the same in every run, so
+ * results are comparable between runs but a little higher than with a real driver.
+ */
+final class StubResultSet {
+
+    private StubResultSet() {
+    }
+
+    static ResultSet of(Map<String, Object> row) {
+        Map<String, Object> columns = new HashMap<>(row);
+        return (ResultSet) Proxy.newProxyInstance(StubResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getInt" -> {
+                        Object value = columns.get((String) args[0]);
+                        yield value != null ? (Integer) value : 0;
+                    }
+                    case "getString" -> (String) columns.get((String) args[0]);
+                    case "wasNull" -> false;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubResultSet" + columns;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static ResultSet card(String type) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 42);
+        row.put("name", "Knight");
+        row.put("card_type", type);
+        row.put("rarity", "COMMON");
+        row.put("elixir_cost", 3);
+        row.put("level", 11);
+        row.put("damage", 202);
+        row.put("hp", 1766);
+        row.put("radius", 0);
+        row.put("lifetime", 0);
+        return of(row);
+    }
+}
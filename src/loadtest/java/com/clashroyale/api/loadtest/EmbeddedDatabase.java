@@ -0,0 +1,119 @@
+package com.clashroyale.api.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A real PostgreSQL server (zonky embedded-postgres: binaries unpacked into a temp directory, random port),
+ * so the repositories run their own SQL (ANY(?), RETURNING, LISTEN/NOTIFY) unchanged.
+ * Created from schema.sql and filled with load test data, then the application is started on it.
+ */
+final class EmbeddedDatabase implements AutoCloseable {
+
+    private static final String[] TYPES = {"WARRIOR", "SPELL", "BUILDING"};
+    private static final String[] RARITIES = {"COMMON", "RARE", "EPIC", "LEGENDARY"};
+    private static final int BATCH = 1000;
+
+    private final EmbeddedPostgres postgres;
+    private final DataSource dataSource;
+
+    private EmbeddedDatabase(EmbeddedPostgres postgres) {
+        this.postgres = postgres;
+        this.dataSource = postgres.getPostgresDatabase();
+    }
+
+    static EmbeddedDatabase start() throws IOException {
+        return new EmbeddedDatabase(EmbeddedPostgres.builder().start());
+    }
+
+    String getJdbcUrl() {
+        return postgres.getJdbcUrl("postgres", "postgres");
+    }
+
+    //schema.sql (drops and creates the tables, small sample data) + cards and players up to the given counts
+    void seed(int cards, int players) throws SQLException {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            insertCards(conn, cards - count(conn, "cards"));
+            insertPlayers(conn, players - count(conn, "players"));
+            conn.commit();
+        }
+    }
+
+    //ids of the decks schema.sql created
+    List<Integer> deckIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT id FROM decks ORDER BY id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT count(*) FROM " + table);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void insertCards(Connection conn, int count) throws SQLException {
+        String sql = "INSERT INTO cards (name, card_type, rarity, elixir_cost, level, damage, hp, radius, lifetime) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                String type = TYPES[i % TYPES.length];
+                stmt.setString(1, "Card " + i);
+                stmt.setString(2, type);
+                stmt.setString(3, RARITIES[i % RARITIES.length]);
+                stmt.setInt(4, 1 + i % 9);
+                stmt.setInt(5, 1 + i % 10);
+                stmt.setInt(6, 100 + i % 400);
+                stmt.setInt(7, type.equals("SPELL") ? 0 : 500 + i % 2000);
+                stmt.setInt(8, type.equals("SPELL") ? 1 + i % 4 : 0);
+                stmt.setInt(9, type.equals("BUILDING") ? 30 : 0);
+                stmt.addBatch();
+                if ((i + 1) % BATCH == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void insertPlayers(Connection conn, int count) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO players (name, level, trophies) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                stmt.setString(1, "seed-player-" + i);
+                stmt.setInt(2, 1 + i % 14);
+                stmt.setInt(3, (i * 7919) % 9000);
+                stmt.addBatch();
+                if ((i + 1) % BATCH == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        postgres.close();
+    }
+}
@@ -0,0 +1,212 @@
+package com.clashroyale.api.loadtest;
+
+import com.clashroyale.api.CardBattleApiApplication;
+import com.clashroyale.api.metrics.LatencyHistogram;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Offline HTTP load test: embedded PostgreSQL seeded from schema.sql, the application on a random port,
+ * an open-loop request schedule against it (see OpenLoopDriver), a report and a pass / fail verdict.
+ *
+ * Run with mvn -P loadtest verify, settings in -Dloadtest.args (see LoadTestConfig).
+ * Exit code 1 when a threshold is exceeded or the run is worse than the baseline, which fails the build.
+ *
+ * The driver runs in the same JVM as the application: numbers are for comparing runs on one machine,
+ * not for capacity planning.
+ */
+public final class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        int exitCode;
+        try {
+            exitCode = run(LoadTestConfig.parse(args)) ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Load test failed to run: " + e);
+            e.printStackTrace();
+            exitCode = 2;
+        }
+        System.exit(exitCode);
+    }
+
+    private static boolean run(LoadTestConfig config) throws Exception {
+        try (EmbeddedDatabase database = EmbeddedDatabase.start()) {
+            System.out.printf("Seeding %d cards, %d players%n", config.cards, config.players);
+            database.seed(config.cards, config.players);
+
+            ConfigurableApplicationContext context = startApplication(database);
+            try {
+                int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                Workload workload = new Workload("http://localhost:" + port, config, database.deckIds());
+                HttpClient client = HttpClient.newBuilder()
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .executor(Executors.newFixedThreadPool(Math.min(config.concurrency, 16)))
+                        .build();
+                OpenLoopDriver driver = new OpenLoopDriver(client, workload, config.concurrency, config.seed);
+
+                if (config.warmupSeconds > 0) {
+                    System.out.printf("Warmup: %d s at %.0f req/s%n", config.warmupSeconds, config.rate);
+                    driver.run(config.rate, config.warmupSeconds);
+                }
+                System.out.printf("Measuring: %d s at %.0f req/s, write ratio %.2f, skew %.2f, concurrency %d%n",
+                        config.durationSeconds, config.rate, config.writeRatio, config.skew, config.concurrency);
+                OpenLoopDriver.Results results = driver.run(config.rate, config.durationSeconds);
+
+                Map<String, Object> report = report(config, results);
+                printTable(report);
+                File file = new File(config.results);
+                if (file.getParentFile() != null) {
+                    file.getParentFile().mkdirs();
+                }
+                MAPPER.writeValue(file, report);
+                System.out.println("Results written to " + file.getPath());
+
+                return check(config, report);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(EmbeddedDatabase database) {
+        SpringApplication application = new SpringApplication(CardBattleApiApplication.class);
+        return application.run(
+                "--server.port=0",
+                "--spring.datasource.url=" + database.getJdbcUrl(),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                // the database is already created and seeded
+                "--spring.sql.init.mode=never",
+                // application.properties logs every request and statement at DEBUG, which would be measured too
+                "--cardbattle.log.console=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.clashroyale.api=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.springframework.jdbc=WARN");
+    }
+
+    // overall first, then one entry per operation
+    private static Map<String, Object> report(LoadTestConfig config, OpenLoopDriver.Results results) {
+        double seconds = results.elapsedNanos / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config.toMap());
+        report.put("elapsedSeconds", round(seconds));
+        report.put("overall", stats(results.overall, seconds));
+        Map<String, Object> operations = new LinkedHashMap<>();
+        results.sorted().forEach((name, operation) -> operations.put(name, stats(operation, seconds)));
+        report.put("operations", operations);
+        return report;
+    }
+
+    private static Map<String, Object> stats(OpenLoopDriver.OperationResults results, double seconds) {
+        LatencyHistogram.Snapshot response = results.responseTime.snapshot();
+        LatencyHistogram.Snapshot service = results.serviceTime.snapshot();
+        long count = response.getCount();
+        long errors = results.errors.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", count);
+        stats.put("errors", errors);
+        stats.put("errorRate", count == 0 ? 0.0 : round((double) errors / count));
+        stats.put("throughput", round(count / seconds));
+        stats.put("meanMs", round(response.getMeanNanos() / 1e6));
+        stats.put("p50Ms", millis(response.valueAt(0.50)));
+        stats.put("p90Ms", millis(response.valueAt(0.90)));
+        stats.put("p99Ms", millis(response.valueAt(0.99)));
+        stats.put("p999Ms", millis(response.valueAt(0.999)));
+        stats.put("maxMs", millis(response.getMaxNanos()));
+        // without the time spent waiting for a free slot, what a closed-loop tool would report
+        stats.put("serviceP99Ms", millis(service.valueAt(0.99)));
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        results.statuses.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> statuses.put(e.getKey() < 0 ? "none" : String.valueOf(e.getKey()), e.getValue().sum()));
+        stats.put("statuses", statuses);
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printTable(Map<String, Object> report) {
+        String format = "%-18s %8s %7s %9s %9s %9s %9s %9s %9s %11s%n";
+        System.out.println();
+        System.out.printf(format, "operation", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms", "max ms", "svc p99 ms");
+        Map<String, Object> rows = new LinkedHashMap<>((Map<String, Object>) report.get("operations"));
+        rows.put("TOTAL", report.get("overall"));
+        rows.forEach((name, value) -> {
+            Map<String, Object> s = (Map<String, Object>) value;
+            System.out.printf(Locale.ROOT, format, name, s.get("count"), s.get("errors"), s.get("throughput"),
+                    s.get("p50Ms"), s.get("p90Ms"), s.get("p99Ms"), s.get("p999Ms"), s.get("maxMs"), s.get("serviceP99Ms"));
+        });
+        System.out.println();
+    }
+
+    // thresholds, then the baseline if one is given. prints every violation, not just the first
+    @SuppressWarnings("unchecked")
+    private static boolean check(LoadTestConfig config, Map<String, Object> report) throws Exception {
+        Map<String, Object> overall = (Map<String, Object>) report.get("overall");
+        double p99 = (double) overall.get("p99Ms");
+        double errorRate = (double) overall.get("errorRate");
+        double throughput = (double) overall.get("throughput");
+
+        List<String> failures = new ArrayList<>();
+        if (p99 > config.maxP99Ms) {
+            failures.add(String.format(Locale.ROOT, "p99 %.2f ms > max-p99-ms %.2f", p99, config.maxP99Ms));
+        }
+        if (errorRate > config.maxErrorRate) {
+            failures.add(String.format(Locale.ROOT, "error rate %.4f > max-error-rate %.4f", errorRate, config.maxErrorRate));
+        }
+        if (throughput < config.rate * config.minThroughputRatio) {
+            failures.add(String.format(Locale.ROOT, "throughput %.1f req/s < %.0f%% of rate %.1f",
+                    throughput, config.minThroughputRatio * 100, config.rate));
+        }
+
+        if (!config.baseline.isBlank()) {
+            JsonNode baseline = MAPPER.readTree(new File(config.baseline)).path("overall");
+            double baselineP99 = baseline.path("p99Ms").asDouble();
+            double baselineThroughput = baseline.path("throughput").asDouble();
+            if (baselineP99 > 0 && p99 > baselineP99 * (1 + config.maxRegression)) {
+                failures.add(String.format(Locale.ROOT, "p99 %.2f ms regressed from baseline %.2f ms", p99, baselineP99));
+            }
+            if (baselineThroughput > 0 && throughput < baselineThroughput * (1 - config.maxRegression)) {
+                failures.add(String.format(Locale.ROOT, "throughput %.1f req/s regressed from baseline %.1f",
+                        throughput, baselineThroughput));
+            }
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("Load test passed");
+            return true;
+        }
+        System.out.println("Load test FAILED:");
+        failures.forEach(failure -> System.out.println("  " + failure));
+        return false;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.clashroyale.api.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, given as key=value arguments (mvn -P loadtest verify -Dloadtest.args="rate=800 duration=60").
+ * Unknown keys are an error, so a typo doesn't silently run the defaults.
+ */
+final class LoadTestConfig {
+
+    // workload
+    double rate = 300;              // requests per second, started on schedule whatever the responses do
+    int durationSeconds = 30;
+    int warmupSeconds = 10;
+    int concurrency = 64;           // max requests in flight, later ones wait (and their wait is counted)
+    double writeRatio = 0.1;
+    double skew = 1.0;              // zipf exponent of the ids: 0 = uniform, 1 = a few ids get most requests
+    String operations = "";         // comma separated names, empty = all
+    long seed = 42;
+
+    // data
+    int cards = 500;
+    int players = 10_000;
+
+    // pass / fail
+    double maxP99Ms = 250;
+    double maxErrorRate = 0.01;
+    double minThroughputRatio = 0.95;   // completed per second / rate
+    String baseline = "";               // results file of an earlier run
+    double maxRegression = 0.25;        // p99 and throughput may be this much worse than the baseline
+
+    String results = "target/loadtest-results.json";
+
+    static LoadTestConfig parse(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            config.set(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        if (config.rate <= 0 || config.durationSeconds <= 0 || config.concurrency <= 0) {
+            throw new IllegalArgumentException("rate, duration and concurrency must be positive");
+        }
+        if (config.writeRatio < 0 || config.writeRatio > 1) {
+            throw new IllegalArgumentException("write-ratio must be between 0 and 1");
+        }
+        return config;
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "rate" -> rate = Double.parseDouble(value);
+            case "duration" -> durationSeconds = Integer.parseInt(value);
+            case "warmup" -> warmupSeconds = Integer.parseInt(value);
+            case "concurrency" -> concurrency = Integer.parseInt(value);
+            case "write-ratio" -> writeRatio = Double.parseDouble(value);
+            case "skew" -> skew = Double.parseDouble(value);
+            case "operations" -> operations = value;
+            case "seed" -> seed = Long.parseLong(value);
+            case "cards" -> cards = Integer.parseInt(value);
+            case "players" -> players = Integer.parseInt(value);
+            case "max-p99-ms" -> maxP99Ms = Double.parseDouble(value);
+            case "max-error-rate" -> maxErrorRate = Double.parseDouble(value);
+            case "min-throughput-ratio" -> minThroughputRatio = Double.parseDouble(value);
+            case "baseline" -> baseline = value;
+            case "max-regression" -> maxRegression = Double.parseDouble(value);
+            case "results" -> results = value;
+            default -> throw new IllegalArgumentException("Unknown load test setting: " + key);
+        }
+    }
+
+    //for the results file
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rate", rate);
+        map.put("duration", durationSeconds);
+        map.put("warmup", warmupSeconds);
+        map.put("concurrency", concurrency);
+        map.put("writeRatio", writeRatio);
+        map.put("skew", skew);
+        map.put("operations", operations);
+        map.put("cards", cards);
+        map.put("players", players);
+        return map;
+    }
+}
@@ -0,0 +1,116 @@
+package com.clashroyale.api.loadtest;
+
+import com.clashroyale.api.metrics.LatencyHistogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: request k is due at start + k / rate, whether or not earlier ones have answered.
+ *
+ * Response time is measured from when the request was due, not from when it was sent
+ * (coordinated-omission correction): if the server stalls for a second, every request that should have
+ * been sent during that second counts the stall, like a real user arriving then would have.
+ * Service time (from the actual send) is kept as well, the gap between the two is queueing in the driver.
+ */
+final class OpenLoopDriver {
+
+    private final HttpClient client;
+    private final Workload workload;
+    private final int concurrency;
+    private final SplittableRandom random;
+
+    OpenLoopDriver(HttpClient client, Workload workload, int concurrency, long seed) {
+        this.client = client;
+        this.workload = workload;
+        this.concurrency = concurrency;
+        this.random = new SplittableRandom(seed);
+    }
+
+    Results run(double rate, int seconds) throws InterruptedException {
+        Results results = new Results();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        double intervalNanos = 1_000_000_000.0 / rate;
+
+        for (long k = 0; ; k++) {
+            long due = start + (long) (k * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            // at the limit the driver waits here, the wait still counts for this request
+            inFlight.acquire();
+
+            Workload.Call call = workload.next(random);
+            long sent = System.nanoTime();
+            client.sendAsync(call.request(), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        // a failing onSuccess must not keep the permit, the run would stall at the limit
+                        try {
+                            long done = System.nanoTime();
+                            int status = response != null ? response.statusCode() : -1;
+                            boolean ok = status >= 200 && status < 300;
+                            results.record(call.operation(), done - due, done - sent, status, ok);
+                            if (ok && call.onSuccess() != null) {
+                                call.onSuccess().accept(response.body());
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+        }
+
+        // the last responses, then the window is closed
+        if (!inFlight.tryAcquire(concurrency, 30, TimeUnit.SECONDS)) {
+            System.err.println("Requests still running 30 s after the end of the run");
+        }
+        results.elapsedNanos = System.nanoTime() - start;
+        return results;
+    }
+
+    static final class Results {
+        final Map<String, OperationResults> operations = new ConcurrentHashMap<>();
+        final OperationResults overall = new OperationResults();
+        long elapsedNanos;
+
+        void record(String operation, long responseNanos, long serviceNanos, int status, boolean ok) {
+            overall.record(responseNanos, serviceNanos, status, ok);
+            operations.computeIfAbsent(operation, k -> new OperationResults())
+                    .record(responseNanos, serviceNanos, status, ok);
+        }
+
+        Map<String, OperationResults> sorted() {
+            return new TreeMap<>(operations);
+        }
+    }
+
+    static final class OperationResults {
+        final LatencyHistogram responseTime = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        // status -> count, -1 = no response (timeout, connection error)
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long responseNanos, long serviceNanos, int status, boolean ok) {
+            responseTime.record(responseNanos);
+            serviceTime.record(serviceNanos);
+            if (!ok) {
+                errors.increment();
+            }
+            statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.clashroyale.api.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The requests of the load test: every card, player, deck and leaderboard endpoint, except the exports and
+ * the change stream (long-lived responses, not request/response latency). Ids are picked with a zipf skew.
+ *
+ * Deletes only remove players that the test created itself, so the hot ids stay.
+ */
+final class Workload {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final String JSON = "application/json";
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final String[] TYPES = {"WARRIOR", "SPELL", "BUILDING"};
+
+    //one request to send, onSuccess gets the response body
+    record Call(String operation, HttpRequest request, Consumer<String> onSuccess) {
+    }
+
+    private record Operation(String name, boolean write, int weight, Function<RandomGenerator, Call> call) {
+    }
+
+    private final String baseUri;
+    private final ZipfSampler cardIds;
+    private final ZipfSampler playerIds;
+    private final List<Integer> deckIds;
+    private final double writeRatio;
+    private final List<Operation> reads = new ArrayList<>();
+    private final List<Operation> writes = new ArrayList<>();
+    private final int readWeight;
+    private final int writeWeight;
+
+    private final AtomicLong created = new AtomicLong();
+    private final ConcurrentLinkedQueue<Integer> createdPlayers = new ConcurrentLinkedQueue<>();
+
+    Workload(String baseUri, LoadTestConfig config, List<Integer> deckIds) {
+        this.baseUri = baseUri;
+        this.cardIds = new ZipfSampler(config.cards, config.skew);
+        this.playerIds = new ZipfSampler(config.players, config.skew);
+        this.deckIds = deckIds;
+
+        List<Operation> all = List.of(
+                new Operation("cards.list", false, 5, r -> get("cards.list", "/api/cards")),
+                new Operation("cards.page", false, 10, r -> get("cards.page", "/api/cards?limit=20")),
+                new Operation("cards.get", false, 30, r -> get("cards.get", "/api/cards/" + cardIds.next(r))),
+                new Operation("cards.type", false, 5, r -> get("cards.type", "/api/cards/type/" + type(r))),
+                new Operation("cards.search", false, 5, r ->
+                        get("cards.search", "/api/cards/search?type=" + type(r) + "&minElixir=" + (1 + r.nextInt(5)))),
+                new Operation("cards.changes", false, 3, r -> get("cards.changes", "/api/cards/changes?since=0")),
+                new Operation("players.get", false, 25, r ->
+                        get("players.get", "/api/players/" + playerIds.next(r))),
+                new Operation("players.page", false, 5, r -> get("players.page", "/api/players?limit=20")),
+                new Operation("players.rank", false, 4, r ->
+                        get("players.rank", "/api/players/" + playerIds.next(r) + "/rank")),
+                new Operation("players.around", false, 3, r ->
+                        get("players.around", "/api/players/" + playerIds.next(r) + "/around?radius=5")),
+                new Operation("leaderboard", false, 3, r -> get("leaderboard", "/api/leaderboard?limit=50")),
+                new Operation("decks.get", false, 2, r ->
+                        get("decks.get", "/api/decks/" + deckIds.get(r.nextInt(deckIds.size())))),
+
+                new Operation("players.trophies", true, 40, r ->
+                        send("players.trophies", "POST", "/api/players/" + playerIds.next(r) + "/trophies?amount=" +
+                                (1 + r.nextInt(30)), null, null)),
+                new Operation("players.update", true, 15, r -> updatePlayer(playerIds.next(r), r)),
+                new Operation("players.create", true, 15, r -> createPlayer(r)),
+                new Operation("players.delete", true, 10, r -> deletePlayer(r)),
+                new Operation("cards.update", true, 10, r -> updateCard(cardIds.next(r), r)),
+                new Operation("cards.create", true, 5, r -> send("cards.create", "POST", "/api/cards",
+                        cardJson("Load Card " + created.incrementAndGet(), r), null))
+        );
+
+        Set<String> selected = new HashSet<>();
+        if (!config.operations.isBlank()) {
+            selected.addAll(Arrays.asList(config.operations.split("\\s*,\\s*")));
+        }
+        int reads = 0;
+        int writes = 0;
+        for (Operation operation : all) {
+            if (!selected.isEmpty() && !selected.remove(operation.name())) {
+                continue;
+            }
+            if (operation.write()) {
+                this.writes.add(operation);
+                writes += operation.weight();
+            } else {
+                this.reads.add(operation);
+                reads += operation.weight();
+            }
+        }
+        if (!selected.isEmpty()) {
+            throw new IllegalArgumentException("Unknown operations: " + selected);
+        }
+        if (reads + writes == 0) {
+            throw new IllegalArgumentException("No operations selected");
+        }
+        this.readWeight = reads;
+        this.writeWeight = writes;
+        // only reads or only writes selected: the ratio can't apply
+        this.writeRatio = writes == 0 ? 0 : reads == 0 ? 1 : config.writeRatio;
+    }
+
+    Call next(RandomGenerator random) {
+        boolean write = random.nextDouble() < writeRatio;
+        List<Operation> operations = write ? writes : reads;
+        int pick = random.nextInt(write ? writeWeight : readWeight);
+        for (Operation operation : operations) {
+            pick -= operation.weight();
+            if (pick < 0) {
+                return operation.call().apply(random);
+            }
+        }
+        throw new IllegalStateException("weights");
+    }
+
+    private Call updatePlayer(int id, RandomGenerator random) {
+        // the name stays unique: one per id
+        String body = "{\"name\":\"load-player-" + id + "\",\"level\":" + (1 + random.nextInt(14)) +
+                ",\"trophies\":" + random.nextInt(9000) + "}";
+        return send("players.update", "PUT", "/api/players/" + id, body, null);
+    }
+
+    private Call createPlayer(RandomGenerator random) {
+        String body = "{\"name\":\"load-new-" + created.incrementAndGet() + "-" + Long.toHexString(random.nextLong()) +
+                "\",\"level\":1,\"trophies\":0}";
+        return send("players.create", "POST", "/api/players", body, response -> {
+            Matcher matcher = ID.matcher(response);
+            if (matcher.find()) {
+                createdPlayers.add(Integer.parseInt(matcher.group(1)));
+            }
+        });
+    }
+
+    // nothing created yet: create one instead
+    private Call deletePlayer(RandomGenerator random) {
+        Integer id = createdPlayers.poll();
+        return id != null ? send("players.delete", "DELETE", "/api/players/" + id, null, null) : createPlayer(random);
+    }
+
+    private Call updateCard(int id, RandomGenerator random) {
+        return send("cards.update", "PUT", "/api/cards/" + id, cardJson("Card " + id, random), null);
+    }
+
+    private static String cardJson(String name, RandomGenerator random) {
+        String type = type(random);
+        return "{\"name\":\"" + name + "\",\"type\":\"" + type + "\",\"rarity\":\"COMMON\",\"elixirCost\":" +
+                (1 + random.nextInt(9)) + ",\"level\":" + (1 + random.nextInt(10)) + ",\"damage\":" +
+                (100 + random.nextInt(300)) + ",\"hp\":" + (type.equals("SPELL") ? 0 : 500 + random.nextInt(1000)) +
+                ",\"radius\":" + (type.equals("SPELL") ? 2 : 0) + ",\"lifetime\":" + (type.equals("BUILDING") ? 30 : 0) + "}";
+    }
+
+    private static String type(RandomGenerator random) {
+        return TYPES[random.nextInt(TYPES.length)];
+    }
+
+    private Call get(String operation, String path) {
+        return send(operation, "GET", path, null, null);
+    }
+
+    private Call send(String operation, String method, String path, String json, Consumer<String> onSuccess) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUri + path)).timeout(TIMEOUT);
+        if (json != null) {
+            builder.header("Content-Type", JSON).method(method, HttpRequest.BodyPublishers.ofString(json));
+        } else {
+            builder.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        return new Call(operation, builder.build(), onSuccess);
+    }
+}
@@ -0,0 +1,27 @@
+package com.clashroyale.api.loadtest;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+//ids 1..n, id k picked with probability proportional to 1 / k^skew (hot keys are the low ids)
+final class ZipfSampler {
+
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double skew) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1 / Math.pow(k, skew);
+            cumulative[k - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    int next(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+}
@@ -0,0 +1,73 @@
+package com.clashroyale.api.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter: "definitely not added" or "maybe added", with a fixed false positive rate.
+ * Works on 64-bit hashes (see hash()), so callers can collect hashes first and size the
+ * filter afterwards. put() is thread-safe and lock-free, readers never lock.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitMask;
+    private final int hashCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        // optimal size: m = -n ln p / (ln 2)^2, rounded up to a power of two so an index is a mask
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(Long.highestOneBit(Math.max(bits, 64) - 1) << 1, 64);
+        this.words = new AtomicLongArray((int) Math.min(bits >>> 6, Integer.MAX_VALUE - 8));
+        this.bitMask = ((long) words.length() << 6) - 1;
+        this.hashCount = Math.max(1, (int) Math.round((double) (bitMask + 1) / n * Math.log(2)));
+    }
+
+    public void put(long hash) {
+        long h1 = hash;
+        long h2 = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        long h1 = hash;
+        long h2 = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static long hash(int value) {
+        return mix(value * 0x9E3779B97F4A7C15L);
+    }
+
+    public static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    // murmur3 finalizer, spreads every input bit over the whole hash
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,453 @@
+package com.clashroyale.api.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent, weight-bounded cache with per-entry TTL.
+ *
+ * Reads are lock-free (ConcurrentHashMap + frequency sketch). When the total weight goes over
+ * the limit, entries are evicted in insertion order, but an entry that the sketch says is
+ * more popular than the newcomer gets a second chance (frequency-aware CLOCK, similar to TinyLFU).
+ *
+ * Loads are single-flight: concurrent misses for one key wait for the same loader call.
+ * With refresh-ahead the loader runs in the background before the entry expires,
+ * so readers keep getting the current value instead of blocking on the database.
+ */
+public class BoundedCache<K, V> {
+
+    //how many popular entries can be skipped before we evict anyway
+    private static final int MAX_ROTATIONS = 8;
+    //dead nodes the eviction queue may hold before it is compacted (besides one per live entry)
+    private static final int MIN_DEAD_NODES = 16;
+
+    //shared by all caches, loaders do blocking I/O so the common pool is not an option
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<Node<K, V>> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AtomicLong totalWeight = new AtomicLong();
+    // nodes removed from data but still in evictionQueue. eviction only polls the queue when the cache
+    // is full, a cache that is mostly invalidated would otherwise keep every removed node (and value)
+    private final AtomicLong deadNodes = new AtomicLong();
+
+    private final long maximumWeight;
+    private final long defaultTtlNanos;
+    private final ToIntFunction<? super V> weigher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    //the frequency sketch is sized for maximumWeight entries, right when an element weighs about 1
+    public BoundedCache(long maximumWeight, Duration defaultTtl, ToIntFunction<? super V> weigher) {
+        this(maximumWeight, maximumWeight, defaultTtl, weigher);
+    }
+
+    //expectedEntries sizes the frequency sketch, for weights that are not element counts (bytes)
+    public BoundedCache(long maximumWeight, long expectedEntries, Duration defaultTtl,
+                        ToIntFunction<? super V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        this.maximumWeight = maximumWeight;
+        this.defaultTtlNanos = toNanos(defaultTtl);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    //cache where every entry weighs 1, so the limit is simply the number of entries
+    public BoundedCache(long maximumSize, Duration defaultTtl) {
+        this(maximumSize, defaultTtl, value -> 1);
+    }
+
+    public V get(K key) {
+        int hash = spread(key.hashCode());
+        sketch.increment(hash);
+
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (node.isExpired(System.nanoTime())) {
+            if (data.remove(key, node)) {
+                totalWeight.addAndGet(-node.weight);
+                expirations.increment();
+                removed();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    //get or load with default ttl and no refresh-ahead
+    public <E extends Exception> V get(K key, CacheLoader<? extends V, E> loader) throws E {
+        return get(key, null, null, loader);
+    }
+
+    /**
+     * Returns the cached value or loads it. Only one loader call per key runs at a time,
+     * other callers wait for its result.
+     * If refreshAfter is set and the entry is older than that, the current value is returned
+     * and a reload is started in the background.
+     */
+    public <E extends Exception> V get(K key, Duration ttl, Duration refreshAfter,
+                                       CacheLoader<? extends V, E> loader) throws E {
+        int hash = spread(key.hashCode());
+        sketch.increment(hash);
+
+        long now = System.nanoTime();
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            if (!node.isExpired(now)) {
+                hits.increment();
+                if (node.isRefreshDue(now)) {
+                    load(key, ttl, refreshAfter, loader, true);
+                }
+                return node.value;
+            }
+            if (data.remove(key, node)) {
+                totalWeight.addAndGet(-node.weight);
+                expirations.increment();
+                removed();
+            }
+        }
+
+        misses.increment();
+        return await(load(key, ttl, refreshAfter, loader, false));
+    }
+
+    public void put(K key, V value) {
+        put(key, value, null);
+    }
+
+    //ttl == null means "use default ttl", Duration.ZERO means "never expire"
+    public void put(K key, V value, Duration ttl) {
+        int weight = weigh(value);
+        if (weight > maximumWeight) {
+            //would evict everything else and still not fit
+            invalidate(key);
+            return;
+        }
+        store(key, value, weight, ttl, null);
+    }
+
+    private int weigh(V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Cache values can't be null");
+        }
+        return Math.max(weigher.applyAsInt(value), 0);
+    }
+
+    // weight <= maximumWeight. touches only data, load() calls it inside inFlight.computeIfPresent
+    private void store(K key, V value, int weight, Duration ttl, Duration refreshAfter) {
+        long ttlNanos = ttl == null ? defaultTtlNanos : toNanos(ttl);
+        long now = System.nanoTime();
+        long expiresAt = ttlNanos == 0 ? 0 : now + ttlNanos;
+        long refreshAt = refreshAfter == null || toNanos(refreshAfter) == 0 ? 0 : now + toNanos(refreshAfter);
+        int hash = spread(key.hashCode());
+
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] created = new Node[1];
+        data.compute(key, (k, existing) -> {
+            if (existing == null) {
+                Node<K, V> node = new Node<>(k, hash, value, weight, expiresAt, refreshAt);
+                totalWeight.addAndGet(weight);
+                created[0] = node;
+                return node;
+            }
+            totalWeight.addAndGet(weight - existing.weight);
+            existing.update(value, weight, expiresAt, refreshAt);
+            return existing;
+        });
+
+        if (created[0] != null) {
+            evictionQueue.offer(created[0]);
+        }
+        evictIfNeeded(hash);
+    }
+
+    /**
+     * Copy-on-write update: remapping gets the cached value and returns its replacement
+     * (null removes the entry). Ttl and refresh time of the entry are kept.
+     * A load running for the key is detached, it may have read the data before the change.
+     * If the key is not cached nothing is stored, the next read loads it.
+     */
+    public void update(K key, UnaryOperator<V> remapping) {
+        inFlight.remove(key);
+        long now = System.nanoTime();
+        boolean[] dropped = new boolean[1];
+        data.computeIfPresent(key, (k, node) -> {
+            if (node.isExpired(now)) {
+                totalWeight.addAndGet(-node.weight);
+                expirations.increment();
+                dropped[0] = true;
+                return null;
+            }
+            V value = remapping.apply(node.value);
+            int weight = value == null ? 0 : Math.max(weigher.applyAsInt(value), 0);
+            if (value == null || weight > maximumWeight) {
+                totalWeight.addAndGet(-node.weight);
+                dropped[0] = true;
+                return null;
+            }
+            totalWeight.addAndGet(weight - node.weight);
+            node.update(value, weight, node.expiresAt, node.refreshAt);
+            return node;
+        });
+        if (dropped[0]) {
+            removed();
+        }
+        evictIfNeeded(spread(key.hashCode()));
+    }
+
+    public boolean contains(K key) {
+        Node<K, V> node = data.get(key);
+        return node != null && !node.isExpired(System.nanoTime());
+    }
+
+    public void invalidate(K key) {
+        // detach a running load first, so its (now stale) result is not stored
+        inFlight.remove(key);
+        removeEntry(key);
+    }
+
+    private void removeEntry(K key) {
+        Node<K, V> removed = data.remove(key);
+        if (removed != null) {
+            totalWeight.addAndGet(-removed.weight);
+            removed();
+        }
+    }
+
+    // the queue is not cleared: a node put concurrently would be dropped from it while still in data
+    // and could never be evicted. the removed nodes are compacted away like any other dead node
+    public void invalidateAll() {
+        for (K key : data.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(),
+                loadSuccesses.sum(), loadFailures.sum(), totalLoadTime.sum(),
+                data.size(), totalWeight.get(), maximumWeight);
+    }
+
+    private <E extends Exception> CompletableFuture<V> load(K key, Duration ttl, Duration refreshAfter,
+                                                          CacheLoader<? extends V, E> loader, boolean async) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return running; // somebody is already loading this key
+        }
+
+        Runnable task = () -> {
+            long start = System.nanoTime();
+            try {
+                V value = loader.load();
+                recordLoad(System.nanoTime() - start, true);
+                int weight = value == null ? 0 : weigh(value);
+                // store only if nobody invalidated the key while we were loading. inside the lambda
+                // only data is touched, inFlight can't be changed from its own computeIfPresent
+                inFlight.computeIfPresent(key, (k, current) -> {
+                    if (current != future) {
+                        return current;
+                    }
+                    if (value != null && weight > maximumWeight) {
+                        removeEntry(k);
+                    } else if (value != null) {
+                        store(k, value, weight, ttl, refreshAfter);
+                    }
+                    return null;
+                });
+                future.complete(value);
+            } catch (Throwable e) {
+                recordLoad(System.nanoTime() - start, false);
+                inFlight.remove(key, future);
+                future.completeExceptionally(e);
+            }
+        };
+
+        if (async) {
+            REFRESH_EXECUTOR.execute(task);
+        } else {
+            task.run();
+        }
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V await(CompletableFuture<V> future) throws E {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+
+    private void recordLoad(long elapsedNanos, boolean success) {
+        totalLoadTime.add(elapsedNanos);
+        if (success) {
+            loadSuccesses.increment();
+        } else {
+            loadFailures.increment();
+        }
+    }
+
+    private void evictIfNeeded(int candidateHash) {
+        if (totalWeight.get() <= maximumWeight) {
+            return;
+        }
+
+        evictionLock.lock();
+        try {
+            int candidateFrequency = sketch.frequency(candidateHash);
+            int rotations = 0;
+            long now = System.nanoTime();
+
+            while (totalWeight.get() > maximumWeight) {
+                Node<K, V> victim = evictionQueue.poll();
+                if (victim == null) {
+                    break;
+                }
+                if (data.get(victim.key) != victim) {
+                    deadNodes.decrementAndGet(); // already removed
+                    continue;
+                }
+
+                boolean expired = victim.isExpired(now);
+                if (!expired && rotations < MAX_ROTATIONS
+                        && sketch.frequency(victim.hash) > candidateFrequency) {
+                    // popular entry - give it a second chance
+                    evictionQueue.offer(victim);
+                    rotations++;
+                    continue;
+                }
+
+                if (data.remove(victim.key, victim)) {
+                    totalWeight.addAndGet(-victim.weight);
+                    if (expired) {
+                        expirations.increment();
+                    } else {
+                        evictions.increment();
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // a node left data outside of evictIfNeeded, it is still in the queue
+    private void removed() {
+        long dead = deadNodes.incrementAndGet();
+        if (dead > MIN_DEAD_NODES && dead > data.size() && evictionLock.tryLock()) {
+            try {
+                compactQueue();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    // drops the dead nodes, O(queue) but only after at least as many removals as live entries
+    private void compactQueue() {
+        int dropped = 0;
+        for (Iterator<Node<K, V>> it = evictionQueue.iterator(); it.hasNext(); ) {
+            Node<K, V> node = it.next();
+            if (data.get(node.key) != node) {
+                it.remove();
+                dropped++;
+            }
+        }
+        deadNodes.addAndGet(-dropped);
+    }
+
+    //live and dead nodes in the eviction queue, for tests
+    int queuedNodes() {
+        return evictionQueue.size();
+    }
+
+    private static long toNanos(Duration ttl) {
+        return ttl == null || ttl.isNegative() ? 0 : ttl.toNanos();
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final int hash;
+        volatile V value;
+        volatile int weight;
+        volatile long expiresAt;
+        volatile long refreshAt;
+
+        Node(K key, int hash, V value, int weight, long expiresAt, long refreshAt) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+
+        void update(V value, int weight, long expiresAt, long refreshAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+
+        boolean isRefreshDue(long now) {
+            long deadline = refreshAt;
+            return deadline != 0 && now - deadline >= 0;
+        }
+
+        boolean isExpired(long now) {
+            long deadline = expiresAt;
+            return deadline != 0 && now - deadline >= 0;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.clashroyale.api.cache;
+
+//computes a value for a cache miss, for example by querying the database
+@FunctionalInterface
+public interface CacheLoader<V, E extends Exception> {
+    V load() throws E;
+}
@@ -0,0 +1,61 @@
+package com.clashroyale.api.cache;
+
+/**
+ * Immutable snapshot of cache counters.
+ */
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long loadSuccesses;
+    private final long loadFailures;
+    private final long totalLoadTimeNanos;
+    private final long size;
+    private final long weight;
+    private final long maximumWeight;
+
+    public CacheStats(long hits, long misses, long evictions, long expirations,
+                      long loadSuccesses, long loadFailures, long totalLoadTimeNanos,
+                      long size, long weight, long maximumWeight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.loadSuccesses = loadSuccesses;
+        this.loadFailures = loadFailures;
+        this.totalLoadTimeNanos = totalLoadTimeNanos;
+        this.size = size;
+        this.weight = weight;
+        this.maximumWeight = maximumWeight;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    public double getAverageLoadMillis() {
+        long loads = loadSuccesses + loadFailures;
+        return loads == 0 ? 0.0 : totalLoadTimeNanos / 1_000_000.0 / loads;
+    }
+
+    // Getters
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public long getExpirations() { return expirations; }
+    public long getLoadSuccesses() { return loadSuccesses; }
+    public long getLoadFailures() { return loadFailures; }
+    public long getTotalLoadTimeNanos() { return totalLoadTimeNanos; }
+    public long getSize() { return size; }
+    public long getWeight() { return weight; }
+    public long getMaximumWeight() { return maximumWeight; }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats[hits=%d, misses=%d, hitRate=%.3f, evictions=%d, expirations=%d, size=%d, weight=%d/%d]",
+                hits, misses, getHitRate(), evictions, expirations, size, weight, maximumWeight);
+    }
+}
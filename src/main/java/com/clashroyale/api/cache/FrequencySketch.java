@@ -0,0 +1,110 @@
+package com.clashroyale.api.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Count-Min sketch with 4-bit counters used to estimate how often a key was requested.
+ * Counters are halved periodically so old popularity fades away (aging).
+ *
+ * 16 counters share one long, so every update is a CAS of the whole long: a plain read-modify-write
+ * from two threads could lose the other counters of the long, or carry 15 + 1 into the neighbour.
+ */
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+    private final ReentrantLock resetLock = new ReentrantLock();
+
+    FrequencySketch(long expectedEntries) {
+        int capacity = (int) Math.min(Math.max(expectedEntries, 16), 1 << 24);
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new AtomicLongArray(size);
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    //estimated frequency of the key, 0..15
+    int frequency(int hash) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = counterOffset(hash, i);
+            int count = (int) ((table.get(index) >>> offset) & 0xfL);
+            min = Math.min(min, count);
+        }
+        return min;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), counterOffset(hash, i));
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    //false if the counter is already at 15
+    private boolean incrementAt(int index, int offset) {
+        long mask = 0xfL << offset;
+        while (true) {
+            long current = table.get(index);
+            if ((current & mask) == mask) {
+                return false;
+            }
+            if (table.compareAndSet(index, current, current + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    //halve every counter so the sketch keeps adapting to recent traffic.
+    //one thread resets, the others keep counting (into already halved or not yet halved longs)
+    private void reset() {
+        if (!resetLock.tryLock()) {
+            return;
+        }
+        try {
+            if (additions.get() < sampleSize) {
+                return; // another thread just did it
+            }
+            int odd = 0;
+            for (int i = 0; i < table.length(); i++) {
+                while (true) {
+                    long current = table.get(i);
+                    if (table.compareAndSet(i, current, (current >>> 1) & RESET_MASK)) {
+                        odd += Long.bitCount(current & ONE_MASK);
+                        break;
+                    }
+                }
+            }
+            int lost = odd >>> 2;
+            additions.updateAndGet(count -> Math.max(0, count - lost) >>> 1);
+        } finally {
+            resetLock.unlock();
+        }
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private int counterOffset(int hash, int depth) {
+        //each long holds 16 counters, every row uses its own group of 4
+        int counter = (hash >>> (depth << 3)) & 3;
+        return ((depth << 2) + counter) << 2;
+    }
+}
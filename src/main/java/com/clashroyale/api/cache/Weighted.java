@@ -0,0 +1,6 @@
+package com.clashroyale.api.cache;
+
+//a cached value that knows its own weight (number of elements it holds), see CacheService
+public interface Weighted {
+    int weight();
+}
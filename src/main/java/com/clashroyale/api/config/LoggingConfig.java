@@ -0,0 +1,40 @@
+package com.clashroyale.api.config;
+
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+//passes logger settings from application.properties to the LoggerService singleton
+@Configuration
+public class LoggingConfig {
+
+    @Value("${cardbattle.log.level:INFO}")
+    private String level;
+
+    @Value("${cardbattle.log.console:true}")
+    private boolean console;
+
+    @Value("${cardbattle.log.file:}")
+    private String file;
+
+    @Value("${cardbattle.log.max-file-size-mb:10}")
+    private long maxFileSizeMb;
+
+    @Value("${cardbattle.log.max-files:5}")
+    private int maxFiles;
+
+    @PostConstruct
+    public void configureLogger() throws IOException {
+        LoggerService.getInstance().configure(
+                LoggerService.Level.valueOf(level.trim().toUpperCase()),
+                console,
+                file.isBlank() ? null : Path.of(file),
+                maxFileSizeMb * 1024 * 1024,
+                maxFiles
+        );
+    }
+}
@@ -0,0 +1,19 @@
+package com.clashroyale.api.config;
+
+import com.clashroyale.api.metrics.MetricsInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+//times every card and player request per route, see /api/metrics
+@Configuration
+@ConditionalOnProperty(name = "cardbattle.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new MetricsInterceptor())
+                .addPathPatterns("/api/cards", "/api/cards/**", "/api/players", "/api/players/**");
+    }
+}
@@ -0,0 +1,10 @@
+package com.clashroyale.api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+//turns on @Scheduled methods (periodic leaderboard rebuild)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
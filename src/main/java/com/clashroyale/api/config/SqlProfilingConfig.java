@@ -0,0 +1,25 @@
+package com.clashroyale.api.config;
+
+import com.clashroyale.api.patterns.singleton.SqlProfiler;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+//passes slow query log settings from application.properties to the SqlProfiler singleton
+@Configuration
+public class SqlProfilingConfig {
+
+    @Value("${cardbattle.sql.slow-query-ms:100}")
+    private long slowQueryMs;
+
+    @Value("${cardbattle.sql.slow-query-log-size:100}")
+    private int slowQueryLogSize;
+
+    @Value("${cardbattle.sql.capture-parameters:false}")
+    private boolean captureParameters;
+
+    @PostConstruct
+    public void configureProfiler() {
+        SqlProfiler.getInstance().configure(slowQueryMs, slowQueryLogSize, captureParameters);
+    }
+}
@@ -0,0 +1,42 @@
+package com.clashroyale.api.config;
+
+import com.clashroyale.api.web.ServerTimingFilter;
+import com.clashroyale.api.web.TracingJacksonConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+//Server-Timing header on every /api request, spans come from the metrics proxies (cardbattle.metrics.enabled)
+@Configuration
+@ConditionalOnProperty(name = "cardbattle.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig implements WebMvcConfigurer {
+
+    @Value("${cardbattle.tracing.sample-rate:0}")
+    private double sampleRate;
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter() {
+        FilterRegistrationBean<ServerTimingFilter> registration =
+                new FilterRegistrationBean<>(new ServerTimingFilter(sampleRate));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    // same ObjectMapper, JSON bodies are serialized into a buffer so the header can include it
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i).getClass() == MappingJackson2HttpMessageConverter.class) {
+                MappingJackson2HttpMessageConverter jackson = (MappingJackson2HttpMessageConverter) converters.get(i);
+                converters.set(i, new TracingJacksonConverter(jackson.getObjectMapper()));
+            }
+        }
+    }
+}
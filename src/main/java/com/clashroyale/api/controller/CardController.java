@@ -1,53 +1,162 @@
 package com.clashroyale.api.controller;
 
+import com.clashroyale.api.dto.NdjsonRowWriter;
+import com.clashroyale.api.dto.BulkImportResponse;
+import com.clashroyale.api.dto.CardChangesResponse;
 import com.clashroyale.api.dto.CardRequest;
 import com.clashroyale.api.dto.CardResponse;
+import com.clashroyale.api.model.BulkImportResult;
 import com.clashroyale.api.model.Card;
 import com.clashroyale.api.patterns.factory.CardFactory;
+import com.clashroyale.api.repository.Page;
+import com.clashroyale.api.service.catalog.CardCatalog;
+import com.clashroyale.api.service.catalog.CardQuery;
+import com.clashroyale.api.service.catalog.CardSearchResult;
 import com.clashroyale.api.service.interfaces.CardServiceInterface;
+import com.clashroyale.api.web.ContentEncoding;
+import com.clashroyale.api.web.ETags;
+import com.clashroyale.api.web.EncodedBody;
+import com.clashroyale.api.web.EncodedResponseCache;
 import com.clashroyale.api.exception.*;
 
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 // REST Controller for managing Cards in Clash Royale API
 @RestController
 @RequestMapping("/api/cards")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {Pagination.NEXT_CURSOR_HEADER, Pagination.TOTAL_COUNT_HEADER, HttpHeaders.ETAG})
 public class CardController {
 
     private final CardServiceInterface cardService;
     private final CardFactory cardFactory;
+    private final EncodedResponseCache responseCache;
 
     //autowired constructor for dependency injection of service and factory
     @Autowired
-    public CardController(CardServiceInterface cardService, CardFactory cardFactory) {
+    public CardController(CardServiceInterface cardService, CardFactory cardFactory,
+                          EncodedResponseCache responseCache) {
         this.cardService = cardService;
         this.cardFactory = cardFactory;
+        this.responseCache = responseCache;
     }
 
    // GET /api/cards - get all cards
+   // GET /api/cards?limit=50&after=<cursor> - one page, next cursor in X-Next-Cursor header
     @GetMapping
-    public ResponseEntity<List<CardResponse>> getAllCards() throws DatabaseException {
-        List<Card> cards = cardService.getAllCards();
-        List<CardResponse> response = cards.stream()
-                .map(CardResponse::fromEntity)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(response);
+    public ResponseEntity<?> getAllCards(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws DatabaseException, InvalidInputException, IOException {
+
+        if (Pagination.requested(limit, after)) {
+            Page<Card> page = cardService.getCardsPage(after, Pagination.resolveLimit(limit));
+            List<CardResponse> items = page.getItems().stream()
+                    .map(CardResponse::fromEntity)
+                    .collect(Collectors.toList());
+            return Pagination.toResponse(page, items);
+        }
+
+        // ETag is the catalog version: an unchanged catalog is a 304 straight from memory.
+        // JSON (plain, gzip and deflate) is built once per catalog version, after that it is a byte copy
+        CardCatalog catalog = cardService.getCatalog();
+        ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+        String etag = ETags.of("cards", catalog.version(), encoding);
+        if (ETags.isNotModified(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        EncodedBody body = responseCache.get("cards", catalog.version(),
+                () -> CardResponse.fromCatalog(catalog, catalog.order(CardCatalog.SortOrder.DEFAULT)));
+        return body.toResponse(encoding, etag);
+    }
+
+    // GET /api/cards/export - stream all cards as NDJSON (one JSON object per line)
+    // rows go from the database cursor straight to the response, nothing is collected in memory
+    @GetMapping(value = "/export", produces = NdjsonRowWriter.CONTENT_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportCards() {
+        StreamingResponseBody body = out -> {
+            try {
+                cardService.exportCards(out);
+            } catch (DatabaseException e) {
+                // headers are already sent, so we can only abort the stream
+                throw new IOException("Export failed: " + e.getMessage(), e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonRowWriter.CONTENT_TYPE))
+                .body(body);
+    }
+
+    // GET /api/cards/changes?since={version} - cards changed after that version plus ids of deleted cards.
+    // start with since=0 (full snapshot), then send the returned version. if the client is too far
+    // behind, the answer is a full snapshot again (snapshot=true)
+    @GetMapping("/changes")
+    public ResponseEntity<CardChangesResponse> getChanges(@RequestParam(defaultValue = "0") long since)
+            throws DatabaseException {
+        return ResponseEntity.ok(CardChangesResponse.fromChanges(cardService.getChanges(since)));
+    }
+
+    // GET /api/cards/search?type=WARRIOR,SPELL&rarity=EPIC&minElixir=3&maxElixir=5&minLevel=&maxLevel=
+    //                      &minDamage=&minHp=&sort=default|id|name|elixir&offset=0&limit=50
+    // several values of one filter are OR-ed, different filters are AND-ed.
+    // answered from bitmap indexes of the catalog snapshot, total number of hits in X-Total-Count
+    @GetMapping("/search")
+    public ResponseEntity<List<CardResponse>> searchCards(
+            @RequestParam(required = false) List<String> type,
+            @RequestParam(required = false) List<String> rarity,
+            @RequestParam(required = false) Integer minElixir,
+            @RequestParam(required = false) Integer maxElixir,
+            @RequestParam(required = false) Integer minLevel,
+            @RequestParam(required = false) Integer maxLevel,
+            @RequestParam(required = false) Integer minDamage,
+            @RequestParam(required = false) Integer minHp,
+            @RequestParam(defaultValue = "default") String sort,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer limit)
+            throws InvalidInputException, DatabaseException {
+
+        CardQuery query = new CardQuery()
+                .types(type)
+                .rarities(rarity)
+                .elixir(minElixir, maxElixir)
+                .level(minLevel, maxLevel)
+                .minDamage(minDamage)
+                .minHp(minHp)
+                .sort(parseSort(sort));
+
+        CardSearchResult result = cardService.searchCards(query, offset, Pagination.resolveLimit(limit));
+        return ResponseEntity.ok()
+                .header(Pagination.TOTAL_COUNT_HEADER, String.valueOf(result.getTotal()))
+                .body(CardResponse.fromCatalog(result.getCatalog(), result.getPositions()));
     }
 
     // GET /api/cards/{id} - get card by id
+    // If-None-Match with the current ETag gives 304 without the body
     @GetMapping("/{id}")
-    public ResponseEntity<CardResponse> getCardById(@PathVariable int id)
+    public ResponseEntity<CardResponse> getCardById(
+            @PathVariable int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
             throws ResourceNotFoundException, DatabaseException {
+        // from the snapshot in memory, a missing card is a 404 whatever the client has
         Card card = cardService.getCardById(id);
-        return ResponseEntity.ok(CardResponse.fromEntity(card));
+        String etag = ETags.of("card-" + id, card.getVersion());
+        if (ETags.isNotModified(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(CardResponse.fromEntity(card));
     }
 
      // POST /api/cards - Create new card
@@ -74,12 +183,55 @@ public class CardController {
         return new ResponseEntity<>(CardResponse.fromEntity(card), HttpStatus.CREATED);
     }
 
+     // POST /api/cards/bulk - create many cards in one request
+     // every row is checked separately, the response has ids in request order and per-row errors
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkImportResponse> importCards(@RequestBody List<CardRequest> requests)
+            throws InvalidInputException, DatabaseException {
+
+        BulkImportResult result = new BulkImportResult(requests.size());
+        List<Card> cards = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CardRequest request = requests.get(i);
+            if (request == null) {
+                cards.add(null);
+                result.reject(i, "Card is empty");
+                continue;
+            }
+            try {
+                cards.add(cardFactory.createCard(
+                        request.getType(),
+                        0,
+                        request.getName(),
+                        request.getRarity(),
+                        request.getElixirCost(),
+                        request.getLevel(),
+                        request.getHp(),
+                        request.getDamage(),
+                        request.getRadius(),
+                        request.getLifetime()
+                ));
+            } catch (IllegalArgumentException e) {
+                cards.add(null);
+                result.reject(i, e.getMessage());
+            }
+        }
+
+        cardService.importCards(cards, result);
+
+        BulkImportResponse response = BulkImportResponse.fromResult(result);
+        HttpStatus status = response.getErrors().isEmpty() ? HttpStatus.CREATED : HttpStatus.OK;
+        return new ResponseEntity<>(response, status);
+    }
+
      // PUT /api/cards/{id} - update card
+     // with If-Match: only if the card still has that ETag, otherwise 412
     @PutMapping("/{id}")
     public ResponseEntity<CardResponse> updateCard(
             @PathVariable int id,
-            @Valid @RequestBody CardRequest request)
-            throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+            @Valid @RequestBody CardRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException, PreconditionFailedException {
 
         Card card = cardFactory.createCard(
                 request.getType(),
@@ -94,8 +246,10 @@ public class CardController {
                 request.getLifetime()
         );
 
-        cardService.updateCard(id, card);
-        return ResponseEntity.ok(CardResponse.fromEntity(card));
+        cardService.updateCard(id, card, ETags.expectedVersion(ifMatch, "card-" + id));
+        return ResponseEntity.ok()
+                .eTag(ETags.of("card-" + id, card.getVersion()))
+                .body(CardResponse.fromEntity(card));
     }
 
 
@@ -114,8 +268,7 @@ public class CardController {
     @PutMapping("/{id}/upgrade")
     public ResponseEntity<CardResponse> upgradeCard(@PathVariable int id)
             throws ResourceNotFoundException, DatabaseException, InvalidInputException {
-        cardService.upgradeCard(id);
-        Card upgraded = cardService.getCardById(id);
+        Card upgraded = cardService.upgradeCard(id);
         return ResponseEntity.ok(CardResponse.fromEntity(upgraded));
     }
 
@@ -123,18 +276,29 @@ public class CardController {
     // GET /api/cards/type/{type} - get cards by type
 
     @GetMapping("/type/{type}")
-    public ResponseEntity<List<CardResponse>> getCardsByType(@PathVariable String type)
-            throws DatabaseException {
-        List<Card> cards = cardService.getAllCards().stream()
-                .filter(card -> card.getType().equalsIgnoreCase(type))
-                .collect(Collectors.toList());
-
-        List<CardResponse> response = cards.stream()
-                .map(CardResponse::fromEntity)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(response);
+    public ResponseEntity<byte[]> getCardsByType(
+            @PathVariable String type,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws DatabaseException, IOException {
+        // precomputed per-type index of the snapshot, unknown type gives an empty list
+        CardCatalog catalog = cardService.getCatalog();
+        byte code = CardCatalog.typeCode(type);
+        ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+        String etag = ETags.of("cards-type" + code, catalog.version(), encoding);
+        if (ETags.isNotModified(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        EncodedBody body = responseCache.get("cards/type/" + code, catalog.version(),
+                () -> CardResponse.fromCatalog(catalog, catalog.ofType(code)));
+        return body.toResponse(encoding, etag);
     }
 
-
-}
\ No newline at end of file
+    private static CardCatalog.SortOrder parseSort(String sort) throws InvalidInputException {
+        try {
+            return CardCatalog.SortOrder.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Invalid sort: " + sort + ". Must be default, id, name or elixir");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.clashroyale.api.controller;
+
+import com.clashroyale.api.dto.DeckRequest;
+import com.clashroyale.api.dto.DeckResponse;
+import com.clashroyale.api.model.Deck;
+import com.clashroyale.api.service.interfaces.DeckServiceInterface;
+import com.clashroyale.api.exception.*;
+
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+//REST controller for decks, every response carries the deck's 8 cards
+@RestController
+@RequestMapping("/api/decks")
+@CrossOrigin(origins = "*")
+public class DeckController {
+
+    private final DeckServiceInterface deckService;
+
+    @Autowired
+    public DeckController(DeckServiceInterface deckService) {
+        this.deckService = deckService;
+    }
+
+    // GET /api/decks - all decks
+    // GET /api/decks?playerId=1 - decks of one player
+    @GetMapping
+    public ResponseEntity<List<DeckResponse>> getAllDecks(@RequestParam(required = false) Integer playerId)
+            throws DatabaseException {
+        List<Deck> decks = playerId != null
+                ? deckService.getDecksByPlayer(playerId)
+                : deckService.getAllDecks();
+        List<DeckResponse> response = decks.stream()
+                .map(DeckResponse::fromEntity)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(response);
+    }
+
+    // GET /api/decks/{id} - Get deck by ID
+    @GetMapping("/{id}")
+    public ResponseEntity<DeckResponse> getDeckById(@PathVariable int id)
+            throws ResourceNotFoundException, DatabaseException {
+        return ResponseEntity.ok(DeckResponse.fromEntity(deckService.getDeckById(id)));
+    }
+
+    // POST /api/decks - Create new deck
+    @PostMapping
+    public ResponseEntity<DeckResponse> createDeck(@Valid @RequestBody DeckRequest request)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+        if (request.getPlayerId() == null) {
+            throw new InvalidInputException("Player id is required");
+        }
+        Deck deck = deckService.createDeck(request.getPlayerId(), request.getDeckName(), request.getCardIds());
+        return new ResponseEntity<>(DeckResponse.fromEntity(deck), HttpStatus.CREATED);
+    }
+
+    // PUT /api/decks/{id} - rename deck and replace its cards (owner can't be changed)
+    @PutMapping("/{id}")
+    public ResponseEntity<DeckResponse> updateDeck(
+            @PathVariable int id,
+            @Valid @RequestBody DeckRequest request)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+        Deck deck = deckService.updateDeck(id, request.getDeckName(), request.getCardIds());
+        return ResponseEntity.ok(DeckResponse.fromEntity(deck));
+    }
+
+    // DELETE /api/decks/{id} - Delete deck
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteDeck(@PathVariable int id)
+            throws ResourceNotFoundException, DatabaseException {
+        deckService.deleteDeck(id);
+        return ResponseEntity.noContent().build();
+    }
+}
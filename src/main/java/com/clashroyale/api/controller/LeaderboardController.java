@@ -0,0 +1,43 @@
+package com.clashroyale.api.controller;
+
+import com.clashroyale.api.dto.LeaderboardEntryResponse;
+import com.clashroyale.api.exception.*;
+import com.clashroyale.api.service.leaderboard.LeaderboardService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+//REST controller for the in-memory leaderboard
+@RestController
+@RequestMapping("/api/leaderboard")
+@CrossOrigin(origins = "*")
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    @Autowired
+    public LeaderboardController(LeaderboardService leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    // GET /api/leaderboard?offset=0&limit=50 - players by trophies, served from memory
+    @GetMapping
+    public ResponseEntity<List<LeaderboardEntryResponse>> getLeaderboard(
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer limit)
+            throws InvalidInputException, LeaderboardUnavailableException {
+
+        if (offset < 0) {
+            throw new InvalidInputException("offset can't be negative");
+        }
+        List<LeaderboardEntryResponse> response = leaderboardService
+                .getPage(offset, Pagination.resolveLimit(limit)).stream()
+                .map(LeaderboardEntryResponse::fromEntry)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(response);
+    }
+}
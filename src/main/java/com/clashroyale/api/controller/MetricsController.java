@@ -0,0 +1,55 @@
+package com.clashroyale.api.controller;
+
+import com.clashroyale.api.dto.MetricsResponse;
+import com.clashroyale.api.dto.SqlMetricsResponse;
+import com.clashroyale.api.exception.InvalidInputException;
+import com.clashroyale.api.metrics.PrometheusFormat;
+import com.clashroyale.api.patterns.singleton.CacheService;
+import com.clashroyale.api.patterns.singleton.MetricsRegistry;
+import com.clashroyale.api.patterns.singleton.SqlProfiler;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+
+ //latency, throughput and errors per route and per layer (http, service, repository, cache)
+
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "*")
+public class MetricsController {
+
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private final CacheService cache = CacheService.getInstance();
+    private final SqlProfiler sqlProfiler = SqlProfiler.getInstance();
+
+    // GET /api/metrics - JSON, latencies in milliseconds
+    @GetMapping
+    public ResponseEntity<MetricsResponse> getMetrics() {
+        long uptimeMillis = System.currentTimeMillis() - registry.getStartedAtMillis();
+        return ResponseEntity.ok(MetricsResponse.from(registry.timers(), uptimeMillis, cache.stats()));
+    }
+
+    // GET /api/metrics?format=prometheus - Prometheus text format, for scraping
+    @GetMapping(params = "format=prometheus")
+    public ResponseEntity<String> getPrometheusMetrics() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(PrometheusFormat.CONTENT_TYPE))
+                .body(PrometheusFormat.write(registry.timers(), cache.stats(),
+                        sqlProfiler.statements(), sqlProfiler.poolStats()));
+    }
+
+    // GET /api/metrics/sql?limit=50 - statements by total database time, slow query log, pool gauges
+    @GetMapping("/sql")
+    public ResponseEntity<SqlMetricsResponse> getSqlMetrics(@RequestParam(defaultValue = "50") int limit)
+            throws InvalidInputException {
+        if (limit < 1) {
+            throw new InvalidInputException("limit must be at least 1");
+        }
+        long uptimeMillis = System.currentTimeMillis() - registry.getStartedAtMillis();
+        return ResponseEntity.ok(SqlMetricsResponse.from(sqlProfiler.poolStats(), sqlProfiler.getConnectionWait(),
+                sqlProfiler.statements(), limit, uptimeMillis, sqlProfiler.getSlowThresholdMillis(),
+                sqlProfiler.getSlowQueryCount(), sqlProfiler.slowQueries()));
+    }
+}
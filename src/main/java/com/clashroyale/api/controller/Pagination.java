@@ -0,0 +1,43 @@
+package com.clashroyale.api.controller;
+
+import com.clashroyale.api.exception.InvalidInputException;
+import com.clashroyale.api.repository.Page;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+//shared rules for ?limit=&after= listing endpoints
+final class Pagination {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    //number of all matches for offset-based endpoints (search)
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 500;
+
+    private Pagination() {}
+
+    //true if the client asked for a page instead of the whole list
+    static boolean requested(Integer limit, String after) {
+        return limit != null || after != null;
+    }
+
+    static int resolveLimit(Integer limit) throws InvalidInputException {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidInputException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    //body is the page items, the cursor for the next page goes to the X-Next-Cursor header
+    static <T> ResponseEntity<List<T>> toResponse(Page<?> page, List<T> body) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.hasNext()) {
+            builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(body);
+    }
+}
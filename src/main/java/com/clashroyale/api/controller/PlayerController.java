@@ -1,18 +1,29 @@
 package com.clashroyale.api.controller;
 
+import com.clashroyale.api.cache.CacheStats;
+import com.clashroyale.api.dto.NdjsonRowWriter;
+import com.clashroyale.api.dto.LeaderboardEntryResponse;
 import com.clashroyale.api.dto.PlayerRequest;
 import com.clashroyale.api.dto.PlayerResponse;
 import com.clashroyale.api.model.Player;
 import com.clashroyale.api.patterns.builder.PlayerBuilder;
+import com.clashroyale.api.repository.Page;
+import com.clashroyale.api.service.interfaces.DeckServiceInterface;
 import com.clashroyale.api.service.interfaces.PlayerServiceInterface;
+import com.clashroyale.api.service.leaderboard.LeaderboardService;
+import com.clashroyale.api.web.ETags;
 import com.clashroyale.api.exception.*;
 
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,32 +32,98 @@ import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/players")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {Pagination.NEXT_CURSOR_HEADER, HttpHeaders.ETAG})
 public class PlayerController {
 
+    private static final int MAX_AROUND_RADIUS = 50;
+    private static final String EXPAND_DECK = "deck";
+
     private final PlayerServiceInterface playerService;
+    private final DeckServiceInterface deckService;
+    private final LeaderboardService leaderboardService;
 
     @Autowired
-    public PlayerController(PlayerServiceInterface playerService) {
+    public PlayerController(PlayerServiceInterface playerService, DeckServiceInterface deckService,
+                            LeaderboardService leaderboardService) {
         this.playerService = playerService;
+        this.deckService = deckService;
+        this.leaderboardService = leaderboardService;
     }
 
     // GET /api/players - Get all players
+    // GET /api/players?limit=50&after=<cursor> - one page, next cursor in X-Next-Cursor header
+    // ?expand=deck adds every player's deck (loaded in batches, not per player)
     @GetMapping
-    public ResponseEntity<List<PlayerResponse>> getAllPlayers() throws DatabaseException {
+    public ResponseEntity<List<PlayerResponse>> getAllPlayers(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String expand)
+            throws DatabaseException, InvalidInputException {
+
+        boolean withDeck = expandDeck(expand);
+        if (Pagination.requested(limit, after)) {
+            Page<Player> page = playerService.getPlayersPage(after, Pagination.resolveLimit(limit));
+            if (withDeck) {
+                deckService.attachDecks(page.getItems());
+            }
+            List<PlayerResponse> items = page.getItems().stream()
+                    .map(PlayerResponse::fromEntity)
+                    .collect(Collectors.toList());
+            return Pagination.toResponse(page, items);
+        }
+
         List<Player> players = playerService.getAllPlayers();
+        if (withDeck) {
+            deckService.attachDecks(players);
+        }
         List<PlayerResponse> response = players.stream()
                 .map(PlayerResponse::fromEntity)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(response);
     }
 
+    // GET /api/players/export - stream all players as NDJSON (one JSON object per line)
+    // rows go from the database cursor straight to the response, nothing is collected in memory
+    @GetMapping(value = "/export", produces = NdjsonRowWriter.CONTENT_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportPlayers() {
+        StreamingResponseBody body = out -> {
+            try {
+                playerService.exportPlayers(out);
+            } catch (DatabaseException e) {
+                // headers are already sent, so we can only abort the stream
+                throw new IOException("Export failed: " + e.getMessage(), e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonRowWriter.CONTENT_TYPE))
+                .body(body);
+    }
+
     // GET /api/players/{id} - Get player by ID
+    // GET /api/players/{id}?expand=deck - with the player's deck and its cards
+    // If-None-Match with the current ETag gives 304 without the body (not with expand=deck,
+    // deck changes don't change the player's version)
     @GetMapping("/{id}")
-    public ResponseEntity<PlayerResponse> getPlayerById(@PathVariable int id)
-            throws ResourceNotFoundException, DatabaseException {
+    public ResponseEntity<PlayerResponse> getPlayerById(
+            @PathVariable int id,
+            @RequestParam(required = false) String expand,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws ResourceNotFoundException, DatabaseException, InvalidInputException {
         Player player = playerService.getPlayerById(id);
-        return ResponseEntity.ok(PlayerResponse.fromEntity(player));
+        if (expandDeck(expand)) {
+            deckService.attachDecks(List.of(player));
+            return ResponseEntity.ok(PlayerResponse.fromEntity(player));
+        }
+        // trophy grants not written yet: not a stored version, no ETag
+        if (player.getVersion() == 0) {
+            return ResponseEntity.ok(PlayerResponse.fromEntity(player));
+        }
+
+        String etag = ETags.of("player-" + id, player.getVersion());
+        if (ETags.isNotModified(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(PlayerResponse.fromEntity(player));
     }
 
      // POST /api/players - Create new player
@@ -67,11 +144,13 @@ public class PlayerController {
     }
 
      // PUT /api/players/{id} - Update player
+     // with If-Match: only if the player still has that ETag, otherwise 412
     @PutMapping("/{id}")
     public ResponseEntity<PlayerResponse> updatePlayer(
             @PathVariable int id,
-            @Valid @RequestBody PlayerRequest request)
-            throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+            @Valid @RequestBody PlayerRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException, PreconditionFailedException {
 
         Player player = PlayerBuilder.builder()
                 .id(id)
@@ -80,8 +159,10 @@ public class PlayerController {
                 .trophies(request.getTrophies())
                 .build();
 
-        playerService.updatePlayer(id, player);
-        return ResponseEntity.ok(PlayerResponse.fromEntity(player));
+        playerService.updatePlayer(id, player, ETags.expectedVersion(ifMatch, "player-" + id));
+        return ResponseEntity.ok()
+                .eTag(ETags.of("player-" + id, player.getVersion()))
+                .body(PlayerResponse.fromEntity(player));
     }
 
 
@@ -100,8 +181,46 @@ public class PlayerController {
             @RequestParam int amount)
             throws ResourceNotFoundException, DatabaseException, InvalidInputException {
 
-        playerService.addTrophies(id, amount);
-        Player player = playerService.getPlayerById(id);
+        Player player = playerService.addTrophies(id, amount);
         return ResponseEntity.ok(PlayerResponse.fromEntity(player));
     }
-}
\ No newline at end of file
+
+    // GET /api/players/cache/stats - hits, misses and evictions of the player cache
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStats> getCacheStats() throws ResourceNotFoundException {
+        return ResponseEntity.ok(playerService.getCacheStats());
+    }
+
+    // GET /api/players/{id}/rank - leaderboard position of the player
+    @GetMapping("/{id}/rank")
+    public ResponseEntity<LeaderboardEntryResponse> getRank(@PathVariable int id)
+            throws ResourceNotFoundException, LeaderboardUnavailableException {
+        return ResponseEntity.ok(LeaderboardEntryResponse.fromEntry(leaderboardService.getRank(id)));
+    }
+
+    // GET /api/players/{id}/around?radius=5 - the player and his neighbours on the leaderboard
+    @GetMapping("/{id}/around")
+    public ResponseEntity<List<LeaderboardEntryResponse>> getAround(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "5") int radius)
+            throws ResourceNotFoundException, LeaderboardUnavailableException, InvalidInputException {
+
+        if (radius < 0 || radius > MAX_AROUND_RADIUS) {
+            throw new InvalidInputException("radius must be between 0 and " + MAX_AROUND_RADIUS);
+        }
+        List<LeaderboardEntryResponse> response = leaderboardService.getAround(id, radius).stream()
+                .map(LeaderboardEntryResponse::fromEntry)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(response);
+    }
+
+    private static boolean expandDeck(String expand) throws InvalidInputException {
+        if (expand == null) {
+            return false;
+        }
+        if (!EXPAND_DECK.equals(expand)) {
+            throw new InvalidInputException("Unknown expand value: " + expand);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package com.clashroyale.api.controller;
+
+import com.clashroyale.api.exception.*;
+import com.clashroyale.api.service.events.ChangeEvent;
+import com.clashroyale.api.web.ChangeFeed;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//Server-Sent Events: card and player changes pushed as they are committed (instead of polling)
+@RestController
+@RequestMapping("/api/stream")
+@CrossOrigin(origins = "*")
+public class StreamController {
+
+    private static final int MAX_IDS = 1000;
+
+    private final ChangeFeed changeFeed;
+
+    @Autowired
+    public StreamController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    // GET /api/stream - every change
+    // GET /api/stream?type=player&id=1,2,3 - only these entity types / ids (both optional, comma separated)
+    // events are named "card" or "player", the data is {entity, action, id, version, data}.
+    // a "resync" event means the client was too slow and lost events: reload, then keep listening
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) List<String> type,
+                             @RequestParam(required = false) List<Integer> id)
+            throws InvalidInputException {
+
+        Set<ChangeEvent.Entity> entities = EnumSet.noneOf(ChangeEvent.Entity.class);
+        if (type != null) {
+            for (String key : type) {
+                ChangeEvent.Entity entity = ChangeEvent.Entity.fromKey(key.trim());
+                if (entity == null) {
+                    throw new InvalidInputException("Invalid type '" + key + "'. Must be card or player");
+                }
+                entities.add(entity);
+            }
+        }
+
+        Set<Integer> ids = id == null ? Set.of() : new HashSet<>(id);
+        if (ids.size() > MAX_IDS) {
+            throw new InvalidInputException("At most " + MAX_IDS + " ids can be watched");
+        }
+        return changeFeed.subscribe(entities, ids);
+    }
+}
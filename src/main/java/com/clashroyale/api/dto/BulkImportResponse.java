@@ -0,0 +1,60 @@
+package com.clashroyale.api.dto;
+
+import com.clashroyale.api.model.BulkImportResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResponse {
+
+    private int received;
+    private int created;
+    private List<Integer> ids;      // same order as the request, null for failed rows
+    private List<RowError> errors;
+
+    public static BulkImportResponse fromResult(BulkImportResult result) {
+        BulkImportResponse response = new BulkImportResponse();
+        List<Integer> ids = new ArrayList<>(result.size());
+        List<RowError> errors = new ArrayList<>();
+        for (int i = 0; i < result.size(); i++) {
+            if (result.isRejected(i) || result.getId(i) == 0) {
+                ids.add(null);
+                errors.add(new RowError(i, result.getError(i) != null ? result.getError(i) : "Card was not created"));
+            } else {
+                ids.add(result.getId(i));
+            }
+        }
+        response.setReceived(result.size());
+        response.setCreated(result.getCreatedCount());
+        response.setIds(ids);
+        response.setErrors(errors);
+        return response;
+    }
+
+    // Getters and Setters
+    public int getReceived() { return received; }
+    public void setReceived(int received) { this.received = received; }
+
+    public int getCreated() { return created; }
+    public void setCreated(int created) { this.created = created; }
+
+    public List<Integer> getIds() { return ids; }
+    public void setIds(List<Integer> ids) { this.ids = ids; }
+
+    public List<RowError> getErrors() { return errors; }
+    public void setErrors(List<RowError> errors) { this.errors = errors; }
+
+    //error for one input row, index is the position in the request array
+    public static class RowError {
+        private final int index;
+        private final String message;
+
+        public RowError(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public int getIndex() { return index; }
+        public String getMessage() { return message; }
+    }
+}
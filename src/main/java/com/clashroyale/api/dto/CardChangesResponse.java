@@ -0,0 +1,37 @@
+package com.clashroyale.api.dto;
+
+import com.clashroyale.api.service.catalog.CardChanges;
+
+import java.util.List;
+
+public class CardChangesResponse {
+
+    // send as ?since= next time, valid on every instance
+    private long version;
+    // true: cards is the whole catalog and replaces the client copy
+    private boolean snapshot;
+    private List<CardResponse> cards;
+    private List<Integer> deleted;
+
+    public static CardChangesResponse fromChanges(CardChanges changes) {
+        CardChangesResponse response = new CardChangesResponse();
+        response.setVersion(changes.getVersion());
+        response.setSnapshot(changes.isSnapshot());
+        response.setCards(CardResponse.fromCatalog(changes.getCatalog(), changes.getChanged()));
+        response.setDeleted(changes.getDeleted());
+        return response;
+    }
+
+    // Getters and Setters
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public boolean isSnapshot() { return snapshot; }
+    public void setSnapshot(boolean snapshot) { this.snapshot = snapshot; }
+
+    public List<CardResponse> getCards() { return cards; }
+    public void setCards(List<CardResponse> cards) { this.cards = cards; }
+
+    public List<Integer> getDeleted() { return deleted; }
+    public void setDeleted(List<Integer> deleted) { this.deleted = deleted; }
+}
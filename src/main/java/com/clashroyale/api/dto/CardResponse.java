@@ -1,6 +1,11 @@
 package com.clashroyale.api.dto;
 
 import com.clashroyale.api.model.Card;
+import com.clashroyale.api.service.catalog.CardCatalog;
+import com.clashroyale.api.service.catalog.PositionList;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class CardResponse {
 
@@ -27,6 +32,27 @@ public class CardResponse {
         return response;
     }
 
+    // same fields as fromEntity, read straight from the catalog columns (no Card object)
+    public static CardResponse fromCatalog(CardCatalog catalog, int position) {
+        CardResponse response = new CardResponse();
+        response.setId(catalog.id(position));
+        response.setName(catalog.name(position));
+        response.setType(catalog.type(position));
+        response.setRarity(catalog.rarity(position));
+        response.setElixirCost(catalog.elixirCost(position));
+        response.setLevel(catalog.level(position));
+        return response;
+    }
+
+    // all positions of the list, in its order
+    public static List<CardResponse> fromCatalog(CardCatalog catalog, PositionList positions) {
+        List<CardResponse> responses = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            responses.add(fromCatalog(catalog, positions.get(i)));
+        }
+        return responses;
+    }
+
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -0,0 +1,48 @@
+package com.clashroyale.api.dto;
+
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.service.events.ChangeEvent;
+
+import java.util.Locale;
+
+public class ChangeEventResponse {
+
+    private String entity;
+    private String action;
+    private int id;
+    // database version of the entity (cards: catalog version of the change), same as in the ETag
+    private long version;
+    // CardResponse or PlayerResponse, missing for deletes
+    private Object data;
+
+    public static ChangeEventResponse fromEvent(ChangeEvent event) {
+        ChangeEventResponse response = new ChangeEventResponse();
+        response.setEntity(event.getEntity().key());
+        response.setAction(event.getAction().name().toLowerCase(Locale.ROOT));
+        response.setId(event.getId());
+        response.setVersion(event.getVersion());
+        if (event.getData() instanceof Card card) {
+            response.setData(CardResponse.fromEntity(card));
+        } else if (event.getData() instanceof Player player) {
+            response.setData(PlayerResponse.fromEntity(player));
+        }
+        return response;
+    }
+
+    // Getters and Setters
+    public String getEntity() { return entity; }
+    public void setEntity(String entity) { this.entity = entity; }
+
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public Object getData() { return data; }
+    public void setData(Object data) { this.data = data; }
+}
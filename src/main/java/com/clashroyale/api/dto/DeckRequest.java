@@ -0,0 +1,32 @@
+package com.clashroyale.api.dto;
+
+import jakarta.validation.constraints.*;
+
+import java.util.List;
+
+public class DeckRequest {
+
+    // required on create, ignored on update
+    private Integer playerId;
+
+    @NotBlank(message = "Deck name is required")
+    @Size(max = 50, message = "Deck name can't be longer than 50 characters")
+    private String deckName;
+
+    @NotNull(message = "Card ids are required")
+    @Size(min = 8, max = 8, message = "Deck must have exactly 8 cards")
+    private List<Integer> cardIds;
+
+    // Constructors
+    public DeckRequest() {}
+
+    // Getters and Setters
+    public Integer getPlayerId() { return playerId; }
+    public void setPlayerId(Integer playerId) { this.playerId = playerId; }
+
+    public String getDeckName() { return deckName; }
+    public void setDeckName(String deckName) { this.deckName = deckName; }
+
+    public List<Integer> getCardIds() { return cardIds; }
+    public void setCardIds(List<Integer> cardIds) { this.cardIds = cardIds; }
+}
@@ -0,0 +1,43 @@
+package com.clashroyale.api.dto;
+
+import com.clashroyale.api.model.Deck;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class DeckResponse {
+
+    private int id;
+    private int playerId;
+    private String deckName;
+    private double averageElixirCost;
+    private List<CardResponse> cards;
+
+    public static DeckResponse fromEntity(Deck deck) {
+        DeckResponse response = new DeckResponse();
+        response.setId(deck.getId());
+        response.setPlayerId(deck.getPlayerId());
+        response.setDeckName(deck.getDeckName());
+        response.setAverageElixirCost(deck.getAverageElixirCost());
+        response.setCards(deck.getCards().stream()
+                .map(CardResponse::fromEntity)
+                .collect(Collectors.toList()));
+        return response;
+    }
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public int getPlayerId() { return playerId; }
+    public void setPlayerId(int playerId) { this.playerId = playerId; }
+
+    public String getDeckName() { return deckName; }
+    public void setDeckName(String deckName) { this.deckName = deckName; }
+
+    public double getAverageElixirCost() { return averageElixirCost; }
+    public void setAverageElixirCost(double averageElixirCost) { this.averageElixirCost = averageElixirCost; }
+
+    public List<CardResponse> getCards() { return cards; }
+    public void setCards(List<CardResponse> cards) { this.cards = cards; }
+}
@@ -0,0 +1,38 @@
+package com.clashroyale.api.dto;
+
+import com.clashroyale.api.service.leaderboard.LeaderboardEntry;
+
+public class LeaderboardEntryResponse {
+
+    private int rank;
+    private int id;
+    private String name;
+    private int level;
+    private int trophies;
+
+    public static LeaderboardEntryResponse fromEntry(LeaderboardEntry entry) {
+        LeaderboardEntryResponse response = new LeaderboardEntryResponse();
+        response.setRank(entry.getRank());
+        response.setId(entry.getPlayerId());
+        response.setName(entry.getName());
+        response.setLevel(entry.getLevel());
+        response.setTrophies(entry.getTrophies());
+        return response;
+    }
+
+    // Getters and Setters
+    public int getRank() { return rank; }
+    public void setRank(int rank) { this.rank = rank; }
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public int getLevel() { return level; }
+    public void setLevel(int level) { this.level = level; }
+
+    public int getTrophies() { return trophies; }
+    public void setTrophies(int trophies) { this.trophies = trophies; }
+}
@@ -0,0 +1,112 @@
+package com.clashroyale.api.dto;
+
+import com.clashroyale.api.cache.CacheStats;
+import com.clashroyale.api.metrics.LatencyHistogram;
+import com.clashroyale.api.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MetricsResponse {
+
+    private long uptimeSeconds;
+    private List<TimerResponse> timers;
+    private CacheStats cache;
+
+    public static MetricsResponse from(List<Timer> timers, long uptimeMillis, CacheStats cache) {
+        MetricsResponse response = new MetricsResponse();
+        response.setUptimeSeconds(uptimeMillis / 1000);
+        List<TimerResponse> list = new ArrayList<>(timers.size());
+        for (Timer timer : timers) {
+            list.add(TimerResponse.from(timer, uptimeMillis));
+        }
+        response.setTimers(list);
+        response.setCache(cache);
+        return response;
+    }
+
+    // Getters and Setters
+    public long getUptimeSeconds() { return uptimeSeconds; }
+    public void setUptimeSeconds(long uptimeSeconds) { this.uptimeSeconds = uptimeSeconds; }
+
+    public List<TimerResponse> getTimers() { return timers; }
+    public void setTimers(List<TimerResponse> timers) { this.timers = timers; }
+
+    public CacheStats getCache() { return cache; }
+    public void setCache(CacheStats cache) { this.cache = cache; }
+
+    //one route or method, latencies in milliseconds
+    public static class TimerResponse {
+        private String layer;
+        private String name;
+        private long count;
+        private long errors;
+        // average since startup
+        private double ratePerSecond;
+        private double meanMs;
+        private double p50Ms;
+        private double p90Ms;
+        private double p99Ms;
+        private double p999Ms;
+        private double maxMs;
+
+        public static TimerResponse from(Timer timer, long uptimeMillis) {
+            LatencyHistogram.Snapshot snapshot = timer.snapshot();
+            TimerResponse response = new TimerResponse();
+            response.setLayer(timer.getLayer());
+            response.setName(timer.getName());
+            response.setCount(snapshot.getCount());
+            response.setErrors(timer.getErrors());
+            response.setRatePerSecond(round(snapshot.getCount() * 1000.0 / Math.max(uptimeMillis, 1)));
+            response.setMeanMs(millis(snapshot.getMeanNanos()));
+            response.setP50Ms(millis(snapshot.valueAt(0.5)));
+            response.setP90Ms(millis(snapshot.valueAt(0.9)));
+            response.setP99Ms(millis(snapshot.valueAt(0.99)));
+            response.setP999Ms(millis(snapshot.valueAt(0.999)));
+            response.setMaxMs(millis(snapshot.getMaxNanos()));
+            return response;
+        }
+
+        // microsecond precision is all the histogram has
+        static double millis(double nanos) {
+            return round(nanos / 1_000_000.0);
+        }
+
+        static double round(double value) {
+            return Math.round(value * 1000) / 1000.0;
+        }
+
+        public String getLayer() { return layer; }
+        public void setLayer(String layer) { this.layer = layer; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        public long getErrors() { return errors; }
+        public void setErrors(long errors) { this.errors = errors; }
+
+        public double getRatePerSecond() { return ratePerSecond; }
+        public void setRatePerSecond(double ratePerSecond) { this.ratePerSecond = ratePerSecond; }
+
+        public double getMeanMs() { return meanMs; }
+        public void setMeanMs(double meanMs) { this.meanMs = meanMs; }
+
+        public double getP50Ms() { return p50Ms; }
+        public void setP50Ms(double p50Ms) { this.p50Ms = p50Ms; }
+
+        public double getP90Ms() { return p90Ms; }
+        public void setP90Ms(double p90Ms) { this.p90Ms = p90Ms; }
+
+        public double getP99Ms() { return p99Ms; }
+        public void setP99Ms(double p99Ms) { this.p99Ms = p99Ms; }
+
+        public double getP999Ms() { return p999Ms; }
+        public void setP999Ms(double p999Ms) { this.p999Ms = p999Ms; }
+
+        public double getMaxMs() { return maxMs; }
+        public void setMaxMs(double maxMs) { this.maxMs = maxMs; }
+    }
+}
@@ -0,0 +1,83 @@
+package com.clashroyale.api.dto;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Writes database rows as newline-delimited JSON (one object per line) straight from the ResultSet,
+ * without creating entities or response DTOs. Field names are given in column order,
+ * so the output uses the same names as CardResponse / PlayerResponse. Null columns are skipped.
+ */
+public class NdjsonRowWriter implements AutoCloseable {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    public static final String[] CARD_FIELDS = {
+            "id", "name", "type", "rarity", "elixirCost", "level", "damage", "hp", "radius", "lifetime"
+    };
+    public static final String[] PLAYER_FIELDS = {"id", "name", "level", "trophies"};
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final JsonGenerator generator;
+    private final String[] fieldNames;
+    private boolean[] numericColumns;
+
+    public NdjsonRowWriter(OutputStream out, String[] fieldNames) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(out);
+        this.generator.setRootValueSeparator(null);
+        this.fieldNames = fieldNames;
+    }
+
+    public void writeRow(ResultSet row) throws SQLException, IOException {
+        if (numericColumns == null) {
+            numericColumns = detectNumericColumns(row.getMetaData());
+        }
+
+        generator.writeStartObject();
+        for (int i = 0; i < fieldNames.length; i++) {
+            int column = i + 1;
+            if (numericColumns[i]) {
+                long value = row.getLong(column);
+                if (!row.wasNull()) {
+                    generator.writeNumberField(fieldNames[i], value);
+                }
+            } else {
+                String value = row.getString(column);
+                if (value != null) {
+                    generator.writeStringField(fieldNames[i], value);
+                }
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.flush();
+        generator.close();
+    }
+
+    private boolean[] detectNumericColumns(ResultSetMetaData meta) throws SQLException {
+        if (meta.getColumnCount() < fieldNames.length) {
+            throw new SQLException("Export query returned " + meta.getColumnCount()
+                    + " columns, expected " + fieldNames.length);
+        }
+        boolean[] numeric = new boolean[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            int type = meta.getColumnType(i + 1);
+            numeric[i] = type == Types.INTEGER || type == Types.BIGINT
+                    || type == Types.SMALLINT || type == Types.TINYINT;
+        }
+        return numeric;
+    }
+}
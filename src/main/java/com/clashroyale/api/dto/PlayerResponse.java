@@ -1,6 +1,7 @@
 package com.clashroyale.api.dto;
 
 import com.clashroyale.api.model.Player;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 public class PlayerResponse {
 
@@ -9,12 +10,19 @@ public class PlayerResponse {
     private int level;
     private int trophies;
 
+    // only present with ?expand=deck
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private DeckResponse deck;
+
     public static PlayerResponse fromEntity(Player player) {
         PlayerResponse response = new PlayerResponse();
         response.setId(player.getId());
         response.setName(player.getName());
         response.setLevel(player.getLevel());
         response.setTrophies(player.getTrophies());
+        if (player.getDeck() != null) {
+            response.setDeck(DeckResponse.fromEntity(player.getDeck()));
+        }
         return response;
     }
 
@@ -30,4 +38,7 @@ public class PlayerResponse {
 
     public int getTrophies() { return trophies; }
     public void setTrophies(int trophies) { this.trophies = trophies; }
-}
\ No newline at end of file
+
+    public DeckResponse getDeck() { return deck; }
+    public void setDeck(DeckResponse deck) { this.deck = deck; }
+}
@@ -0,0 +1,159 @@
+package com.clashroyale.api.dto;
+
+import com.clashroyale.api.metrics.LatencyHistogram;
+import com.clashroyale.api.metrics.PoolStats;
+import com.clashroyale.api.metrics.SlowQuery;
+import com.clashroyale.api.metrics.StatementStats;
+import com.clashroyale.api.metrics.Timer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.clashroyale.api.dto.MetricsResponse.TimerResponse.millis;
+
+public class SqlMetricsResponse {
+
+    // null until the pool has opened its first connection
+    private PoolStats pool;
+    // time spent waiting for a pooled connection, errors = timeouts
+    private MetricsResponse.TimerResponse connectionWait;
+    private long slowQueryThresholdMs;
+    private long slowQueryCount;
+    // most database time first
+    private List<StatementResponse> statements;
+    // newest first
+    private List<SlowQueryResponse> slowQueries;
+
+    public static SqlMetricsResponse from(PoolStats pool, Timer connectionWait, List<StatementStats> statements,
+                                          int limit, long uptimeMillis, long slowQueryThresholdMs,
+                                          long slowQueryCount, List<SlowQuery> slowQueries) {
+        SqlMetricsResponse response = new SqlMetricsResponse();
+        response.setPool(pool);
+        response.setConnectionWait(MetricsResponse.TimerResponse.from(connectionWait, uptimeMillis));
+        response.setSlowQueryThresholdMs(slowQueryThresholdMs);
+        response.setSlowQueryCount(slowQueryCount);
+
+        List<StatementResponse> list = new ArrayList<>(statements.size());
+        for (StatementStats stats : statements) {
+            list.add(StatementResponse.from(stats));
+        }
+        list.sort(Comparator.comparingDouble(StatementResponse::getTotalMs).reversed());
+        response.setStatements(list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list);
+
+        List<SlowQueryResponse> slow = new ArrayList<>(slowQueries.size());
+        for (SlowQuery query : slowQueries) {
+            slow.add(SlowQueryResponse.from(query));
+        }
+        response.setSlowQueries(slow);
+        return response;
+    }
+
+    // Getters and Setters
+    public PoolStats getPool() { return pool; }
+    public void setPool(PoolStats pool) { this.pool = pool; }
+
+    public MetricsResponse.TimerResponse getConnectionWait() { return connectionWait; }
+    public void setConnectionWait(MetricsResponse.TimerResponse connectionWait) { this.connectionWait = connectionWait; }
+
+    public long getSlowQueryThresholdMs() { return slowQueryThresholdMs; }
+    public void setSlowQueryThresholdMs(long slowQueryThresholdMs) { this.slowQueryThresholdMs = slowQueryThresholdMs; }
+
+    public long getSlowQueryCount() { return slowQueryCount; }
+    public void setSlowQueryCount(long slowQueryCount) { this.slowQueryCount = slowQueryCount; }
+
+    public List<StatementResponse> getStatements() { return statements; }
+    public void setStatements(List<StatementResponse> statements) { this.statements = statements; }
+
+    public List<SlowQueryResponse> getSlowQueries() { return slowQueries; }
+    public void setSlowQueries(List<SlowQueryResponse> slowQueries) { this.slowQueries = slowQueries; }
+
+    //one normalized statement, times in milliseconds
+    public static class StatementResponse {
+        private String sql;
+        private long count;
+        private long errors;
+        private long rows;
+        private double totalMs;
+        private double meanMs;
+        private double p99Ms;
+        private double maxMs;
+
+        static StatementResponse from(StatementStats stats) {
+            LatencyHistogram.Snapshot snapshot = stats.snapshot();
+            StatementResponse response = new StatementResponse();
+            response.setSql(stats.getSql());
+            response.setCount(snapshot.getCount());
+            response.setErrors(stats.getErrors());
+            response.setRows(stats.getRows());
+            response.setTotalMs(millis(snapshot.getTotalNanos()));
+            response.setMeanMs(millis(snapshot.getMeanNanos()));
+            response.setP99Ms(millis(snapshot.valueAt(0.99)));
+            response.setMaxMs(millis(snapshot.getMaxNanos()));
+            return response;
+        }
+
+        public String getSql() { return sql; }
+        public void setSql(String sql) { this.sql = sql; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        public long getErrors() { return errors; }
+        public void setErrors(long errors) { this.errors = errors; }
+
+        public long getRows() { return rows; }
+        public void setRows(long rows) { this.rows = rows; }
+
+        public double getTotalMs() { return totalMs; }
+        public void setTotalMs(double totalMs) { this.totalMs = totalMs; }
+
+        public double getMeanMs() { return meanMs; }
+        public void setMeanMs(double meanMs) { this.meanMs = meanMs; }
+
+        public double getP99Ms() { return p99Ms; }
+        public void setP99Ms(double p99Ms) { this.p99Ms = p99Ms; }
+
+        public double getMaxMs() { return maxMs; }
+        public void setMaxMs(double maxMs) { this.maxMs = maxMs; }
+    }
+
+    public static class SlowQueryResponse {
+        private String time;
+        private String sql;
+        private List<String> parameters;
+        private Integer batchSize;
+        private double durationMs;
+        private Boolean failed;
+
+        static SlowQueryResponse from(SlowQuery query) {
+            SlowQueryResponse response = new SlowQueryResponse();
+            response.setTime(Instant.ofEpochMilli(query.getTimestamp()).toString());
+            response.setSql(query.getSql());
+            response.setParameters(query.getParameters());
+            response.setBatchSize(query.getBatchSize() > 1 ? query.getBatchSize() : null);
+            response.setDurationMs(millis(query.getDurationNanos()));
+            response.setFailed(query.isFailed() ? Boolean.TRUE : null);
+            return response;
+        }
+
+        public String getTime() { return time; }
+        public void setTime(String time) { this.time = time; }
+
+        public String getSql() { return sql; }
+        public void setSql(String sql) { this.sql = sql; }
+
+        public List<String> getParameters() { return parameters; }
+        public void setParameters(List<String> parameters) { this.parameters = parameters; }
+
+        public Integer getBatchSize() { return batchSize; }
+        public void setBatchSize(Integer batchSize) { this.batchSize = batchSize; }
+
+        public double getDurationMs() { return durationMs; }
+        public void setDurationMs(double durationMs) { this.durationMs = durationMs; }
+
+        public Boolean getFailed() { return failed; }
+        public void setFailed(Boolean failed) { this.failed = failed; }
+    }
+}
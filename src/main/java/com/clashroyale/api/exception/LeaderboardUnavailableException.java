@@ -0,0 +1,27 @@
+package com.clashroyale.api.exception;
+
+//leaderboard can't answer: still loading (HTTP 503 with Retry-After) or turned off (HTTP 404)
+public class LeaderboardUnavailableException extends Exception {
+    private final long retryAfterSeconds;
+
+    private LeaderboardUnavailableException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public static LeaderboardUnavailableException loading(long retryAfterSeconds) {
+        return new LeaderboardUnavailableException("Leaderboard is not loaded yet", Math.max(1, retryAfterSeconds));
+    }
+
+    public static LeaderboardUnavailableException disabled() {
+        return new LeaderboardUnavailableException("Leaderboard is disabled", 0);
+    }
+
+    public boolean isDisabled() {
+        return retryAfterSeconds == 0;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
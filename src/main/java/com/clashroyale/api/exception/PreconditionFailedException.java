@@ -0,0 +1,8 @@
+package com.clashroyale.api.exception;
+
+//If-Match didn't match the current version of the entity (HTTP 412)
+public class PreconditionFailedException extends Exception {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
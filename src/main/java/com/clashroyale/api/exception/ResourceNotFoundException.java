@@ -4,4 +4,14 @@ public class ResourceNotFoundException extends Exception{
     public ResourceNotFoundException(String message) {
         super(message);
     }
+
+    //without stack trace: for lookups that are expected to miss often (ids known not to exist),
+    //where filling the stack trace would cost more than answering
+    public static ResourceNotFoundException withoutStackTrace(String message) {
+        return new ResourceNotFoundException(message, false);
+    }
+
+    private ResourceNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
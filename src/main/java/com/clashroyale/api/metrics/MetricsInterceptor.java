@@ -0,0 +1,41 @@
+package com.clashroyale.api.metrics;
+
+import com.clashroyale.api.patterns.singleton.MetricsRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times every request per route ("GET /api/cards/{id}", the mapping pattern, not the raw URL,
+ * so ids don't create a timer each). Requests that end with status 5xx or an exception count as errors.
+ * Streaming responses are timed until the stream is finished.
+ */
+public class MetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = MetricsInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async dispatches run the interceptors again, keep the time of the first one
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long startNanos)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = request.getMethod() + " " + (pattern != null ? pattern : "unmapped");
+        boolean failed = ex != null || response.getStatus() >= 500;
+        registry.timer("http", route).record(System.nanoTime() - startNanos, failed);
+    }
+}
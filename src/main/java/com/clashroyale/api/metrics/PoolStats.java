@@ -0,0 +1,26 @@
+package com.clashroyale.api.metrics;
+
+//connection pool gauges at one moment
+public class PoolStats {
+
+    private final int active;
+    private final int idle;
+    // threads waiting for a connection right now
+    private final int pending;
+    private final int total;
+    private final int maximum;
+
+    public PoolStats(int active, int idle, int pending, int total, int maximum) {
+        this.active = active;
+        this.idle = idle;
+        this.pending = pending;
+        this.total = total;
+        this.maximum = maximum;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getPending() { return pending; }
+    public int getTotal() { return total; }
+    public int getMaximum() { return maximum; }
+}
@@ -0,0 +1,372 @@
+package com.clashroyale.api.metrics;
+
+import com.clashroyale.api.patterns.singleton.SqlProfiler;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * DataSource decorator that profiles every statement run through it (see SqlProfiler):
+ * - getConnection() time = wait for a free pooled connection
+ * - execute*() time, errors and rows (rows read from the ResultSet, update counts) per normalized statement
+ * - statements slower than the threshold go to the slow query log with their bind parameters
+ *
+ * Connections, statements and result sets are JDK proxies over the pool's objects. Bind parameters are only
+ * kept as references while the statement is open and turned into strings when it turns out to be slow.
+ */
+public class ProfilingDataSource implements DataSource, AutoCloseable {
+
+    private static final int MAX_PARAMETER_LENGTH = 200;
+
+    private final DataSource delegate;
+    private final SqlProfiler profiler = SqlProfiler.getInstance();
+
+    public ProfilingDataSource(DataSource delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = delegate.getConnection();
+            profiler.getConnectionWait().record(System.nanoTime() - start, false);
+            return wrap(connection);
+        } catch (SQLException e) {
+            // pool exhausted (timeout) or database down
+            profiler.getConnectionWait().record(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(delegate.getConnection(username, password));
+    }
+
+    // the pool is closed with the application context
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        if (iface.isInstance(delegate)) {
+            return iface.cast(delegate);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // proxies are equal only to themselves, like the objects they stand for
+    private static Object objectMethod(Object proxy, Object target, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> "Profiled" + target;
+        };
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, target, method, args);
+            }
+            String name = method.getName();
+            Object result = ProfilingDataSource.invoke(target, method, args);
+            if (name.equals("prepareStatement") || name.equals("prepareCall")) {
+                String sql = (String) args[0];
+                return wrapStatement(method.getReturnType(), (Statement) result, (Connection) proxy, sql);
+            }
+            if (name.equals("createStatement")) {
+                return wrapStatement(Statement.class, (Statement) result, (Connection) proxy, null);
+            }
+            return result;
+        }
+
+        private Object wrapStatement(Class<?> type, Statement statement, Connection connection, String sql) {
+            return Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, connection, sql));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        // null for a plain Statement, the SQL is then passed to execute*()
+        private final String sql;
+        private final StatementStats stats;
+
+        private Object[] parameters;
+        private int batchSize;
+        private Object[] firstBatchParameters;
+        private StatementStats lastStats;
+        private ResultSetHandler openResultSet;
+
+        StatementHandler(Statement target, Connection connection, String sql) {
+            this.target = target;
+            this.connection = connection;
+            this.sql = sql;
+            this.stats = sql != null ? profiler.statement(sql) : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, target, method, args);
+            }
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                recordParameter(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters = null;
+            } else if (name.equals("addBatch")) {
+                if (batchSize++ == 0 && parameters != null) {
+                    firstBatchParameters = parameters.clone();
+                }
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+                firstBatchParameters = null;
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else if (name.equals("close")) {
+                flushRows();
+            }
+
+            Object result = ProfilingDataSource.invoke(target, method, args);
+            if (name.equals("getResultSet") && result != null && lastStats != null) {
+                return wrapResultSet((ResultSet) result, proxy, lastStats);
+            }
+            return result;
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+            if (executedSql == null) {
+                // executeBatch() of a plain Statement, several SQL strings
+                executedSql = "(batch)";
+            }
+            StatementStats executed = executedSql == sql ? stats : profiler.statement(executedSql);
+            lastStats = executed;
+            flushRows();
+
+            RequestTrace trace = RequestTrace.current();
+            long start = System.nanoTime();
+            int span = trace.enter(RequestTrace.Layer.DB, executed.getSql(), start);
+            boolean failed = true;
+            Object result = null;
+            try {
+                result = ProfilingDataSource.invoke(target, method, args);
+                failed = false;
+            } finally {
+                long end = System.nanoTime();
+                long elapsed = end - start;
+                executed.record(elapsed, failed);
+                trace.exit(RequestTrace.Layer.DB, span, end);
+                if (profiler.isSlow(elapsed)) {
+                    recordSlow(executedSql, elapsed, failed);
+                }
+                if (method.getName().contains("Batch")) {
+                    batchSize = 0;
+                    firstBatchParameters = null;
+                }
+            }
+
+            if (result instanceof ResultSet resultSet) {
+                return wrapResultSet(resultSet, proxy, executed);
+            }
+            if (Boolean.FALSE.equals(result)) {
+                // execute() without a result set: rows changed
+                executed.addRows(target.getUpdateCount());
+            } else {
+                executed.addRows(updateCount(result));
+            }
+            return result;
+        }
+
+        private void recordParameter(int index, Object value) {
+            if (parameters == null) {
+                parameters = new Object[Math.max(index, 8)];
+            } else if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+        }
+
+        private void recordSlow(String executedSql, long elapsed, boolean failed) {
+            Object[] values = batchSize > 0 ? firstBatchParameters : parameters;
+            List<String> captured = null;
+            if (profiler.isCaptureParameters() && values != null) {
+                captured = new ArrayList<>(values.length);
+                int last = values.length;
+                while (last > 0 && values[last - 1] == null) {
+                    last--;
+                }
+                for (int i = 0; i < last; i++) {
+                    captured.add(describe(values[i]));
+                }
+            }
+            profiler.recordSlow(new SlowQuery(System.currentTimeMillis(), executedSql, captured,
+                    Math.max(batchSize, 1), elapsed, failed));
+        }
+
+        private Object wrapResultSet(ResultSet resultSet, Object statement, StatementStats owner) {
+            flushRows();
+            openResultSet = new ResultSetHandler(resultSet, statement, owner);
+            return Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    openResultSet);
+        }
+
+        // closing the statement closes its result set without a call to the proxy
+        private void flushRows() {
+            if (openResultSet != null) {
+                openResultSet.flush();
+                openResultSet = null;
+            }
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Object statement;
+        private final StatementStats stats;
+        // counted here and added to the stats once, not on every next()
+        private long rows;
+
+        ResultSetHandler(ResultSet target, Object statement, StatementStats stats) {
+            this.target = target;
+            this.statement = statement;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, target, method, args);
+            }
+            switch (method.getName()) {
+                case "next" -> {
+                    boolean hasRow = target.next();
+                    if (hasRow) {
+                        rows++;
+                    }
+                    return hasRow;
+                }
+                case "getStatement" -> {
+                    return statement;
+                }
+                case "close" -> flush();
+                default -> {
+                }
+            }
+            return ProfilingDataSource.invoke(target, method, args);
+        }
+
+        void flush() {
+            stats.addRows(rows);
+            rows = 0;
+        }
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof Long count) {
+            return count;
+        }
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    private static String describe(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        String text = value instanceof java.sql.Array ? "ARRAY " + value : String.valueOf(value);
+        return text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text;
+    }
+}
@@ -0,0 +1,32 @@
+package com.clashroyale.api.metrics;
+
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import com.clashroyale.api.patterns.singleton.SqlProfiler;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the DataSource bean with a ProfilingDataSource around it, so the repositories, the
+ * transaction manager and the invalidation bus all get profiled connections without knowing.
+ * Runs after initialization: the pool is already configured from spring.datasource.hikari.*.
+ */
+@Component
+@ConditionalOnProperty(name = "cardbattle.sql.profiling.enabled", havingValue = "true", matchIfMissing = true)
+public class ProfilingDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ProfilingDataSource) {
+            return bean;
+        }
+        if (bean instanceof HikariDataSource hikari) {
+            SqlProfiler.getInstance().setPool(hikari);
+        }
+        LoggerService.getInstance().info("SQL profiling enabled on DataSource {}", beanName);
+        return new ProfilingDataSource(dataSource);
+    }
+}
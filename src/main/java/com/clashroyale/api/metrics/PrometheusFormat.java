@@ -0,0 +1,102 @@
+package com.clashroyale.api.metrics;
+
+import com.clashroyale.api.cache.CacheStats;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prometheus text exposition format (version 0.0.4). Latencies are a summary per timer:
+ * quantiles from the histogram, _sum and _count, all in seconds.
+ */
+public final class PrometheusFormat {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private PrometheusFormat() {
+    }
+
+    //pool is null until the pool has opened its first connection
+    public static String write(List<Timer> timers, CacheStats cache, List<StatementStats> statements, PoolStats pool) {
+        StringBuilder out = new StringBuilder(256 + (timers.size() + statements.size()) * 600);
+
+        out.append("# HELP cardbattle_latency_seconds Latency per route (layer http) and per method.\n");
+        out.append("# TYPE cardbattle_latency_seconds summary\n");
+        for (Timer timer : timers) {
+            LatencyHistogram.Snapshot snapshot = timer.snapshot();
+            String labels = "layer=\"" + escape(timer.getLayer()) + "\",name=\"" + escape(timer.getName()) + "\"";
+            for (double quantile : QUANTILES) {
+                out.append("cardbattle_latency_seconds{").append(labels)
+                        .append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(snapshot.valueAt(quantile))).append('\n');
+            }
+            out.append("cardbattle_latency_seconds_sum{").append(labels).append("} ")
+                    .append(seconds(snapshot.getTotalNanos())).append('\n');
+            out.append("cardbattle_latency_seconds_count{").append(labels).append("} ")
+                    .append(snapshot.getCount()).append('\n');
+        }
+
+        out.append("# HELP cardbattle_errors_total Failed calls (exception or status 5xx).\n");
+        out.append("# TYPE cardbattle_errors_total counter\n");
+        for (Timer timer : timers) {
+            out.append("cardbattle_errors_total{layer=\"").append(escape(timer.getLayer()))
+                    .append("\",name=\"").append(escape(timer.getName())).append("\"} ")
+                    .append(timer.getErrors()).append('\n');
+        }
+
+        counter(out, "cardbattle_cache_hits_total", "CacheService hits.", cache.getHits());
+        counter(out, "cardbattle_cache_misses_total", "CacheService misses.", cache.getMisses());
+        counter(out, "cardbattle_cache_evictions_total", "CacheService evictions.", cache.getEvictions());
+        gauge(out, "cardbattle_cache_weight", "CacheService weight (stored elements).", cache.getWeight());
+
+        out.append("# HELP cardbattle_sql_seconds Execution time per normalized SQL statement.\n");
+        out.append("# TYPE cardbattle_sql_seconds summary\n");
+        for (StatementStats stats : statements) {
+            LatencyHistogram.Snapshot snapshot = stats.snapshot();
+            String labels = "sql=\"" + escape(stats.getSql()) + "\"";
+            out.append("cardbattle_sql_seconds{").append(labels).append(",quantile=\"0.99\"} ")
+                    .append(seconds(snapshot.valueAt(0.99))).append('\n');
+            out.append("cardbattle_sql_seconds_sum{").append(labels).append("} ")
+                    .append(seconds(snapshot.getTotalNanos())).append('\n');
+            out.append("cardbattle_sql_seconds_count{").append(labels).append("} ")
+                    .append(snapshot.getCount()).append('\n');
+        }
+        out.append("# HELP cardbattle_sql_rows_total Rows read or changed per normalized SQL statement.\n");
+        out.append("# TYPE cardbattle_sql_rows_total counter\n");
+        for (StatementStats stats : statements) {
+            out.append("cardbattle_sql_rows_total{sql=\"").append(escape(stats.getSql())).append("\"} ")
+                    .append(stats.getRows()).append('\n');
+        }
+
+        if (pool != null) {
+            gauge(out, "cardbattle_db_pool_active", "Connections in use.", pool.getActive());
+            gauge(out, "cardbattle_db_pool_idle", "Idle connections.", pool.getIdle());
+            gauge(out, "cardbattle_db_pool_pending", "Threads waiting for a connection.", pool.getPending());
+            gauge(out, "cardbattle_db_pool_max", "Maximum pool size.", pool.getMaximum());
+        }
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(double nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000.0);
+    }
+
+    // label values: backslash, double quote and line feed are escaped
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,205 @@
+package com.clashroyale.api.metrics;
+
+/**
+ * Spans of the request the current thread is serving, for the Server-Timing header and the sampled
+ * trace log. Every thread has one instance with fixed arrays that is reused for all its requests,
+ * recording a span allocates nothing.
+ *
+ * Per layer only the outermost call is timed (CachingPlayerRepository -> PlayerRepository is one
+ * repository call), so the layer durations are inclusive: service contains cache and repository,
+ * repository contains db. The full list of spans is only kept for sampled requests.
+ *
+ * Outside of a request (scheduled jobs, other threads) enter() and exit() do nothing.
+ */
+public final class RequestTrace {
+
+    public enum Layer {
+        CONTROLLER("controller", true),
+        SERVICE("service", true),
+        CACHE("cache", true),
+        REPOSITORY("repository", true),
+        DB("db", true),
+        SERIALIZE("serialize", true),
+        // too many and too short to list, only summed up
+        LOG("log", false);
+
+        private final String metric;
+        private final boolean listed;
+
+        Layer(String metric, boolean listed) {
+            this.metric = metric;
+            this.listed = listed;
+        }
+    }
+
+    public static final int NOT_TRACED = -1;
+
+    private static final Layer[] LAYERS = Layer.values();
+    private static final int MAX_SPANS = 128;
+    private static final ThreadLocal<RequestTrace> CURRENT = ThreadLocal.withInitial(RequestTrace::new);
+
+    private boolean active;
+    private boolean sampled;
+    private long startNanos;
+
+    // per layer: open calls, start of the outermost one, total time, number of outermost calls
+    private final int[] depth = new int[LAYERS.length];
+    private final long[] enteredAt = new long[LAYERS.length];
+    private final long[] totalNanos = new long[LAYERS.length];
+    private final int[] calls = new int[LAYERS.length];
+
+    // span list, sampled requests only
+    private final Layer[] spanLayers = new Layer[MAX_SPANS];
+    private final String[] spanNames = new String[MAX_SPANS];
+    private final long[] spanStarts = new long[MAX_SPANS];
+    private final long[] spanDurations = new long[MAX_SPANS];
+    private final int[] spanDepths = new int[MAX_SPANS];
+    private int spanCount;
+    private int openSpans;
+    private int droppedSpans;
+
+    private final StringBuilder text = new StringBuilder(256);
+
+    private RequestTrace() {
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    public void begin(boolean sampled) {
+        for (int i = 0; i < LAYERS.length; i++) {
+            depth[i] = 0;
+            totalNanos[i] = 0;
+            calls[i] = 0;
+        }
+        for (int i = 0; i < spanCount; i++) {
+            spanNames[i] = null;
+        }
+        spanCount = 0;
+        openSpans = 0;
+        droppedSpans = 0;
+        this.sampled = sampled;
+        this.startNanos = System.nanoTime();
+        this.active = true;
+    }
+
+    public void end() {
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    //returns the span to pass to exit(), name is only used for sampled requests
+    public int enter(Layer layer, String name, long nowNanos) {
+        if (!active) {
+            return NOT_TRACED;
+        }
+        int l = layer.ordinal();
+        if (depth[l]++ == 0) {
+            enteredAt[l] = nowNanos;
+        }
+        if (!sampled || !layer.listed) {
+            return NOT_TRACED;
+        }
+        if (spanCount == MAX_SPANS) {
+            droppedSpans++;
+            return NOT_TRACED;
+        }
+        int span = spanCount++;
+        spanLayers[span] = layer;
+        spanNames[span] = name;
+        spanStarts[span] = nowNanos;
+        spanDurations[span] = -1;
+        spanDepths[span] = openSpans++;
+        return span;
+    }
+
+    public void exit(Layer layer, int span, long nowNanos) {
+        if (!active) {
+            return;
+        }
+        int l = layer.ordinal();
+        if (depth[l] > 0 && --depth[l] == 0) {
+            totalNanos[l] += nowNanos - enteredAt[l];
+            calls[l]++;
+        }
+        if (span != NOT_TRACED) {
+            spanDurations[span] = nowNanos - spanStarts[span];
+            openSpans--;
+        }
+    }
+
+    //value of the Server-Timing header: every layer that was used and the total so far, in ms
+    public String serverTiming(long nowNanos) {
+        text.setLength(0);
+        for (int i = 0; i < LAYERS.length; i++) {
+            if (calls[i] == 0) {
+                continue;
+            }
+            text.append(LAYERS[i].metric).append(";dur=");
+            appendMillis(text, totalNanos[i]);
+            if (calls[i] > 1) {
+                text.append(";desc=\"").append(calls[i]).append(" calls\"");
+            }
+            text.append(", ");
+        }
+        text.append("total;dur=");
+        appendMillis(text, nowNanos - startNanos);
+        return text.toString();
+    }
+
+    //one line per span, indented by nesting: "+0.120ms 1.530ms service CardService.getCardById"
+    public String describe(String request, long nowNanos) {
+        text.setLength(0);
+        text.append("Trace ").append(request).append(' ');
+        appendMillis(text, nowNanos - startNanos);
+        text.append(" ms");
+        for (int i = 0; i < spanCount; i++) {
+            text.append("\n  ");
+            for (int d = 0; d < spanDepths[i]; d++) {
+                text.append("  ");
+            }
+            text.append('+');
+            appendMillis(text, spanStarts[i] - startNanos);
+            text.append("ms ");
+            if (spanDurations[i] < 0) {
+                text.append("(open)");
+            } else {
+                appendMillis(text, spanDurations[i]);
+                text.append("ms");
+            }
+            text.append(' ').append(spanLayers[i].metric).append(' ').append(spanNames[i]);
+        }
+        if (droppedSpans > 0) {
+            text.append("\n  (").append(droppedSpans).append(" more spans)");
+        }
+        int log = Layer.LOG.ordinal();
+        if (calls[log] > 0) {
+            text.append("\n  log: ").append(calls[log]).append(" calls ");
+            appendMillis(text, totalNanos[log]);
+            text.append("ms");
+        }
+        return text.toString();
+    }
+
+    // "12.345", without String.format
+    private static void appendMillis(StringBuilder out, long nanos) {
+        long micros = Math.max(nanos, 0) / 1000;
+        long fraction = micros % 1000;
+        out.append(micros / 1000).append('.');
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,32 @@
+package com.clashroyale.api.metrics;
+
+import java.util.List;
+
+//one statement that ran longer than the slow query threshold, with its bind parameters
+public class SlowQuery {
+
+    private final long timestamp;
+    private final String sql;
+    private final List<String> parameters;
+    // > 1 for executeBatch, parameters are those of the first row
+    private final int batchSize;
+    private final long durationNanos;
+    private final boolean failed;
+
+    public SlowQuery(long timestamp, String sql, List<String> parameters, int batchSize,
+                     long durationNanos, boolean failed) {
+        this.timestamp = timestamp;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.batchSize = batchSize;
+        this.durationNanos = durationNanos;
+        this.failed = failed;
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public String getSql() { return sql; }
+    public List<String> getParameters() { return parameters; }
+    public int getBatchSize() { return batchSize; }
+    public long getDurationNanos() { return durationNanos; }
+    public boolean isFailed() { return failed; }
+}
@@ -0,0 +1,70 @@
+package com.clashroyale.api.metrics;
+
+import java.util.regex.Pattern;
+
+/**
+ * Turns a SQL string into the shape its statistics are kept under: literals become ?, whitespace is
+ * collapsed and IN lists / multi-row VALUES are folded, so "... WHERE id IN (1, 2, 3)" and
+ * "... WHERE id IN (4, 5)" count as one statement.
+ */
+public final class SqlNormalizer {
+
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN \\(\\?(, \\?)+\\)");
+    private static final Pattern VALUES_ROWS = Pattern.compile("(?i)(\\bVALUES \\([^()]*\\))(, \\([^()]*\\))+");
+
+    private SqlNormalizer() {
+    }
+
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                // string literal, '' is an escaped quote
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+            } else if (Character.isDigit(c) && !partOfIdentifier(out)) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (out.length() > 0 && i < length) {
+                    out.append(' ');
+                }
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+
+        String normalized = out.toString().replace(",?", ", ?").replace("( ", "(").replace(" )", ")");
+        normalized = IN_LIST.matcher(normalized).replaceAll("IN (?...)");
+        return VALUES_ROWS.matcher(normalized).replaceAll("$1, ...");
+    }
+
+    // "card2" or "$1": the digit belongs to the word before it
+    private static boolean partOfIdentifier(StringBuilder out) {
+        if (out.length() == 0) {
+            return false;
+        }
+        char previous = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+}
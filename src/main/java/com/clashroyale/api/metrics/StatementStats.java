@@ -0,0 +1,38 @@
+package com.clashroyale.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//execution time, errors and rows of one normalized SQL statement
+public class StatementStats {
+
+    private final String sql;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    // rows read from result sets + rows changed by updates
+    private final LongAdder rows = new LongAdder();
+
+    public StatementStats(String sql) {
+        this.sql = sql;
+    }
+
+    public void record(long nanos, boolean failed) {
+        histogram.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public void addRows(long count) {
+        if (count > 0) {
+            rows.add(count);
+        }
+    }
+
+    public String getSql() { return sql; }
+    public long getErrors() { return errors.sum(); }
+    public long getRows() { return rows.sum(); }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return histogram.snapshot();
+    }
+}
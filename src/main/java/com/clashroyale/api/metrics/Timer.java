@@ -0,0 +1,32 @@
+package com.clashroyale.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//latency histogram + error counter of one operation (a route, a service method, a cache call)
+public class Timer {
+
+    private final String layer;
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    public Timer(String layer, String name) {
+        this.layer = layer;
+        this.name = name;
+    }
+
+    public void record(long nanos, boolean failed) {
+        histogram.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public String getLayer() { return layer; }
+    public String getName() { return name; }
+    public long getErrors() { return errors.sum(); }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return histogram.snapshot();
+    }
+}
@@ -0,0 +1,44 @@
+package com.clashroyale.api.model;
+
+/**
+ * Outcome of a bulk import, one slot per input row (same order as the input).
+ * id is 0 for rows that were not created, error explains why.
+ */
+public class BulkImportResult {
+
+    private final int[] ids;
+    private final String[] errors;
+
+    public BulkImportResult(int size) {
+        this.ids = new int[size];
+        this.errors = new String[size];
+    }
+
+    public void reject(int index, String message) {
+        ids[index] = 0;
+        errors[index] = message;
+    }
+
+    public void created(int index, int id) {
+        ids[index] = id;
+        errors[index] = null;
+    }
+
+    public boolean isRejected(int index) {
+        return errors[index] != null;
+    }
+
+    public int size() { return ids.length; }
+    public int getId(int index) { return ids[index]; }
+    public String getError(int index) { return errors[index]; }
+
+    public int getCreatedCount() {
+        int created = 0;
+        for (int id : ids) {
+            if (id != 0) {
+                created++;
+            }
+        }
+        return created;
+    }
+}
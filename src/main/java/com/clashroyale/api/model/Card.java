@@ -2,6 +2,8 @@ package com.clashroyale.api.model;
 import com.clashroyale.api.exception.InvalidInputException;
 
 public abstract class Card extends GameEntity implements Upgradable, Printable {
+    public static final int MAX_LEVEL = 16;
+
     protected String rarity;
     protected int elixirCost;
     protected int level;
@@ -35,7 +37,7 @@ public abstract class Card extends GameEntity implements Upgradable, Printable {
 
     @Override
     public boolean canUpgrade() {
-        return level < 16;
+        return level < MAX_LEVEL;
     }
 
     @Override
@@ -7,6 +7,7 @@ import java.util.List;
 
 public class Deck {
     private int id;
+    private int playerId;
     private String deckName;
     private List<Card> cards;
 
@@ -50,6 +51,8 @@ public class Deck {
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
+    public int getPlayerId() { return playerId; }
+    public void setPlayerId(int playerId) { this.playerId = playerId; }
     public String getDeckName() { return deckName; }
     public void setDeckName(String deckName) { this.deckName = deckName; }
     public List<Card> getCards() { return new ArrayList<>(cards); }
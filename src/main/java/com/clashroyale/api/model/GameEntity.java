@@ -3,6 +3,8 @@ package com.clashroyale.api.model;
 public abstract class GameEntity implements Validatable {
     protected int id;
     protected String name;
+    //version of the stored row (ETag, If-Match), 0 if the object is not a stored state
+    protected long version;
 
     //конструктор - метод для того чтобы задать начальные значения полям
     public GameEntity(int id, String name) {
@@ -18,8 +20,10 @@ public abstract class GameEntity implements Validatable {
     //getteri - метод для получения инф
     public int getId() { return id; }
     public String getName() { return name; }
+    public long getVersion() { return version; }
 
     //setteri - метод для задания значений
     public void setId(int id) { this.id = id; }
     public void setName (String name) { this.name = name; }
+    public void setVersion(long version) { this.version = version; }
 }
@@ -14,6 +14,7 @@ import java.util.List;
 public class DeckBuilder {
 
     private int id = 0;
+    private int playerId = 0;
     private String deckName;
     private List<Card> cards = new ArrayList<>();
 
@@ -24,6 +25,11 @@ public class DeckBuilder {
         return this;
     }
 
+    public DeckBuilder playerId(int playerId) {
+        this.playerId = playerId;
+        return this;
+    }
+
     public DeckBuilder name(String deckName) {
         this.deckName = deckName;
         return this;
@@ -51,6 +57,7 @@ public class DeckBuilder {
         }
 
         Deck deck = new Deck(id, deckName);
+        deck.setPlayerId(playerId);
         for (Card card : cards) {
             deck.addCard(card);
         }
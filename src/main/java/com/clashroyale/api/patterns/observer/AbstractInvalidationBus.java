@@ -0,0 +1,98 @@
+package com.clashroyale.api.patterns.observer;
+
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalescing part of every bus: publish() only adds the key to a set, every coalesce interval the
+ * set is sent as one message. A burst of writes to the same key (bulk import, many upgrades) costs
+ * one message and one reload on the other instances, not one per write.
+ */
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    protected final LoggerService logger = LoggerService.getInstance();
+    // messages carry the sender, so an instance can skip its own
+    protected final String nodeId = UUID.randomUUID().toString();
+
+    private final long coalesceMs;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService flusher;
+
+    protected AbstractInvalidationBus(long coalesceMs) {
+        this.coalesceMs = Math.max(coalesceMs, 1);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-bus-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, coalesceMs, coalesceMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public void publish(String key) {
+        pending.add(key);
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    //sends one batch of keys to the other instances
+    protected abstract void send(Set<String> keys) throws Exception;
+
+    //called by implementations with keys received from another instance
+    protected void deliver(Set<String> keys) {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidation(keys);
+            } catch (RuntimeException e) {
+                logger.error("Invalidation listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        for (String key : pending) {
+            pending.remove(key);
+            keys.add(key);
+        }
+        try {
+            send(keys);
+        } catch (Exception e) {
+            // the other instances stay stale until their entries expire or refresh
+            logger.error("Failed to send cache invalidation {}: {}", keys, e.getMessage());
+        }
+    }
+}
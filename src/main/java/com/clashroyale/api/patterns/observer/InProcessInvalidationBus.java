@@ -0,0 +1,43 @@
+package com.clashroyale.api.patterns.observer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//bus between instances in the same JVM (single instance, or several application contexts in one test).
+//with only one instance nothing is ever delivered
+@Component
+@ConditionalOnProperty(name = "cardbattle.cache.invalidation.bus", havingValue = "in-process", matchIfMissing = true)
+public class InProcessInvalidationBus extends AbstractInvalidationBus {
+
+    private static final List<InProcessInvalidationBus> NODES = new CopyOnWriteArrayList<>();
+
+    public InProcessInvalidationBus(@Value("${cardbattle.cache.invalidation.coalesce-ms:50}") long coalesceMs) {
+        super(coalesceMs);
+    }
+
+    @Override
+    public void start() {
+        NODES.add(this);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        NODES.remove(this);
+    }
+
+    @Override
+    protected void send(Set<String> keys) {
+        for (InProcessInvalidationBus node : NODES) {
+            if (node != this) {
+                node.deliver(Set.copyOf(keys));
+            }
+        }
+    }
+}
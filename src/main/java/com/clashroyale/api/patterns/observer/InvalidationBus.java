@@ -0,0 +1,14 @@
+package com.clashroyale.api.patterns.observer;
+
+//observer pattern - tells the other instances of the API which cache keys are stale.
+//an instance never gets its own messages back, it already updated its own cache
+public interface InvalidationBus {
+
+    //"everything may be stale", sent to listeners when the bus may have missed messages
+    String ALL = "*";
+
+    //the key was changed here, other instances drop it. doesn't block, keys are sent in batches
+    void publish(String key);
+
+    void subscribe(InvalidationListener listener);
+}
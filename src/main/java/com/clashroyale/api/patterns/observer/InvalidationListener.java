@@ -0,0 +1,11 @@
+package com.clashroyale.api.patterns.observer;
+
+import java.util.Set;
+
+//observer pattern - gets cache keys that another instance changed
+@FunctionalInterface
+public interface InvalidationListener {
+
+    //keys may contain InvalidationBus.ALL: anything may have changed (messages were lost)
+    void onInvalidation(Set<String> keys);
+}
@@ -0,0 +1,164 @@
+package com.clashroyale.api.patterns.observer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bus between instances that share the database, on PostgreSQL LISTEN/NOTIFY.
+ *
+ * Sending is one "SELECT pg_notify(channel, payload)" on a pooled connection. Listening needs a
+ * connection of its own for the whole lifetime of the application, so it is opened with
+ * DriverManager outside of the pool. The payload is the sender id and one key per line.
+ *
+ * If the listening connection breaks, notifications sent meanwhile are lost: after reconnecting
+ * the listeners get ALL and drop everything.
+ */
+@Component
+@ConditionalOnProperty(name = "cardbattle.cache.invalidation.bus", havingValue = "postgres")
+public class PostgresInvalidationBus extends AbstractInvalidationBus {
+
+    // NOTIFY payloads must be shorter than 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final long POLL_TIMEOUT_MS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MS = 10_000;
+
+    private final DataSource dataSource;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String channel;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @Autowired
+    public PostgresInvalidationBus(DataSource dataSource,
+                                   @Value("${spring.datasource.url}") String url,
+                                   @Value("${spring.datasource.username}") String username,
+                                   @Value("${spring.datasource.password}") String password,
+                                   @Value("${cardbattle.cache.invalidation.channel:cardbattle_cache}") String channel,
+                                   @Value("${cardbattle.cache.invalidation.coalesce-ms:50}") long coalesceMs) {
+        super(coalesceMs);
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "invalidation-bus-listen");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        super.start();
+        logger.info("Cache invalidation bus listening on PostgreSQL channel {}", channel);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        running = false;
+        listenerThread.interrupt();
+    }
+
+    @Override
+    protected void send(Set<String> keys) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            StringBuilder payload = new StringBuilder(nodeId);
+            int payloadBytes = nodeId.length();
+            for (String key : keys) {
+                int keyBytes = key.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (payloadBytes + keyBytes > MAX_PAYLOAD_BYTES) {
+                    notify(stmt, payload.toString());
+                    payload.setLength(0);
+                    payload.append(nodeId);
+                    payloadBytes = nodeId.length();
+                }
+                payload.append('\n').append(key);
+                payloadBytes += keyBytes;
+            }
+            notify(stmt, payload.toString());
+        }
+    }
+
+    private void notify(PreparedStatement stmt, String payload) throws SQLException {
+        stmt.setString(1, channel);
+        stmt.setString(2, payload);
+        stmt.execute();
+    }
+
+    private void listenLoop() {
+        long reconnectDelay = 100;
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + channel);
+                }
+                if (connectedBefore) {
+                    // whatever was sent while we were away is lost
+                    deliver(Set.of(ALL));
+                }
+                connectedBefore = true;
+                reconnectDelay = 100;
+
+                PGConnection pgConnection = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) POLL_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        receive(notifications);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.error("Cache invalidation listener lost its connection, retrying in {} ms: {}",
+                        reconnectDelay, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    //all notifications that arrived together go to the listeners as one set
+    private void receive(PGNotification[] notifications) {
+        Set<String> keys = new HashSet<>();
+        for (PGNotification notification : notifications) {
+            String[] lines = notification.getParameter().split("\n");
+            if (lines[0].equals(nodeId)) {
+                continue;
+            }
+            for (int i = 1; i < lines.length; i++) {
+                keys.add(lines[i]);
+            }
+        }
+        if (!keys.isEmpty()) {
+            deliver(keys);
+        }
+    }
+}
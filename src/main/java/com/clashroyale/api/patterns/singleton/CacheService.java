@@ -1,25 +1,42 @@
 package com.clashroyale.api.patterns.singleton;
 
+import com.clashroyale.api.cache.BoundedCache;
+import com.clashroyale.api.cache.CacheLoader;
+import com.clashroyale.api.cache.CacheStats;
+import com.clashroyale.api.cache.Weighted;
+import com.clashroyale.api.metrics.RequestTrace;
+import com.clashroyale.api.metrics.Timer;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 
  //singleton pattern - in-memory cache (store last data)
+ //thread-safe and bounded: old and rarely used entries are evicted, every entry has ttl
 
 @Component
 public class CacheService {
 
+    // weight = number of elements stored (a list of 100 cards weighs 100)
+    private static final long MAX_WEIGHT = 100_000;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
     private static CacheService instance;
-    private final Map<String, Object> cache;
+    private final BoundedCache<String, Object> cache;
     private final LoggerService logger = LoggerService.getInstance();
+    // "cache" layer of /api/metrics. a getOrLoad miss includes the loader
+    private final Timer getTimer = MetricsRegistry.getInstance().timer("cache", "CacheService.get");
+    private final Timer loadTimer = MetricsRegistry.getInstance().timer("cache", "CacheService.getOrLoad");
+    private final Timer updateTimer = MetricsRegistry.getInstance().timer("cache", "CacheService.update");
 
     // private constructor for Singleton pattern
     private CacheService() {
-        this.cache = new HashMap<>();
-        logger.info("CacheService initialized");
+        this.cache = new BoundedCache<>(MAX_WEIGHT, DEFAULT_TTL, CacheService::weigh);
+        logger.info("CacheService initialized (max weight {}, ttl {})", MAX_WEIGHT, DEFAULT_TTL);
     }
 
     // get only one singleton instance, if it don't exist creating new
@@ -30,44 +47,109 @@ public class CacheService {
         return instance;
     }
 
-    // we put value into the cache
+    // we put value into the cache with default ttl
 
     public void put(String key, Object value) {
         cache.put(key, value);
-        logger.info("Cache updated: " + key);
+        logger.info("Cache updated: {}", key);
+    }
+
+    // we put value into the cache with custom ttl (Duration.ZERO - never expire)
+    public void put(String key, Object value, Duration ttl) {
+        cache.put(key, value, ttl);
+        logger.info("Cache updated: {} (ttl {})", key, ttl);
     }
 
     //get value from cache return optional contains cache or null if not found
+    //hits and misses are only counted, see stats()
     public Optional<Object> get(String key) {
+        RequestTrace trace = RequestTrace.current();
+        long start = System.nanoTime();
+        int span = trace.enter(RequestTrace.Layer.CACHE, "CacheService.get", start);
         Object value = cache.get(key);
-        if (value != null) {
-            logger.info("Cache hit: " + key);
-        } else {
-            logger.info("Cache miss: " + key);
-        }
+        long end = System.nanoTime();
+        getTimer.record(end - start, false);
+        trace.exit(RequestTrace.Layer.CACHE, span, end);
         return Optional.ofNullable(value);
     }
 
+    //get value or load it on miss. concurrent misses for the same key share one loader call
+    public <T, E extends Exception> T getOrLoad(String key, CacheLoader<T, E> loader) throws E {
+        return getOrLoad(key, null, null, loader);
+    }
+
+    //same as above, with custom ttl and refresh-ahead: after refreshAfter the entry is
+    //reloaded in the background while readers still get the old value
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T getOrLoad(String key, Duration ttl, Duration refreshAfter,
+                                                CacheLoader<T, E> loader) throws E {
+        RequestTrace trace = RequestTrace.current();
+        long start = System.nanoTime();
+        int span = trace.enter(RequestTrace.Layer.CACHE, "CacheService.getOrLoad", start);
+        boolean failed = true;
+        try {
+            T value = (T) cache.get(key, ttl, refreshAfter, loader);
+            failed = false;
+            return value;
+        } finally {
+            long end = System.nanoTime();
+            loadTimer.record(end - start, failed);
+            trace.exit(RequestTrace.Layer.CACHE, span, end);
+        }
+    }
+
+    //replace the cached value with remapping(current value), readers see the old or the new value, never a mix.
+    //a running load for the key is dropped. if the key is not cached nothing happens
+    @SuppressWarnings("unchecked")
+    public <T> void update(String key, UnaryOperator<T> remapping) {
+        RequestTrace trace = RequestTrace.current();
+        long start = System.nanoTime();
+        int span = trace.enter(RequestTrace.Layer.CACHE, "CacheService.update", start);
+        cache.update(key, value -> remapping.apply((T) value));
+        long end = System.nanoTime();
+        updateTimer.record(end - start, false);
+        trace.exit(RequestTrace.Layer.CACHE, span, end);
+        logger.debug("Cache updated in place: {}", key);
+    }
+
     //clear cache key
 
     public void clear(String key) {
-        cache.remove(key);
-        logger.info("Cache cleared: " + key);
+        cache.invalidate(key);
+        logger.info("Cache cleared: {}", key);
     }
 
     //clear all cache
     public void clearAll() {
-        cache.clear();
+        cache.invalidateAll();
         logger.info("All cache cleared");
     }
 
     //check if cache contains key
     public boolean contains(String key) {
-        return cache.containsKey(key);
+        return cache.contains(key);
     }
 
     //get cache size
     public int size() {
-        return cache.size();
+        return (int) cache.size();
+    }
+
+    //hit/miss/eviction counters
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Math.max(1, map.size());
+        }
+        if (value instanceof Weighted weighted) {
+            return weighted.weight();
+        }
+        return 1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.clashroyale.api.patterns.singleton;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring buffer for log events (many producers, one consumer).
+ * Slots are allocated once and reused, producers only copy references into them.
+ * Every slot has a sequence number that tells whether it is free or holds a published event.
+ */
+final class LogRingBuffer {
+
+    private final LogEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // only touched by the consumer thread
+
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new LogEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LogEvent();
+            sequences.set(i, i);
+        }
+    }
+
+    //returns false when the buffer is full, the caller counts it as dropped
+    boolean tryPublish(LoggerService.Level level, long timestamp, String pattern,
+                       Object arg0, Object arg1, Object[] args, int argCount) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+
+        LogEvent event = slots[index];
+        event.level = level;
+        event.timestamp = timestamp;
+        event.pattern = pattern;
+        event.arg0 = arg0;
+        event.arg1 = arg1;
+        event.args = args;
+        event.argCount = argCount;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    //next published event or null, must be followed by release()
+    LogEvent peek() {
+        int index = (int) head & mask;
+        return sequences.get(index) == head + 1 ? slots[index] : null;
+    }
+
+    void release() {
+        int index = (int) head & mask;
+        slots[index].clear();
+        sequences.lazySet(index, head + slots.length);
+        head++;
+    }
+
+    boolean isEmpty() {
+        return peek() == null;
+    }
+
+    static final class LogEvent {
+        LoggerService.Level level;
+        long timestamp;
+        String pattern;
+        Object arg0;
+        Object arg1;
+        Object[] args;
+        int argCount;
+
+        //replace every {} with the next argument
+        void formatTo(StringBuilder out) {
+            if (argCount == 0) {
+                out.append(pattern);
+                return;
+            }
+            int argIndex = 0;
+            int start = 0;
+            int placeholder;
+            while (argIndex < argCount && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+                out.append(pattern, start, placeholder);
+                out.append(argument(argIndex++));
+                start = placeholder + 2;
+            }
+            out.append(pattern, start, pattern.length());
+        }
+
+        private Object argument(int index) {
+            if (args != null) {
+                return args[index];
+            }
+            return index == 0 ? arg0 : arg1;
+        }
+
+        void clear() {
+            pattern = null;
+            arg0 = null;
+            arg1 = null;
+            args = null;
+        }
+    }
+}
@@ -1,20 +1,67 @@
 package com.clashroyale.api.patterns.singleton;
 
-import java.time.LocalDateTime;
+import com.clashroyale.api.metrics.RequestTrace;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 //SINGLETON PATTERN - Simple Logger
+//asynchronous: callers only put the event into a ring buffer, a background thread
+//formats it and writes it to the console and/or a rolling file.
+//use {} placeholders - the message is built only if the level is enabled.
+//arguments that may change after the call (Card, Player...) are turned into text by the caller,
+//only immutable ones (strings, numbers, enums, java.time) are formatted later by the writer
 public class LoggerService {
 
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // one write per batch, so a steady stream of events is written as it comes and the builder stays small
+    private static final int MAX_BATCH_EVENTS = 256;
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+
     // Eager initialization - thread-safe без synchronized
     private static final LoggerService INSTANCE = new LoggerService();
 
     private static final DateTimeFormatter FORMATTER =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+
+    private volatile Level level = Level.INFO;
+    private volatile boolean consoleEnabled = true;
+    // new file sink from configure(), swapped in by the writer thread between two writes
+    private final AtomicReference<SinkChange> sinkChange = new AtomicReference<>();
+    private volatile boolean stopping;
+
+    // used only by the writer thread
+    private RollingFileSink fileSink;
+    private final StringBuilder line = new StringBuilder(256);
+    private final PrintStream console = System.out;
+    private long cachedSecond = -1;
+    private String cachedTimestamp;
+    private long reportedDropped;
 
     // Private constructor
     private LoggerService() {
-        // Prevent instantiation
+        writer = new Thread(this::drainLoop, "logger-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "logger-shutdown"));
     }
 
     // Public accessor
@@ -22,20 +69,253 @@ public class LoggerService {
         return INSTANCE;
     }
 
+    //called once on startup from configuration (see LoggingConfig).
+    //the file sink belongs to the writer thread, so the writer swaps it and closes the old one
+    public synchronized void configure(Level level, boolean console, Path file,
+                                       long maxFileBytes, int maxFiles) throws IOException {
+        this.level = level;
+        this.consoleEnabled = console;
+        SinkChange change = new SinkChange(file != null ? new RollingFileSink(file, maxFileBytes, maxFiles) : null);
+        SinkChange notApplied = sinkChange.getAndSet(change);
+        if (notApplied != null && notApplied.sink != null) {
+            notApplied.sink.close(); // never used by the writer
+        }
+        LockSupport.unpark(writer);
+        try {
+            // messages logged after configure() go to the new file
+            change.applied.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled(Level candidate) {
+        return candidate.ordinal() >= level.ordinal();
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    //messages lost because the buffer was full
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
     public void info(String message) {
-        log("INFO", message);
+        log(Level.INFO, message, null, null, null, 0);
+    }
+
+    public void info(String pattern, Object arg) {
+        log(Level.INFO, pattern, arg, null, null, 1);
+    }
+
+    public void info(String pattern, Object arg0, Object arg1) {
+        log(Level.INFO, pattern, arg0, arg1, null, 2);
+    }
+
+    public void info(String pattern, Object... args) {
+        log(Level.INFO, pattern, null, null, args, args.length);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message, null, null, null, 0);
+    }
+
+    public void warn(String pattern, Object... args) {
+        log(Level.WARN, pattern, null, null, args, args.length);
     }
 
     public void error(String message) {
-        log("ERROR", message);
+        log(Level.ERROR, message, null, null, null, 0);
+    }
+
+    public void error(String pattern, Object... args) {
+        log(Level.ERROR, pattern, null, null, args, args.length);
     }
 
     public void debug(String message) {
-        log("DEBUG", message);
+        log(Level.DEBUG, message, null, null, null, 0);
+    }
+
+    public void debug(String pattern, Object arg) {
+        log(Level.DEBUG, pattern, arg, null, null, 1);
+    }
+
+    public void debug(String pattern, Object... args) {
+        log(Level.DEBUG, pattern, null, null, args, args.length);
+    }
+
+    private void log(Level eventLevel, String pattern, Object arg0, Object arg1, Object[] args, int argCount) {
+        if (!isEnabled(eventLevel)) {
+            return;
+        }
+        // time spent logging shows up in the Server-Timing header of the request
+        RequestTrace trace = RequestTrace.current();
+        boolean traced = trace.isActive();
+        int span = traced ? trace.enter(RequestTrace.Layer.LOG, null, System.nanoTime()) : RequestTrace.NOT_TRACED;
+        if (args != null) {
+            args = capture(args);
+        } else {
+            arg0 = capture(arg0);
+            arg1 = capture(arg1);
+        }
+        if (!buffer.tryPublish(eventLevel, System.currentTimeMillis(), pattern, arg0, arg1, args, argCount)) {
+            dropped.incrementAndGet();
+        }
+        if (traced) {
+            trace.exit(RequestTrace.Layer.LOG, span, System.nanoTime());
+        }
+    }
+
+    // text now for arguments that could change before the writer formats them
+    private static Object capture(Object arg) {
+        if (arg == null || arg instanceof String || arg instanceof Integer || arg instanceof Long
+                || arg instanceof Boolean || arg instanceof Double || arg instanceof Float || arg instanceof Short
+                || arg instanceof Byte || arg instanceof Character || arg instanceof Enum<?>
+                || arg instanceof Duration || arg instanceof TemporalAccessor) {
+            return arg;
+        }
+        try {
+            return String.valueOf(arg);
+        } catch (RuntimeException e) {
+            return "(toString failed: " + e + ")";
+        }
+    }
+
+    // the caller's array is only copied if something in it has to be replaced
+    private static Object[] capture(Object[] args) {
+        Object[] captured = args;
+        for (int i = 0; i < args.length; i++) {
+            Object value = capture(args[i]);
+            if (value != args[i]) {
+                if (captured == args) {
+                    captured = args.clone();
+                }
+                captured[i] = value;
+            }
+        }
+        return captured;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            applySinkChange();
+            boolean wrote = drainBatch();
+            if (!wrote) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void applySinkChange() {
+        SinkChange change = sinkChange.getAndSet(null);
+        if (change == null) {
+            return;
+        }
+        RollingFileSink previous = fileSink;
+        fileSink = change.sink;
+        change.applied.countDown();
+        if (previous != null) {
+            try {
+                previous.close();
+            } catch (IOException e) {
+                console.println("[LoggerService] failed to close log file: " + e.getMessage());
+            }
+        }
+    }
+
+    //writes up to one batch of what is in the buffer, returns false if it was empty
+    private boolean drainBatch() {
+        LogRingBuffer.LogEvent event = buffer.peek();
+        if (event == null) {
+            return false;
+        }
+
+        line.setLength(0);
+        int events = 0;
+        while (event != null && events < MAX_BATCH_EVENTS && line.length() < MAX_BATCH_CHARS) {
+            appendEvent(event);
+            buffer.release();
+            events++;
+            event = buffer.peek();
+        }
+        appendDroppedReport();
+        write(line);
+        if (line.capacity() > 2 * MAX_BATCH_CHARS) {
+            // one huge message, don't keep its buffer
+            line.setLength(0);
+            line.trimToSize();
+        }
+        return true;
+    }
+
+    private void appendEvent(LogRingBuffer.LogEvent event) {
+        line.append('[').append(timestamp(event.timestamp)).append("] [")
+                .append(event.level).append("] ");
+        try {
+            event.formatTo(line);
+        } catch (RuntimeException e) {
+            line.append(event.pattern).append(" (format failed: ").append(e).append(')');
+        }
+        line.append(System.lineSeparator());
+    }
+
+    private void appendDroppedReport() {
+        long total = dropped.get();
+        if (total != reportedDropped) {
+            line.append('[').append(timestamp(System.currentTimeMillis())).append("] [WARN] ")
+                    .append(total - reportedDropped).append(" log messages dropped, buffer was full")
+                    .append(System.lineSeparator());
+            reportedDropped = total;
+        }
+    }
+
+    private void write(CharSequence text) {
+        if (consoleEnabled) {
+            console.print(text);
+            console.flush();
+        }
+        RollingFileSink sink = fileSink;
+        if (sink != null) {
+            try {
+                sink.write(text);
+                sink.flush();
+            } catch (IOException e) {
+                console.println("[LoggerService] failed to write log file: " + e.getMessage());
+            }
+        }
+    }
+
+    //formatting the date is the expensive part, so do it at most once per second
+    private String timestamp(long millis) {
+        long second = millis / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTimestamp = FORMATTER.format(Instant.ofEpochMilli(millis));
+        }
+        return cachedTimestamp;
+    }
+
+    private static final class SinkChange {
+        private final RollingFileSink sink;
+        private final CountDownLatch applied = new CountDownLatch(1);
+
+        SinkChange(RollingFileSink sink) {
+            this.sink = sink;
+        }
     }
 
-    private void log(String level, String message) {
-        String timestamp = LocalDateTime.now().format(FORMATTER);
-        System.out.println(String.format("[%s] [%s] %s", timestamp, level, message));
+    private void shutdown() {
+        stopping = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package com.clashroyale.api.patterns.singleton;
+
+import com.clashroyale.api.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+//SINGLETON PATTERN - all latency timers of the application (http routes, services, repositories, cache).
+//callers look a timer up once and keep it, recording into it never locks
+public class MetricsRegistry {
+
+    // Eager initialization, like LoggerService: usable from classes Spring doesn't create
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    //the timer of layer/name, created on first use
+    public Timer timer(String layer, String name) {
+        String key = layer + '|' + name;
+        Timer timer = timers.get(key);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(key, k -> new Timer(layer, name));
+    }
+
+    //sorted by layer and name
+    public List<Timer> timers() {
+        List<Timer> list = new ArrayList<>(timers.values());
+        list.sort(Comparator.comparing(Timer::getLayer).thenComparing(Timer::getName));
+        return list;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+}
@@ -0,0 +1,75 @@
+package com.clashroyale.api.patterns.singleton;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends log lines to a file and rolls it when it grows over maxBytes:
+ * app.log -> app.log.1 -> app.log.2 ... the oldest file over maxFiles is deleted.
+ * Used only from the logger writer thread, so it is not synchronized.
+ */
+final class RollingFileSink {
+
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private BufferedWriter writer;
+    private long written;
+
+    RollingFileSink(Path file, long maxBytes, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(maxFiles, 1);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    void write(CharSequence text) throws IOException {
+        if (written > 0 && written + text.length() > maxBytes) {
+            roll();
+        }
+        writer.append(text);
+        written += text.length();
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    void close() throws IOException {
+        writer.close();
+    }
+
+    private void open() throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8), 64 * 1024);
+        written = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        Files.deleteIfExists(rolled(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = rolled(i);
+            if (Files.exists(source)) {
+                Files.move(source, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,133 @@
+package com.clashroyale.api.patterns.singleton;
+
+import com.clashroyale.api.metrics.PoolStats;
+import com.clashroyale.api.metrics.SlowQuery;
+import com.clashroyale.api.metrics.SqlNormalizer;
+import com.clashroyale.api.metrics.StatementStats;
+import com.clashroyale.api.metrics.Timer;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//SINGLETON PATTERN - statistics of every SQL statement the application runs (filled by ProfilingDataSource),
+//the last slow statements with their parameters, and the connection pool gauges
+public class SqlProfiler {
+
+    private static final SqlProfiler INSTANCE = new SqlProfiler();
+
+    // more distinct statements than this means the SQL contains values the normalizer doesn't catch
+    private static final int MAX_STATEMENTS = 1000;
+    private static final String OTHER_STATEMENTS = "(other)";
+
+    // raw SQL -> stats, so a statement is normalized once and not on every prepareStatement
+    private final ConcurrentHashMap<String, StatementStats> byRawSql = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StatementStats> byNormalizedSql = new ConcurrentHashMap<>();
+    private final Timer connectionWait = MetricsRegistry.getInstance().timer("pool", "getConnection");
+
+    private volatile long slowThresholdNanos = 100_000_000L;
+    private volatile boolean captureParameters = false;
+    private volatile AtomicReferenceArray<SlowQuery> slowQueries = new AtomicReferenceArray<>(100);
+    private final AtomicLong slowQueryCount = new AtomicLong();
+    private volatile HikariDataSource pool;
+
+    private SqlProfiler() {
+    }
+
+    public static SqlProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void configure(long slowThresholdMillis, int slowLogSize, boolean captureParameters) {
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+        this.captureParameters = captureParameters;
+        this.slowQueries = new AtomicReferenceArray<>(Math.max(slowLogSize, 1));
+        this.slowQueryCount.set(0);
+    }
+
+    //the pool behind the profiled DataSource, for the gauges
+    public void setPool(HikariDataSource pool) {
+        this.pool = pool;
+    }
+
+    public StatementStats statement(String sql) {
+        StatementStats stats = byRawSql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String normalized = SqlNormalizer.normalize(sql);
+        stats = byNormalizedSql.get(normalized);
+        if (stats == null) {
+            if (byNormalizedSql.size() >= MAX_STATEMENTS) {
+                normalized = OTHER_STATEMENTS;
+            }
+            stats = byNormalizedSql.computeIfAbsent(normalized, StatementStats::new);
+        }
+        if (byRawSql.size() < MAX_STATEMENTS * 4) {
+            byRawSql.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    public Timer getConnectionWait() {
+        return connectionWait;
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= slowThresholdNanos;
+    }
+
+    public boolean isCaptureParameters() {
+        return captureParameters;
+    }
+
+    public long getSlowThresholdMillis() {
+        return slowThresholdNanos / 1_000_000L;
+    }
+
+    //overwrites the oldest entry when the log is full
+    public void recordSlow(SlowQuery query) {
+        AtomicReferenceArray<SlowQuery> log = slowQueries;
+        long position = slowQueryCount.getAndIncrement();
+        log.set((int) (position % log.length()), query);
+    }
+
+    //newest first
+    public List<SlowQuery> slowQueries() {
+        AtomicReferenceArray<SlowQuery> log = slowQueries;
+        List<SlowQuery> list = new ArrayList<>(log.length());
+        for (int i = 0; i < log.length(); i++) {
+            SlowQuery query = log.get(i);
+            if (query != null) {
+                list.add(query);
+            }
+        }
+        list.sort(Comparator.comparingLong(SlowQuery::getTimestamp).reversed());
+        return list;
+    }
+
+    public long getSlowQueryCount() {
+        return slowQueryCount.get();
+    }
+
+    //all statements, in no particular order
+    public List<StatementStats> statements() {
+        return new ArrayList<>(byNormalizedSql.values());
+    }
+
+    //null until the pool has opened its first connection
+    public PoolStats poolStats() {
+        HikariDataSource current = pool;
+        HikariPoolMXBean bean = current != null ? current.getHikariPoolMXBean() : null;
+        if (bean == null) {
+            return null;
+        }
+        return new PoolStats(bean.getActiveConnections(), bean.getIdleConnections(),
+                bean.getThreadsAwaitingConnection(), bean.getTotalConnections(), current.getMaximumPoolSize());
+    }
+}
@@ -0,0 +1,261 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.cache.BoundedCache;
+import com.clashroyale.api.cache.CacheStats;
+import com.clashroyale.api.exception.*;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.patterns.observer.InvalidationBus;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import com.clashroyale.api.repository.interfaces.RowHandler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Decorator over the JDBC player repository: getById is read-through, every write is write-through
+ * (the row written to the database replaces the cached one). Lists, pages and streams go to the
+ * database unchanged.
+ *
+ * It is @Primary, so when cardbattle.players.cache.enabled=true every user of
+ * PlayerRepositoryInterface (service, ledger, leaderboard) gets it and no write can bypass it.
+ * Cached players are never handed out, callers get copies they may change.
+ *
+ * Other instances learn about writes through the invalidation bus ("player:{id}" keys).
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "cardbattle.players.cache.enabled", havingValue = "true")
+public class CachingPlayerRepository implements PlayerRepositoryInterface {
+
+    private static final String KEY_PREFIX = "player:";
+
+    private final PlayerRepositoryInterface delegate;
+    private final InvalidationBus invalidationBus;
+    private final BoundedCache<Integer, Player> cache;
+    private final LoggerService logger = LoggerService.getInstance();
+
+    @Autowired
+    public CachingPlayerRepository(@Qualifier("playerRepository") PlayerRepositoryInterface delegate,
+                                   InvalidationBus invalidationBus,
+                                   @Value("${cardbattle.players.cache.maximum-size:100000}") long maximumSize,
+                                   @Value("${cardbattle.players.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.invalidationBus = invalidationBus;
+        this.cache = new BoundedCache<>(maximumSize, Duration.ofSeconds(ttlSeconds));
+        invalidationBus.subscribe(this::onInvalidation);
+        logger.info("Player cache enabled (max {} players, ttl {} s)", maximumSize, ttlSeconds);
+    }
+
+    @Override
+    public void create(Player player) throws DatabaseException {
+        delegate.create(player);
+        store(copy(player));
+    }
+
+    @Override
+    public List<Player> getAll() throws DatabaseException {
+        return delegate.getAll();
+    }
+
+    @Override
+    public Page<Player> getPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException {
+        return delegate.getPage(afterCursor, limit);
+    }
+
+    //concurrent misses for one id share one query. a missing player is not cached
+    @Override
+    public Player getById(int id) throws ResourceNotFoundException, DatabaseException {
+        Player player = cache.get(id, () -> {
+            try {
+                return delegate.getById(id);
+            } catch (ResourceNotFoundException e) {
+                return null;
+            }
+        });
+        if (player == null) {
+            throw new ResourceNotFoundException("Player with id: " + id + " doesn't exist");
+        }
+        return copy(player);
+    }
+
+    @Override
+    public boolean existsByName(String name) throws DatabaseException {
+        return delegate.existsByName(name);
+    }
+
+    @Override
+    public void update(int id, Player player) throws DatabaseException, ResourceNotFoundException {
+        try {
+            delegate.update(id, player);
+        } catch (ResourceNotFoundException e) {
+            evict(id);
+            throw e;
+        }
+        store(stored(id, player));
+    }
+
+    //a 412 means the cached row may be older than the database one
+    @Override
+    public void update(int id, Player player, Long expectedVersion)
+            throws DatabaseException, ResourceNotFoundException, PreconditionFailedException {
+        update(id, player, expectedVersion, null);
+    }
+
+    @Override
+    public void update(int id, Player player, Long expectedVersion, String trophyReset)
+            throws DatabaseException, ResourceNotFoundException, PreconditionFailedException {
+        try {
+            delegate.update(id, player, expectedVersion, trophyReset);
+        } catch (ResourceNotFoundException | PreconditionFailedException e) {
+            evict(id);
+            throw e;
+        }
+        store(stored(id, player));
+    }
+
+    @Override
+    public Player addTrophies(int id, int delta) throws ResourceNotFoundException, DatabaseException {
+        Player player;
+        try {
+            player = delegate.addTrophies(id, delta);
+        } catch (ResourceNotFoundException e) {
+            evict(id);
+            throw e;
+        }
+        if (player != null) {
+            store(copy(player));
+        }
+        return player;
+    }
+
+    //write-behind flush: the new totals are only in the database, drop the old ones
+    @Override
+    public void applyTrophyDeltas(int[] playerIds, long[] deltas, List<String> segments) throws DatabaseException {
+        try {
+            delegate.applyTrophyDeltas(playerIds, deltas, segments);
+        } finally {
+            for (int id : playerIds) {
+                evict(id);
+            }
+        }
+    }
+
+    @Override
+    public Set<String> findAppliedTrophySegments(List<String> segments) throws DatabaseException {
+        return delegate.findAppliedTrophySegments(segments);
+    }
+
+    @Override
+    public void purgeAppliedTrophySegments(int olderThanDays) throws DatabaseException {
+        delegate.purgeAppliedTrophySegments(olderThanDays);
+    }
+
+    @Override
+    public void delete(int id) throws ResourceNotFoundException, DatabaseException {
+        try {
+            delegate.delete(id);
+        } finally {
+            evict(id);
+        }
+    }
+
+    @Override
+    public long deleteReturningVersion(int id) throws ResourceNotFoundException, DatabaseException {
+        try {
+            return delegate.deleteReturningVersion(id);
+        } finally {
+            evict(id);
+        }
+    }
+
+    @Override
+    public void streamAll(RowHandler handler) throws DatabaseException, IOException {
+        delegate.streamAll(handler);
+    }
+
+    @Override
+    public Set<String> streamAllWithAppliedSegments(RowHandler handler, Supplier<List<String>> segments)
+            throws DatabaseException, IOException {
+        return delegate.streamAllWithAppliedSegments(handler, segments);
+    }
+
+    //hits, misses, evictions, load times
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // the row just written replaces the cached one. invalidate first: it detaches a load that may
+    // have read the row before this write, so that load can't store the old row over this one.
+    // inside a UnitOfWork the new row is only stored once it is committed
+    private void store(Player player) {
+        cache.invalidate(player.getId());
+        afterCommit(() -> {
+            cache.invalidate(player.getId());
+            cache.put(player.getId(), player);
+            invalidationBus.publish(KEY_PREFIX + player.getId());
+        });
+    }
+
+    // now, and again after the commit: a read between the write and the commit may have cached the old row
+    private void evict(int id) {
+        cache.invalidate(id);
+        afterCommit(() -> {
+            cache.invalidate(id);
+            invalidationBus.publish(KEY_PREFIX + id);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void onInvalidation(Set<String> keys) {
+        if (keys.contains(InvalidationBus.ALL)) {
+            cache.invalidateAll();
+            return;
+        }
+        for (String key : keys) {
+            if (key.startsWith(KEY_PREFIX)) {
+                try {
+                    cache.invalidate(Integer.parseInt(key.substring(KEY_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.error("Invalid player invalidation key: {}", key);
+                }
+            }
+        }
+    }
+
+    // Player is mutable (deck, trophies), the cached object must never leave this class
+    private static Player copy(Player player) {
+        return stored(player.getId(), player);
+    }
+
+    // the row as the database has it: no deck, version of the last write
+    private static Player stored(int id, Player player) {
+        Player row = new Player(id, player.getName(), player.getLevel(), player.getTrophies());
+        row.setVersion(player.getVersion());
+        return row;
+    }
+}
@@ -1,16 +1,23 @@
 package com.clashroyale.api.repository;
 
 import com.clashroyale.api.model.*;
-import com.clashroyale.api.repository.interfaces.CrudRepository;
+import com.clashroyale.api.repository.interfaces.PageableRepository;
+import com.clashroyale.api.repository.interfaces.RowHandler;
 import com.clashroyale.api.exception.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 //demonstrates 1)SRP: do only database operations, no business logic
 // 2)DIP: implemet interface
@@ -18,57 +25,44 @@ import java.util.List;
 // 4)Spring Integration: uses @Repository and DataSource
 
 @Repository
-public class CardRepository implements CrudRepository<Card> {
+public class CardRepository implements PageableRepository<Card> {
 
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int BATCH_SIZE = 500;
+    // every write to cards takes the next catalog version in the same statement, the row keeps it (see schema.sql).
+    // one counter for all instances: equal catalog versions mean equal content everywhere
+    private static final String NEXT_CATALOG_VERSION =
+            "UPDATE card_catalog_version SET version = version + 1";
+
+    // joins a running UnitOfWork, otherwise one connection per call as before
     private final DataSource dataSource;
+    // for methods that commit on their own (cursors, batches), they must never join someone else's unit
+    private final DataSource standaloneDataSource;
 
 
     @Autowired
     public CardRepository(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this.dataSource = new TransactionAwareDataSourceProxy(dataSource);
+        this.standaloneDataSource = dataSource;
     }
 
     @Override
     public void create(Card card) throws DatabaseException {
-        String sql = "INSERT INTO cards (name, card_type, rarity, elixir_cost, level, damage, hp, radius, lifetime) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "WITH v AS (" + NEXT_CATALOG_VERSION + " RETURNING version) " +
+                "INSERT INTO cards (name, card_type, rarity, elixir_cost, level, damage, hp, radius, lifetime, version) " +
+                "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, v.version FROM v RETURNING id, version";
 
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, card.getName());
-            stmt.setString(2, card.getType());
-            stmt.setString(3, card.getRarity());
-            stmt.setInt(4, card.getElixirCost());
-            stmt.setInt(5, card.getLevel());
-
-            // POLYMORPHISM: Set specific attributes based on card type
-            if (card instanceof WarriorCard) {
-                WarriorCard warrior = (WarriorCard) card;
-                stmt.setInt(6, warrior.getDamage());
-                stmt.setInt(7, warrior.getHp());
-                stmt.setInt(8, 0);  // No radius
-                stmt.setInt(9, 0);  // No lifetime
-            } else if (card instanceof SpellCard) {
-                SpellCard spell = (SpellCard) card;
-                stmt.setInt(6, spell.getDamage());
-                stmt.setInt(7, 0);  // No HP
-                stmt.setInt(8, spell.getRadius());
-                stmt.setInt(9, 0);  // No lifetime
-            } else if (card instanceof BuildingCard) {
-                BuildingCard building = (BuildingCard) card;
-                stmt.setInt(6, 0);  // No damage
-                stmt.setInt(7, building.getHp());
-                stmt.setInt(8, 0);  // No radius
-                stmt.setInt(9, building.getLifetime());
-            }
-
-            stmt.executeUpdate();
-
-            // Retrieve generated ID and set it on the card object
-            ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                card.setId(rs.getInt(1));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            setCardParameters(stmt, card);
+
+            // Retrieve generated ID and version and set them on the card object
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    card.setId(rs.getInt("id"));
+                    card.setVersion(rs.getLong("version"));
+                }
             }
         } catch (SQLException e) {
             throw new DatabaseException("Failed to create card: " + e.getMessage(), e);
@@ -95,6 +89,93 @@ public class CardRepository implements CrudRepository<Card> {
         return cards;
     }
 
+    //all cards and the catalog version they make up, read in one REPEATABLE READ transaction
+    //so a write committed in between can't be half in the result
+    public Versioned<List<Card>> getAllWithVersion() throws DatabaseException {
+        List<Card> cards = new ArrayList<>();
+
+        try (Connection conn = standaloneDataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            int isolation = conn.getTransactionIsolation();
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (PreparedStatement version = conn.prepareStatement("SELECT version FROM card_catalog_version");
+                 PreparedStatement all = conn.prepareStatement("SELECT * FROM cards ORDER BY level DESC, name ASC")) {
+
+                long catalogVersion;
+                try (ResultSet rs = version.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("card_catalog_version is empty");
+                    }
+                    catalogVersion = rs.getLong(1);
+                }
+                try (ResultSet rs = all.executeQuery()) {
+                    while (rs.next()) {
+                        cards.add(mapResultSetToCard(rs));
+                    }
+                }
+                conn.commit();
+                return new Versioned<>(cards, catalogVersion);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setTransactionIsolation(isolation);
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to get all cards: " + e.getMessage(), e);
+        }
+    }
+
+    // keyset pagination in "level DESC, name ASC" order (id breaks ties).
+    // (-level, name, id) matches the idx_cards_keyset index, so the row comparison is an index seek
+    @Override
+    public Page<Card> getPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException {
+        String sql = afterCursor == null
+                ? "SELECT * FROM cards ORDER BY -level, name, id LIMIT ?"
+                : "SELECT * FROM cards WHERE (-level, name, id) > (?, ?, ?) ORDER BY -level, name, id LIMIT ?";
+
+        int parameter = 1;
+        int afterLevel = 0;
+        int afterId = 0;
+        String afterName = null;
+        if (afterCursor != null) {
+            String[] key = KeysetCursor.decode(afterCursor, 3);
+            afterLevel = KeysetCursor.intPart(key, 0, afterCursor);
+            afterId = KeysetCursor.intPart(key, 1, afterCursor);
+            afterName = key[2];
+        }
+
+        List<Card> cards = new ArrayList<>(limit + 1);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            if (afterCursor != null) {
+                stmt.setInt(parameter++, -afterLevel);
+                stmt.setString(parameter++, afterName);
+                stmt.setInt(parameter++, afterId);
+            }
+            stmt.setInt(parameter, limit + 1); // one extra row tells us if there is a next page
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    cards.add(mapResultSetToCard(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to get cards page: " + e.getMessage(), e);
+        }
+
+        if (cards.size() <= limit) {
+            return new Page<>(cards, null);
+        }
+        cards.remove(limit);
+        Card last = cards.get(limit - 1);
+        // name goes last, it is the only part that can contain ':'
+        return new Page<>(cards, KeysetCursor.encode(last.getLevel(), last.getId(), last.getName()));
+    }
+
     @Override
     public Card getById(int id) throws ResourceNotFoundException, DatabaseException {
         String sql = "SELECT * FROM cards WHERE id = ?";
@@ -115,65 +196,146 @@ public class CardRepository implements CrudRepository<Card> {
         }
     }
 
+    //loads many cards in one round trip. ids that don't exist are just missing from the map
+    public Map<Integer, Card> getByIds(int[] ids) throws DatabaseException {
+        Map<Integer, Card> cards = new HashMap<>();
+        if (ids.length == 0) {
+            return cards;
+        }
+        String sql = "SELECT * FROM cards WHERE id = ANY(?)";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("integer", boxed(ids)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Card card = mapResultSetToCard(rs);
+                    cards.put(card.getId(), card);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to get cards by ids: " + e.getMessage(), e);
+        }
+        return cards;
+    }
+
+    //createArrayOf needs Object[]
+    static Integer[] boxed(int[] ids) {
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        return boxed;
+    }
+
     @Override
     public void update(int id, Card card) throws DatabaseException, ResourceNotFoundException {
-        String sql = "UPDATE cards SET name = ?, card_type = ?, rarity = ?, elixir_cost = ?, level = ?, " +
-                "damage = ?, hp = ?, radius = ?, lifetime = ? WHERE id = ?";
+        // without an expected version the row can only be missing
+        updateRow(id, card, null);
+    }
+
+    // If-Match in the database: with expectedVersion the row is only written if it still has that version,
+    // so a write through another instance in between gives 412. the new version is set on the card
+    public void update(int id, Card card, Long expectedVersion)
+            throws DatabaseException, ResourceNotFoundException, PreconditionFailedException {
+        if (!updateRow(id, card, expectedVersion)) {
+            throw new PreconditionFailedException("Card " + id + " was changed by someone else");
+        }
+    }
+
+    // false if the card exists with another version. the catalog version only moves if the row is there
+    // (two writers racing between the EXISTS and the UPDATE can still skip one, never lose a write)
+    private boolean updateRow(int id, Card card, Long expectedVersion) throws DatabaseException, ResourceNotFoundException {
+        String sql = "WITH v AS (" + NEXT_CATALOG_VERSION + " WHERE EXISTS (SELECT 1 FROM cards WHERE id = ?" +
+                (expectedVersion == null ? "" : " AND version = ?") + ") RETURNING version) " +
+                "UPDATE cards SET name = ?, card_type = ?, rarity = ?, elixir_cost = ?, level = ?, " +
+                "damage = ?, hp = ?, radius = ?, lifetime = ?, version = v.version FROM v WHERE cards.id = ?" +
+                (expectedVersion == null ? "" : " AND cards.version = ?") + " RETURNING cards.version";
 
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, card.getName());
-            stmt.setString(2, card.getType());
-            stmt.setString(3, card.getRarity());
-            stmt.setInt(4, card.getElixirCost());
-            stmt.setInt(5, card.getLevel());
-
-            // polymorphism: Handle different card types
-            if (card instanceof WarriorCard) {
-                WarriorCard warrior = (WarriorCard) card;
-                stmt.setInt(6, warrior.getDamage());
-                stmt.setInt(7, warrior.getHp());
-                stmt.setInt(8, 0);
-                stmt.setInt(9, 0);
-            } else if (card instanceof SpellCard) {
-                SpellCard spell = (SpellCard) card;
-                stmt.setInt(6, spell.getDamage());
-                stmt.setInt(7, 0);
-                stmt.setInt(8, spell.getRadius());
-                stmt.setInt(9, 0);
-            } else if (card instanceof BuildingCard) {
-                BuildingCard building = (BuildingCard) card;
-                stmt.setInt(6, 0);
-                stmt.setInt(7, building.getHp());
-                stmt.setInt(8, 0);
-                stmt.setInt(9, building.getLifetime());
-            }
-
-            stmt.setInt(10, id);
-
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected == 0) {
+            int parameter = 1;
+            stmt.setInt(parameter++, id);
+            if (expectedVersion != null) {
+                stmt.setLong(parameter++, expectedVersion);
+            }
+            setCardParameters(stmt, card, parameter);
+            parameter += 9;
+            stmt.setInt(parameter++, id);
+            if (expectedVersion != null) {
+                stmt.setLong(parameter, expectedVersion);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    card.setVersion(rs.getLong(1));
+                    return true;
+                }
+            }
+            if (!exists(conn, id)) {
                 throw new ResourceNotFoundException("Card with id " + id + " not found");
             }
+            return false;
         } catch (SQLException e) {
             throw new DatabaseException("Failed to update card: " + e.getMessage(), e);
         }
     }
 
-    @Override
-    public void delete(int id) throws ResourceNotFoundException, DatabaseException {
-        String sql = "DELETE FROM cards WHERE id = ?";
+    // upgrade in one statement: the level check and the increment happen atomically in the database.
+    // returns the upgraded card, or null if the card is already at maxLevel
+    public Card upgradeLevel(int id, int maxLevel) throws ResourceNotFoundException, DatabaseException {
+        String sql = "WITH v AS (" + NEXT_CATALOG_VERSION +
+                " WHERE EXISTS (SELECT 1 FROM cards WHERE id = ? AND level < ?) RETURNING version) " +
+                "UPDATE cards SET level = cards.level + 1, version = v.version FROM v " +
+                "WHERE cards.id = ? AND cards.level < ? RETURNING cards.*";
 
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
-            int rowsAffected = stmt.executeUpdate();
+            stmt.setInt(2, maxLevel);
+            stmt.setInt(3, id);
+            stmt.setInt(4, maxLevel);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToCard(rs);
+                }
+            }
 
-            if (rowsAffected == 0) {
+            // nothing updated: either the card doesn't exist or it is already maxed (rare path)
+            if (!exists(conn, id)) {
                 throw new ResourceNotFoundException("Card with id " + id + " not found");
             }
+            return null;
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to upgrade card: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(int id) throws ResourceNotFoundException, DatabaseException {
+        deleteReturningVersion(id);
+    }
+
+    //deletes the card, returns the catalog version of the delete
+    public long deleteReturningVersion(int id) throws ResourceNotFoundException, DatabaseException {
+        String sql = "WITH v AS (" + NEXT_CATALOG_VERSION +
+                " WHERE EXISTS (SELECT 1 FROM cards WHERE id = ?) RETURNING version) " +
+                "DELETE FROM cards USING v WHERE cards.id = ? RETURNING v.version";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, id);
+            stmt.setInt(2, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+            throw new ResourceNotFoundException("Card with id " + id + " not found");
         } catch (SQLException e) {
             throw new DatabaseException("Failed to delete card: " + e.getMessage(), e);
         }
@@ -219,9 +381,206 @@ public class CardRepository implements CrudRepository<Card> {
         return cards;
     }
 
+    // streams every card to the handler using a forward-only server-side cursor:
+    // with autocommit off and a fetch size, PostgreSQL sends EXPORT_FETCH_SIZE rows at a time
+    // instead of the whole table, so memory stays flat for any table size
+    public void streamAll(RowHandler handler) throws DatabaseException, IOException {
+        String sql = "SELECT id, name, card_type, rarity, elixir_cost, level, damage, hp, radius, lifetime " +
+                "FROM cards ORDER BY id";
+
+        try (Connection conn = standaloneDataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(EXPORT_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(rs);
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to export cards: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inserts many cards using JDBC batches of BATCH_SIZE rows, one connection and one transaction
+     * (and catalog version) for the whole call: either every good row is committed or none is.
+     * Generated ids and the version are written to the cards, the ids are also returned in input order.
+     * If a batch fails, it is rolled back to its savepoint and retried row by row with savepoints,
+     * so only the bad rows fail: their id is 0 and errors[i] has the reason.
+     * null entries are skipped (already rejected by the caller).
+     * The catalog version row stays locked until the commit, other card writes wait for the import.
+     */
+    public int[] createAll(List<Card> cards, String[] errors) throws DatabaseException {
+        String sql = "INSERT INTO cards (name, card_type, rarity, elixir_cost, level, damage, hp, radius, lifetime, version) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int[] ids = new int[cards.size()];
+        if (cards.stream().allMatch(Objects::isNull)) {
+            return ids;
+        }
+
+        try (Connection conn = standaloneDataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, new String[]{"id"})) {
+                long version = nextCatalogVersion(conn);
+                List<Integer> chunk = new ArrayList<>(BATCH_SIZE);
+                for (int i = 0; i < cards.size(); i++) {
+                    if (cards.get(i) == null) {
+                        continue;
+                    }
+                    chunk.add(i);
+                    if (chunk.size() == BATCH_SIZE) {
+                        insertChunk(conn, stmt, cards, chunk, version, ids, errors);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    insertChunk(conn, stmt, cards, chunk, version, ids, errors);
+                }
+                if (Arrays.stream(ids).anyMatch(id -> id != 0)) {
+                    conn.commit();
+                } else {
+                    // every row failed: don't move the catalog version for nothing
+                    conn.rollback();
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                // nothing of the import is in the database
+                for (int i = 0; i < cards.size(); i++) {
+                    ids[i] = 0;
+                    if (cards.get(i) != null) {
+                        cards.get(i).setId(0);
+                    }
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to import cards: " + e.getMessage(), e);
+        }
+
+        return ids;
+    }
+
+    private void insertChunk(Connection conn, PreparedStatement stmt, List<Card> cards, List<Integer> chunk,
+                             long version, int[] ids, String[] errors) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            for (int index : chunk) {
+                setCardParameters(stmt, cards.get(index));
+                stmt.setLong(10, version);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (int index : chunk) {
+                    if (!keys.next()) {
+                        throw new SQLException("Database returned fewer ids than inserted rows");
+                    }
+                    ids[index] = keys.getInt(1);
+                    cards.get(index).setId(ids[index]);
+                    cards.get(index).setVersion(version);
+                }
+            }
+            conn.releaseSavepoint(savepoint);
+        } catch (SQLException batchError) {
+            conn.rollback(savepoint);
+            stmt.clearBatch();
+            insertRowByRow(conn, stmt, cards, chunk, version, ids, errors);
+        }
+    }
+
+    //slow path after a failed batch: find the rows that are really wrong
+    private void insertRowByRow(Connection conn, PreparedStatement stmt, List<Card> cards, List<Integer> chunk,
+                                long version, int[] ids, String[] errors) throws SQLException {
+        for (int index : chunk) {
+            ids[index] = 0;
+            cards.get(index).setId(0);
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                setCardParameters(stmt, cards.get(index));
+                stmt.setLong(10, version);
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        ids[index] = keys.getInt(1);
+                        cards.get(index).setId(ids[index]);
+                        cards.get(index).setVersion(version);
+                    }
+                }
+                conn.releaseSavepoint(savepoint);
+            } catch (SQLException rowError) {
+                conn.rollback(savepoint);
+                errors[index] = rowError.getMessage();
+            }
+        }
+    }
+
+    private long nextCatalogVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(NEXT_CATALOG_VERSION + " RETURNING version");
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("card_catalog_version is empty");
+            }
+            return rs.getLong(1);
+        }
+    }
+
+    private boolean exists(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM cards WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // POLYMORPHISM: set common columns and the type specific ones (parameters 1..9)
+    private void setCardParameters(PreparedStatement stmt, Card card) throws SQLException {
+        setCardParameters(stmt, card, 1);
+    }
+
+    // same nine parameters, starting at parameter first
+    private void setCardParameters(PreparedStatement stmt, Card card, int first) throws SQLException {
+        stmt.setString(first, card.getName());
+        stmt.setString(first + 1, card.getType());
+        stmt.setString(first + 2, card.getRarity());
+        stmt.setInt(first + 3, card.getElixirCost());
+        stmt.setInt(first + 4, card.getLevel());
+
+        if (card instanceof WarriorCard) {
+            WarriorCard warrior = (WarriorCard) card;
+            stmt.setInt(first + 5, warrior.getDamage());
+            stmt.setInt(first + 6, warrior.getHp());
+            stmt.setInt(first + 7, 0);  // No radius
+            stmt.setInt(first + 8, 0);  // No lifetime
+        } else if (card instanceof SpellCard) {
+            SpellCard spell = (SpellCard) card;
+            stmt.setInt(first + 5, spell.getDamage());
+            stmt.setInt(first + 6, 0);  // No HP
+            stmt.setInt(first + 7, spell.getRadius());
+            stmt.setInt(first + 8, 0);  // No lifetime
+        } else if (card instanceof BuildingCard) {
+            BuildingCard building = (BuildingCard) card;
+            stmt.setInt(first + 5, 0);  // No damage
+            stmt.setInt(first + 6, building.getHp());
+            stmt.setInt(first + 7, 0);  // No radius
+            stmt.setInt(first + 8, building.getLifetime());
+        }
+    }
+
     //method to map ResultSet to appropriate Card subclass.  demonstrates factory and polymorphism
 
-    private Card mapResultSetToCard(ResultSet rs) throws SQLException {
+    //package-private so DeckRepository can map joined card rows the same way
+    static Card mapResultSetToCard(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         String name = rs.getString("name");
         String cardType = rs.getString("card_type");
@@ -236,7 +595,7 @@ public class CardRepository implements CrudRepository<Card> {
         // polymorphism Create appropriate subclass based on card type
         Card card;
 
-        if ("WARRIOR".equals(cardType)) {
+        if ("WARRIOR".equalsIgnoreCase(cardType)) {
             card = new WarriorCard(id, name, rarity, elixirCost, level, hp, damage);
         } else if ("SPELL".equalsIgnoreCase(cardType)) {
             card = new SpellCard(id, name, rarity, elixirCost, level, radius, damage);
@@ -245,6 +604,7 @@ public class CardRepository implements CrudRepository<Card> {
         } else {
             throw new SQLException("Wrong card type: " + cardType);
         }
+        card.setVersion(rs.getLong("version"));
 
         return card;
     }
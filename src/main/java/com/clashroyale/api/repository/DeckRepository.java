@@ -0,0 +1,238 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.Deck;
+import com.clashroyale.api.repository.interfaces.CrudRepository;
+import com.clashroyale.api.exception.*;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+
+//decks and their cards (decks + deck_cards).
+//cards are always hydrated in batches: one "deck_id = ANY(?)" join per HYDRATE_BATCH_SIZE decks,
+//so loading N decks costs 1 + N/HYDRATE_BATCH_SIZE queries instead of N*8 card lookups
+
+@Repository
+public class DeckRepository implements CrudRepository<Deck> {
+
+    private static final int HYDRATE_BATCH_SIZE = 1000;
+
+    private static final String CARDS_SQL = "SELECT dc.deck_id, c.* FROM deck_cards dc " +
+            "JOIN cards c ON c.id = dc.card_id WHERE dc.deck_id = ANY(?) ORDER BY dc.deck_id, dc.position";
+
+    private final DataSource dataSource;
+
+    @Autowired
+    public DeckRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    //deck row and its cards go in one transaction, a deck is never visible half-written
+    @Override
+    public void create(Deck deck) throws DatabaseException {
+        String sql = "INSERT INTO decks (player_id, deck_name) VALUES (?, ?)";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setInt(1, deck.getPlayerId());
+                    stmt.setString(2, deck.getDeckName());
+                    stmt.executeUpdate();
+
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        deck.setId(rs.getInt(1));
+                    }
+                }
+                insertCards(conn, deck);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to create deck: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Deck> getAll() throws DatabaseException {
+        String sql = "SELECT * FROM decks ORDER BY id";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            List<Deck> decks = mapDecks(rs);
+            hydrate(conn, decks);
+            return decks;
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to get all decks: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Deck getById(int id) throws ResourceNotFoundException, DatabaseException {
+        String sql = "SELECT * FROM decks WHERE id = ?";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, id);
+            List<Deck> decks;
+            try (ResultSet rs = stmt.executeQuery()) {
+                decks = mapDecks(rs);
+            }
+            if (decks.isEmpty()) {
+                throw new ResourceNotFoundException("Deck with id " + id + " not found");
+            }
+            hydrate(conn, decks);
+            return decks.get(0);
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to get deck by id: " + e.getMessage(), e);
+        }
+    }
+
+    //decks of many players at once, grouped by player id (players without decks are missing from the map)
+    public Map<Integer, List<Deck>> getByPlayerIds(int[] playerIds) throws DatabaseException {
+        Map<Integer, List<Deck>> byPlayer = new HashMap<>();
+        if (playerIds.length == 0) {
+            return byPlayer;
+        }
+        String sql = "SELECT * FROM decks WHERE player_id = ANY(?) ORDER BY player_id, id";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("integer", CardRepository.boxed(playerIds)));
+            List<Deck> decks;
+            try (ResultSet rs = stmt.executeQuery()) {
+                decks = mapDecks(rs);
+            }
+            hydrate(conn, decks);
+
+            for (Deck deck : decks) {
+                byPlayer.computeIfAbsent(deck.getPlayerId(), k -> new ArrayList<>()).add(deck);
+            }
+            return byPlayer;
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to get decks by players: " + e.getMessage(), e);
+        }
+    }
+
+    //renames the deck and replaces its cards
+    @Override
+    public void update(int id, Deck deck) throws DatabaseException, ResourceNotFoundException {
+        String sql = "UPDATE decks SET deck_name = ? WHERE id = ?";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, deck.getDeckName());
+                    stmt.setInt(2, id);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        throw new ResourceNotFoundException("Deck with id " + id + " not found");
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM deck_cards WHERE deck_id = ?")) {
+                    stmt.setInt(1, id);
+                    stmt.executeUpdate();
+                }
+                deck.setId(id);
+                insertCards(conn, deck);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to update deck: " + e.getMessage(), e);
+        }
+    }
+
+    //deck_cards rows go with it (on delete cascade)
+    @Override
+    public void delete(int id) throws ResourceNotFoundException, DatabaseException {
+        String sql = "DELETE FROM decks WHERE id = ?";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, id);
+            int rowsAffected = stmt.executeUpdate();
+
+            if (rowsAffected == 0) {
+                throw new ResourceNotFoundException("Deck with id " + id + " not found");
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to delete deck: " + e.getMessage(), e);
+        }
+    }
+
+    private void insertCards(Connection conn, Deck deck) throws SQLException {
+        String sql = "INSERT INTO deck_cards (deck_id, card_id, position) VALUES (?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int position = 1;
+            for (Card card : deck.getCards()) {
+                stmt.setInt(1, deck.getId());
+                stmt.setInt(2, card.getId());
+                stmt.setInt(3, position++);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    //fills the cards of all given decks, one query per batch of decks
+    private void hydrate(Connection conn, List<Deck> decks) throws SQLException {
+        for (int from = 0; from < decks.size(); from += HYDRATE_BATCH_SIZE) {
+            List<Deck> batch = decks.subList(from, Math.min(from + HYDRATE_BATCH_SIZE, decks.size()));
+
+            Map<Integer, Deck> byId = new HashMap<>(batch.size() * 2);
+            for (Deck deck : batch) {
+                byId.put(deck.getId(), deck);
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(CARDS_SQL)) {
+                stmt.setArray(1, conn.createArrayOf("integer", byId.keySet().toArray()));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Deck deck = byId.get(rs.getInt("deck_id"));
+                        addCard(deck, CardRepository.mapResultSetToCard(rs));
+                    }
+                }
+            }
+        }
+    }
+
+    //constraints on deck_cards keep this at 8 distinct cards, so a failure here means broken data
+    private void addCard(Deck deck, Card card) throws SQLException {
+        try {
+            deck.addCard(card);
+        } catch (InvalidInputException e) {
+            throw new SQLException("Deck " + deck.getId() + " is broken: " + e.getMessage(), e);
+        }
+    }
+
+    private List<Deck> mapDecks(ResultSet rs) throws SQLException {
+        List<Deck> decks = new ArrayList<>();
+        while (rs.next()) {
+            Deck deck = new Deck(rs.getInt("id"), rs.getString("deck_name"));
+            deck.setPlayerId(rs.getInt("player_id"));
+            decks.add(deck);
+        }
+        return decks;
+    }
+}
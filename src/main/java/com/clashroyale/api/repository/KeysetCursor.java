@@ -0,0 +1,49 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.exception.InvalidInputException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination: the sort key of the last returned row,
+ * joined with ':' and Base64url encoded. Clients only pass it back, they never parse it.
+ * The last part may contain ':' (for example a card name), so decode splits at most (parts - 1) times.
+ */
+final class KeysetCursor {
+
+    private KeysetCursor() {}
+
+    static String encode(Object... parts) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                raw.append(':');
+            }
+            raw.append(parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decode(String cursor, int parts) throws InvalidInputException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] values = raw.split(":", parts);
+            if (values.length != parts) {
+                throw new InvalidInputException("Invalid cursor: " + cursor);
+            }
+            return values;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Invalid cursor: " + cursor);
+        }
+    }
+
+    static int intPart(String[] values, int index, String cursor) throws InvalidInputException {
+        try {
+            return Integer.parseInt(values[index]);
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.clashroyale.api.repository;
+
+import java.util.List;
+
+//one page of a keyset (cursor) query. nextCursor is null on the last page
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+}
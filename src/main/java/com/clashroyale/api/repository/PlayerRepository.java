@@ -1,28 +1,42 @@
 package com.clashroyale.api.repository;
 
 import com.clashroyale.api.model.Player;
-import com.clashroyale.api.repository.interfaces.CrudRepository;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import com.clashroyale.api.repository.interfaces.RowHandler;
 import com.clashroyale.api.exception.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
  // REPOSITORY LAYER - database operations for players
  // Demonstrates: SRP (only database operations, no business logic) DIP (implements CrudRepository interface) and SRP (only database operations, no business logic)
 @Repository
-public class PlayerRepository implements CrudRepository<Player> {
+public class PlayerRepository implements PlayerRepositoryInterface {
 
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    // SQLState of a unique constraint violation (duplicate name)
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // joins a running UnitOfWork, otherwise one connection per call as before
     private final DataSource dataSource;
+    // for methods that commit on their own (cursors, batches), they must never join someone else's unit
+    private final DataSource standaloneDataSource;
 
     // Spring automatically wires DataSource from application.properties
     @Autowired
     public PlayerRepository(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this.dataSource = new TransactionAwareDataSourceProxy(dataSource);
+        this.standaloneDataSource = dataSource;
     }
 
     @Override
@@ -30,7 +44,7 @@ public class PlayerRepository implements CrudRepository<Player> {
         String sql = "INSERT INTO players (name, level, trophies) VALUES (?, ?, ?)";
 
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, new String[]{"id", "version"})) {
 
             stmt.setString(1, player.getName());
             stmt.setInt(2, player.getLevel());
@@ -38,20 +52,37 @@ public class PlayerRepository implements CrudRepository<Player> {
 
             stmt.executeUpdate();
 
-            // get generated ID
+            // get generated ID and the first version
             ResultSet rs = stmt.getGeneratedKeys();
             if (rs.next()) {
                 player.setId(rs.getInt(1));
+                player.setVersion(rs.getLong(2));
             }
         } catch (SQLException e) {
             // handle duplicate key constraint violation
-            if (e.getMessage().contains("duplicate key") || e.getMessage().contains("unique constraint")) {
-                throw new DatabaseException("Player with name " + player.getName() + " already exists", e);
+            if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                throw new DuplicateResourceException("Player with name " + player.getName() + " already exists", e);
             }
             throw new DatabaseException("Failed to create player: " + e.getMessage(), e);
         }
     }
 
+    @Override
+    public boolean existsByName(String name) throws DatabaseException {
+        String sql = "SELECT 1 FROM players WHERE name = ?";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to check player name: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public List<Player> getAll() throws DatabaseException {
         List<Player> players = new ArrayList<>();
@@ -71,6 +102,50 @@ public class PlayerRepository implements CrudRepository<Player> {
         return players;
     }
 
+    // keyset pagination in "trophies DESC, id ASC" order.
+    // (-trophies, id) matches the idx_players_keyset index, so the row comparison is an index seek
+    @Override
+    public Page<Player> getPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException {
+        String sql = afterCursor == null
+                ? "SELECT * FROM players ORDER BY -trophies, id LIMIT ?"
+                : "SELECT * FROM players WHERE (-trophies, id) > (?, ?) ORDER BY -trophies, id LIMIT ?";
+
+        int parameter = 1;
+        int afterTrophies = 0;
+        int afterId = 0;
+        if (afterCursor != null) {
+            String[] key = KeysetCursor.decode(afterCursor, 2);
+            afterTrophies = KeysetCursor.intPart(key, 0, afterCursor);
+            afterId = KeysetCursor.intPart(key, 1, afterCursor);
+        }
+
+        List<Player> players = new ArrayList<>(limit + 1);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            if (afterCursor != null) {
+                stmt.setInt(parameter++, -afterTrophies);
+                stmt.setInt(parameter++, afterId);
+            }
+            stmt.setInt(parameter, limit + 1); // one extra row tells us if there is a next page
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    players.add(mapResultSetToPlayer(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to get players page: " + e.getMessage(), e);
+        }
+
+        if (players.size() <= limit) {
+            return new Page<>(players, null);
+        }
+        players.remove(limit);
+        Player last = players.get(limit - 1);
+        return new Page<>(players, KeysetCursor.encode(last.getTrophies(), last.getId()));
+    }
+
     @Override
     public Player getById(int id) throws ResourceNotFoundException, DatabaseException {
         String sql = "SELECT * FROM players WHERE id = ?";
@@ -93,7 +168,37 @@ public class PlayerRepository implements CrudRepository<Player> {
 
     @Override
     public void update(int id, Player player) throws DatabaseException, ResourceNotFoundException {
-        String sql = "UPDATE players SET name = ?, level = ?, trophies = ? WHERE id = ?";
+        // without an expected version the row can only be missing
+        updateRow(id, player, null, null);
+    }
+
+    // If-Match in the database: with expectedVersion the row is only written if it still has that version,
+    // so a write through another instance in between gives 412. the new version is set on the player
+    @Override
+    public void update(int id, Player player, Long expectedVersion)
+            throws DatabaseException, ResourceNotFoundException, PreconditionFailedException {
+        update(id, player, expectedVersion, null);
+    }
+
+    // trophyReset: name of a ledger reset, inserted into trophy_ledger_flushes by the same statement
+    @Override
+    public void update(int id, Player player, Long expectedVersion, String trophyReset)
+            throws DatabaseException, ResourceNotFoundException, PreconditionFailedException {
+        if (!updateRow(id, player, expectedVersion, trophyReset)) {
+            throw new PreconditionFailedException("Player " + id + " was changed by someone else");
+        }
+    }
+
+    // false if the player exists with another version
+    private boolean updateRow(int id, Player player, Long expectedVersion, String trophyReset)
+            throws DatabaseException, ResourceNotFoundException {
+        String sql = "UPDATE players SET name = ?, level = ?, trophies = ?, version = version + 1 WHERE id = ?" +
+                (expectedVersion == null ? "" : " AND version = ?") + " RETURNING version";
+        if (trophyReset != null) {
+            // the reset is recorded only if the row was written
+            sql = "WITH updated AS (" + sql + "), reset AS (INSERT INTO trophy_ledger_flushes (segment) " +
+                    "SELECT ? FROM updated) SELECT version FROM updated";
+        }
 
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -102,41 +207,251 @@ public class PlayerRepository implements CrudRepository<Player> {
             stmt.setInt(2, player.getLevel());
             stmt.setInt(3, player.getTrophies());
             stmt.setInt(4, id);
+            int parameter = 5;
+            if (expectedVersion != null) {
+                stmt.setLong(parameter++, expectedVersion);
+            }
+            if (trophyReset != null) {
+                stmt.setString(parameter, trophyReset);
+            }
 
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected == 0) {
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    player.setVersion(rs.getLong(1));
+                    return true;
+                }
+            }
+            if (!exists(conn, id)) {
                 throw new ResourceNotFoundException("Player with id " + id + " doesn't exist");
             }
+            return false;
         } catch (SQLException e) {
+            if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                throw new DuplicateResourceException("Player with name " + player.getName() + " already exists", e);
+            }
             throw new DatabaseException("Failed to update player: " + e.getMessage(), e);
         }
     }
 
+    // adds (or removes, if delta < 0) trophies in one atomic statement, so concurrent grants are not lost.
+    // returns the updated player, or null if the result would be negative
     @Override
-    public void delete(int id) throws ResourceNotFoundException, DatabaseException {
-        String sql = "DELETE FROM players WHERE id = ?";
+    public Player addTrophies(int id, int delta) throws ResourceNotFoundException, DatabaseException {
+        String sql = "UPDATE players SET trophies = trophies + ?, version = version + 1 " +
+                "WHERE id = ? AND trophies + ? >= 0 RETURNING *";
 
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, id);
-            int rowsAffected = stmt.executeUpdate();
+            stmt.setInt(1, delta);
+            stmt.setInt(2, id);
+            stmt.setInt(3, delta);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToPlayer(rs);
+                }
+            }
 
-            if (rowsAffected == 0) {
+            // nothing updated: either the player doesn't exist or trophies would go below zero
+            if (!exists(conn, id)) {
                 throw new ResourceNotFoundException("Player with id " + id + " doesn't exist");
             }
+            return null;
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to add trophies: " + e.getMessage(), e);
+        }
+    }
+
+    // group commit for the trophy ledger: one UPDATE for all players (arrays + unnest)
+    // and the journal segment names, in a single transaction
+    @Override
+    public void applyTrophyDeltas(int[] playerIds, long[] deltas, List<String> segments) throws DatabaseException {
+        String updateSql = "UPDATE players p SET trophies = LEAST(GREATEST(p.trophies + d.delta, 0), 2147483647), " +
+                "version = p.version + 1 " +
+                "FROM (SELECT unnest(?::int[]) AS id, unnest(?::bigint[]) AS delta) d WHERE p.id = d.id";
+        String segmentsSql = "INSERT INTO trophy_ledger_flushes (segment) SELECT unnest(?::varchar[])";
+
+        Integer[] ids = new Integer[playerIds.length];
+        Long[] amounts = new Long[deltas.length];
+        for (int i = 0; i < playerIds.length; i++) {
+            ids[i] = playerIds[i];
+            amounts[i] = deltas[i];
+        }
+
+        try (Connection conn = standaloneDataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement(updateSql);
+                 PreparedStatement journal = conn.prepareStatement(segmentsSql)) {
+
+                update.setArray(1, conn.createArrayOf("integer", ids));
+                update.setArray(2, conn.createArrayOf("bigint", amounts));
+                update.executeUpdate();
+
+                // primary key on segment: a second apply of the same segment fails the whole transaction
+                journal.setArray(1, conn.createArrayOf("varchar", segments.toArray()));
+                journal.executeUpdate();
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to apply trophy deltas: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Set<String> findAppliedTrophySegments(List<String> segments) throws DatabaseException {
+        String sql = "SELECT segment FROM trophy_ledger_flushes WHERE segment = ANY(?)";
+        Set<String> applied = new HashSet<>();
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("varchar", segments.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    applied.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to read trophy journal state: " + e.getMessage(), e);
+        }
+
+        return applied;
+    }
+
+    @Override
+    public void purgeAppliedTrophySegments(int olderThanDays) throws DatabaseException {
+        String sql = "DELETE FROM trophy_ledger_flushes WHERE applied_at < now() - make_interval(days => ?)";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, olderThanDays);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to purge trophy journal state: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(int id) throws ResourceNotFoundException, DatabaseException {
+        deleteReturningVersion(id);
+    }
+
+    @Override
+    public long deleteReturningVersion(int id) throws ResourceNotFoundException, DatabaseException {
+        String sql = "DELETE FROM players WHERE id = ? RETURNING version + 1";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+            throw new ResourceNotFoundException("Player with id " + id + " doesn't exist");
         } catch (SQLException e) {
             throw new DatabaseException("Failed to delete player: " + e.getMessage(), e);
         }
     }
 
+    // streams every player to the handler using a forward-only server-side cursor:
+    // with autocommit off and a fetch size, PostgreSQL sends EXPORT_FETCH_SIZE rows at a time
+    // instead of the whole table, so memory stays flat for any table size
+    @Override
+    public void streamAll(RowHandler handler) throws DatabaseException, IOException {
+        try (Connection conn = standaloneDataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                streamRows(conn, handler);
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to export players: " + e.getMessage(), e);
+        }
+    }
+
+    // one REPEATABLE READ snapshot for the rows and for the segment lookup after the last row,
+    // so the caller knows exactly which ledger commits the trophies it read contain
+    @Override
+    public Set<String> streamAllWithAppliedSegments(RowHandler handler, Supplier<List<String>> segments)
+            throws DatabaseException, IOException {
+        String sql = "SELECT segment FROM trophy_ledger_flushes WHERE segment = ANY(?)";
+        Set<String> applied = new HashSet<>();
+
+        try (Connection conn = standaloneDataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            int isolation = conn.getTransactionIsolation();
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                streamRows(conn, handler);
+                List<String> asked = segments.get();
+                if (!asked.isEmpty()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        stmt.setArray(1, conn.createArrayOf("varchar", asked.toArray()));
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                applied.add(rs.getString(1));
+                            }
+                        }
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setTransactionIsolation(isolation);
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to read players: " + e.getMessage(), e);
+        }
+
+        return applied;
+    }
+
+    private void streamRows(Connection conn, RowHandler handler) throws SQLException, IOException {
+        String sql = "SELECT id, name, level, trophies FROM players ORDER BY id";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(EXPORT_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+        }
+    }
+
+    private boolean exists(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM players WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
     //Helper method to map ResultSet to Player object
     private Player mapResultSetToPlayer(ResultSet rs) throws SQLException {
-        return new Player(
+        Player player = new Player(
                 rs.getInt("id"),
                 rs.getString("name"),
                 rs.getInt("level"),
                 rs.getInt("trophies")
         );
+        player.setVersion(rs.getLong("version"));
+        return player;
     }
 }
\ No newline at end of file
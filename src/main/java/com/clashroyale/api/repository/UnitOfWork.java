@@ -0,0 +1,69 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.exception.DatabaseException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Runs several repository calls on one connection and commits once.
+ *
+ * CardRepository and PlayerRepository get their connections through a TransactionAwareDataSourceProxy:
+ * inside execute() every call gets the same pooled connection (and its server-side prepared statements),
+ * outside of it they work as before, one connection per call with autocommit.
+ *
+ * execute() returns after the commit, so code after it (caches, events) only ever sees committed data.
+ * A unit inside another unit joins the outer transaction.
+ */
+@Component
+public class UnitOfWork {
+
+    //repository calls of one unit, E is the checked exception besides DatabaseException (RuntimeException if none)
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T run() throws E, DatabaseException;
+    }
+
+    private final PlatformTransactionManager transactionManager;
+
+    @Autowired
+    public UnitOfWork(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public <T, E extends Exception> T execute(Work<T, E> work) throws E, DatabaseException {
+        TransactionStatus status;
+        try {
+            status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        } catch (TransactionException e) {
+            throw new DatabaseException("Failed to start transaction: " + e.getMessage(), e);
+        }
+
+        T result;
+        try {
+            result = work.run();
+        } catch (Throwable e) {
+            rollbackQuietly(status);
+            throw e;
+        }
+
+        try {
+            transactionManager.commit(status);
+        } catch (TransactionException e) {
+            throw new DatabaseException("Failed to commit transaction: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    // the original exception is the interesting one, a failed rollback only closes the connection
+    private void rollbackQuietly(TransactionStatus status) {
+        try {
+            transactionManager.rollback(status);
+        } catch (TransactionException ignored) {
+        }
+    }
+}
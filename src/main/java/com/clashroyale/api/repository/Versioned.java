@@ -0,0 +1,16 @@
+package com.clashroyale.api.repository;
+
+//a value read from the database together with the version it belongs to (same snapshot)
+public class Versioned<T> {
+
+    private final T value;
+    private final long version;
+
+    public Versioned(T value, long version) {
+        this.value = value;
+        this.version = version;
+    }
+
+    public T getValue() { return value; }
+    public long getVersion() { return version; }
+}
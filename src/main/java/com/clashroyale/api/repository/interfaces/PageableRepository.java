@@ -0,0 +1,16 @@
+package com.clashroyale.api.repository.interfaces;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.exception.InvalidInputException;
+import com.clashroyale.api.repository.Page;
+
+/* CRUD + cursor (keyset) pagination.
+ every page costs the same no matter how deep the client goes, because
+ the query continues from the sort key of the last row instead of using OFFSET */
+
+public interface PageableRepository<T> extends CrudRepository<T> {
+
+    //returns up to limit entities after the cursor (null cursor - first page)
+    //throws InvalidInputException if the cursor is broken
+    Page<T> getPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException;
+}
@@ -0,0 +1,53 @@
+package com.clashroyale.api.repository.interfaces;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.exception.PreconditionFailedException;
+import com.clashroyale.api.exception.ResourceNotFoundException;
+import com.clashroyale.api.model.Player;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+//player specific database operations on top of CRUD + paging.
+//PlayerService depends on this abstraction, not on the JDBC class (DIP)
+public interface PlayerRepositoryInterface extends PageableRepository<Player> {
+
+    //true if a player with exactly this name exists
+    boolean existsByName(String name) throws DatabaseException;
+
+    //update only if the row still has expectedVersion (null: any), PreconditionFailedException otherwise.
+    //the new version is set on the player
+    void update(int id, Player player, Long expectedVersion)
+            throws DatabaseException, ResourceNotFoundException, PreconditionFailedException;
+
+    //the same, and records trophyReset (a TrophyLedger reset) in trophy_ledger_flushes if the row is written
+    void update(int id, Player player, Long expectedVersion, String trophyReset)
+            throws DatabaseException, ResourceNotFoundException, PreconditionFailedException;
+
+    //deletes the player, returns the version of the delete (one above the last stored version)
+    long deleteReturningVersion(int id) throws ResourceNotFoundException, DatabaseException;
+
+    //atomically adds delta to trophies and returns the new row,
+    //null if the player would end up with negative trophies
+    Player addTrophies(int id, int delta) throws ResourceNotFoundException, DatabaseException;
+
+    //applies summed trophy deltas (write-behind ledger) in one transaction together with
+    //the journal segments they came from, results are clamped to 0
+    void applyTrophyDeltas(int[] playerIds, long[] deltas, List<String> segments) throws DatabaseException;
+
+    //which of the given journal segments were already committed
+    Set<String> findAppliedTrophySegments(List<String> segments) throws DatabaseException;
+
+    //forget committed journal segments older than the given number of days
+    void purgeAppliedTrophySegments(int olderThanDays) throws DatabaseException;
+
+    //walks all players with a database cursor, rows are not collected into a list
+    void streamAll(RowHandler handler) throws DatabaseException, IOException;
+
+    //streamAll on one snapshot, then returns which of the segments (asked for after the last row)
+    //that snapshot already contains
+    Set<String> streamAllWithAppliedSegments(RowHandler handler, Supplier<List<String>> segments)
+            throws DatabaseException, IOException;
+}
@@ -0,0 +1,12 @@
+package com.clashroyale.api.repository.interfaces;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+//receives rows one by one while the repository walks a database cursor.
+//the ResultSet is positioned on the current row and must not be stored
+@FunctionalInterface
+public interface RowHandler {
+    void handle(ResultSet row) throws SQLException, IOException;
+}
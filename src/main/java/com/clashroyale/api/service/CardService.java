@@ -1,146 +1,359 @@
 package com.clashroyale.api.service;
 
+import com.clashroyale.api.dto.NdjsonRowWriter;
+import com.clashroyale.api.model.BulkImportResult;
+import com.clashroyale.api.cache.BoundedCache;
 import com.clashroyale.api.model.Card;
 import com.clashroyale.api.repository.CardRepository;
+import com.clashroyale.api.repository.Page;
+import com.clashroyale.api.repository.UnitOfWork;
+import com.clashroyale.api.repository.Versioned;
+import com.clashroyale.api.service.catalog.CardCatalog;
+import com.clashroyale.api.service.catalog.CardChangeLog;
+import com.clashroyale.api.service.catalog.CardChanges;
+import com.clashroyale.api.service.catalog.CardQuery;
+import com.clashroyale.api.service.catalog.CardSearchResult;
+import com.clashroyale.api.service.events.ChangeEvent;
+import com.clashroyale.api.web.ChangeFeed;
 import com.clashroyale.api.service.interfaces.CardServiceInterface;
 import com.clashroyale.api.exception.*;
 import com.clashroyale.api.patterns.singleton.LoggerService;
 import com.clashroyale.api.patterns.singleton.CacheService;
+import com.clashroyale.api.patterns.observer.InvalidationBus;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 
 @Service
 public class CardService implements CardServiceInterface {
 
     private final CardRepository cardRepository;
+    private final UnitOfWork unitOfWork;
+    private final ChangeFeed changeFeed;
+    // tells the other instances that their catalog is stale
+    private final InvalidationBus invalidationBus;
     private final LoggerService logger = LoggerService.getInstance();
     private final CacheService cache = CacheService.getInstance();
 
-    private static final String ALL_CARDS_CACHE_KEY = "all_cards";
+    private static final String CATALOG_CACHE_KEY = "card_catalog";
+    private static final Duration CATALOG_TTL = Duration.ofMinutes(10);
+    private static final Duration CATALOG_REFRESH_AFTER = Duration.ofMinutes(8);
+    private static final int MAX_IMPORT_SIZE = 10_000;
+    private static final Duration MISSING_CARD_TTL = Duration.ofSeconds(30);
+    private static final int MAX_MISSING_CARDS = 10_000;
+
+    // writers apply their change to the snapshot in the same order as to the database
+    private final ReentrantLock catalogWriteLock = new ReentrantLock();
+    // what changed at which version, for GET /api/cards/changes
+    private final CardChangeLog changeLog = new CardChangeLog();
+    // last snapshot we built, a reload is compared with it to find changes made around this service
+    private volatile CardCatalog lastCatalog;
+    // ids above the catalog's highest id that the database didn't find either (negative cache)
+    private final BoundedCache<Integer, Boolean> missingCards = new BoundedCache<>(MAX_MISSING_CARDS, MISSING_CARD_TTL);
 
     @Autowired
-    public CardService(CardRepository cardRepository) {
+    public CardService(CardRepository cardRepository, UnitOfWork unitOfWork, ChangeFeed changeFeed,
+                       InvalidationBus invalidationBus) {
         this.cardRepository = cardRepository;
+        this.unitOfWork = unitOfWork;
+        this.changeFeed = changeFeed;
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(this::onInvalidation);
     }
 
     @Override
     public void createCard(Card card) throws InvalidInputException, DatabaseException {
-        logger.info("Creating card: " + card.getName());
+        logger.info("Creating card: {}", card.getName());
         card.validate();
-        cardRepository.create(card);
+        catalogWriteLock.lock();
+        try {
+            cardRepository.create(card);
+            long version = card.getVersion();
+            changeLog.record(card.getId(), version, false);
+            updateCatalog(version, catalog -> catalog.with(version, card));
+            changeFeed.publish(ChangeEvent.card(ChangeEvent.Action.CREATED, card, version));
+        } finally {
+            catalogWriteLock.unlock();
+        }
+
+        logger.info("Card created successfully: {}", card.getName());
+    }
 
-        // invalidate cache only after creating new card
-        cache.clear(ALL_CARDS_CACHE_KEY);
-        logger.info("Cache invalidated after card creation");
+    @Override
+    public void importCards(List<Card> cards, BulkImportResult result) throws InvalidInputException, DatabaseException {
+        logger.info("Importing {} cards", cards.size());
+        if (cards.isEmpty()) {
+            throw new InvalidInputException("Import must contain at least one card");
+        }
+        if (cards.size() > MAX_IMPORT_SIZE) {
+            throw new InvalidInputException("Import can't contain more than " + MAX_IMPORT_SIZE + " cards");
+        }
 
-        logger.info("Card created successfully: " + card.getName());
+        // validate every row, invalid rows are replaced with null so the repository skips them
+        List<Card> valid = new ArrayList<>(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            Card card = cards.get(i);
+            if (card == null || result.isRejected(i)) {
+                valid.add(null);
+                continue;
+            }
+            try {
+                card.validate();
+                valid.add(card);
+            } catch (InvalidInputException e) {
+                result.reject(i, e.getMessage());
+                valid.add(null);
+            }
+        }
+
+        String[] errors = new String[cards.size()];
+        catalogWriteLock.lock();
+        try {
+            int[] ids = cardRepository.createAll(valid, errors);
+            List<Card> created = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (valid.get(i) == null) {
+                    continue;
+                }
+                if (ids[i] != 0) {
+                    valid.get(i).setId(ids[i]);
+                    created.add(valid.get(i));
+                    result.created(i, ids[i]);
+                } else {
+                    result.reject(i, errors[i] != null ? errors[i] : "Card was not created");
+                }
+            }
+
+            // the whole import is one transaction with one catalog version: one patch of the snapshot
+            if (!created.isEmpty()) {
+                long version = created.get(0).getVersion();
+                for (Card card : created) {
+                    changeLog.record(card.getId(), version, false);
+                }
+                updateCatalog(version, catalog -> catalog.with(version, created));
+                for (Card card : created) {
+                    changeFeed.publish(ChangeEvent.card(ChangeEvent.Action.CREATED, card, version));
+                }
+            }
+        } finally {
+            catalogWriteLock.unlock();
+        }
+        logger.info("Card import finished: {} of {} created", result.getCreatedCount(), cards.size());
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public List<Card> getAllCards() throws DatabaseException {
         logger.info("Fetching all cards");
+        CardCatalog catalog = getCatalog();
+        return catalog.toCards(catalog.order(CardCatalog.SortOrder.DEFAULT));
+    }
 
-        if (cache.contains(ALL_CARDS_CACHE_KEY)) {
-            logger.info("Returning cards from cache");
-            return (List<Card>) cache.get(ALL_CARDS_CACHE_KEY).orElse(null);
+    //current snapshot of all cards. on a miss only one request goes to the database,
+    //refresh-ahead reloads it in the background before it expires
+    @Override
+    public CardCatalog getCatalog() throws DatabaseException {
+        return cache.getOrLoad(CATALOG_CACHE_KEY, CATALOG_TTL, CATALOG_REFRESH_AFTER, () -> {
+            logger.info("Cache miss - loading card catalog from database");
+            // under the write lock, so comparing with the last snapshot can't interleave with a write
+            catalogWriteLock.lock();
+            try {
+                // rows and catalog version from one database snapshot
+                Versioned<List<Card>> rows = cardRepository.getAllWithVersion();
+                if (lastCatalog != null && rows.getVersion() == lastCatalog.version()) {
+                    // nothing was written since (refresh-ahead of an unchanged catalog): keep the snapshot,
+                    // its ETags, encoded bodies and cursors stay valid
+                    return lastCatalog;
+                }
+                CardCatalog loaded = CardCatalog.of(rows.getVersion(), rows.getValue());
+                // cards changed by another instance: events for our subscribers. our own writes are
+                // already in the log and were published when they were made
+                CardCatalog previous = lastCatalog;
+                for (CardChangeLog.Change change : changeLog.recordDiff(previous, loaded)) {
+                    if (change.isDeleted()) {
+                        changeFeed.publish(ChangeEvent.cardDeleted(change.getCardId(), change.getVersion()));
+                        continue;
+                    }
+                    ChangeEvent.Action action = previous.indexOf(change.getCardId()) < 0
+                            ? ChangeEvent.Action.CREATED : ChangeEvent.Action.UPDATED;
+                    Card card = loaded.toCard(loaded.indexOf(change.getCardId()));
+                    changeFeed.publish(ChangeEvent.card(action, card, change.getVersion()));
+                }
+                lastCatalog = loaded;
+                return loaded;
+            } finally {
+                catalogWriteLock.unlock();
+            }
+        });
+    }
+
+    //cards changed after version since, or the whole catalog if the log doesn't reach back that far
+    //or the delta would be bigger than half of the catalog
+    @Override
+    public CardChanges getChanges(long since) throws DatabaseException {
+        CardCatalog catalog = getCatalog();
+        List<CardChangeLog.Change> changes = changeLog.since(since, catalog.version());
+        if (changes == null || changes.size() > catalog.size() / 2) {
+            logger.debug("Card changes since {}: full snapshot", since);
+            return CardChanges.snapshot(catalog);
         }
+        logger.debug("Card changes since {}: {} changes", since, changes.size());
+        return CardChanges.delta(catalog, changes);
+    }
 
-        // if not in cache, fetch from database
-        logger.info("Cache miss - fetching from database");
-        List<Card> cards = cardRepository.getAll();
+    @Override
+    public CardSearchResult searchCards(CardQuery query, int offset, int limit) throws InvalidInputException, DatabaseException {
+        query.validate();
+        if (offset < 0) {
+            throw new InvalidInputException("offset can't be negative");
+        }
+        CardSearchResult result = getCatalog().search(query, offset, limit);
+        logger.debug("Card search: {} hits, {} returned", result.getTotal(), result.getPositions().size());
+        return result;
+    }
 
-        // store in cache for future requests
-        cache.put(ALL_CARDS_CACHE_KEY, cards);
-        logger.info("Cards cached for future requests");
+    //pages go straight to the database, the keyset query is cheap for any page
+    @Override
+    public Page<Card> getCardsPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException {
+        logger.info("Fetching cards page (limit {})", limit);
+        return cardRepository.getPage(afterCursor, limit);
+    }
 
-        return cards;
+    //writes all cards as NDJSON directly from the database cursor, bypasses the cache
+    @Override
+    public void exportCards(OutputStream out) throws DatabaseException, IOException {
+        logger.info("Exporting all cards");
+        try (NdjsonRowWriter writer = new NdjsonRowWriter(out, NdjsonRowWriter.CARD_FIELDS)) {
+            cardRepository.streamAll(writer::writeRow);
+        }
     }
 
     @Override
     public Card getCardById(int id) throws ResourceNotFoundException, DatabaseException {
-        logger.info("Fetching card with ID: " + id);
-        return cardRepository.getById(id);
+        logger.info("Fetching card with ID: {}", id);
+        CardCatalog catalog = getCatalog();
+        int position = catalog.indexOf(id);
+        if (position >= 0) {
+            return catalog.toCard(position);
+        }
+        // ids are handed out in order, a missing id below the highest one is a deleted or never used id.
+        // a higher one may have just been added by another instance, that one is asked once
+        if (id <= catalog.maxId() || missingCards.contains(id)) {
+            throw ResourceNotFoundException.withoutStackTrace("Card with id " + id + " not found");
+        }
+        try {
+            return cardRepository.getById(id);
+        } catch (ResourceNotFoundException e) {
+            missingCards.put(id, Boolean.TRUE);
+            throw e;
+        }
     }
 
+    //no getById before the update: a missing card (404) or another version (412) is reported by the UPDATE itself
     @Override
-    public void updateCard(int id, Card card) throws InvalidInputException, ResourceNotFoundException, DatabaseException {
-        logger.info("Updating card with ID: " + id);
+    public void updateCard(int id, Card card, Long expectedVersion)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException, PreconditionFailedException {
+        logger.info("Updating card with ID: {}", id);
         card.validate();
-        Card existingCard = cardRepository.getById(id);
-        logger.debug("Found existing card: " + existingCard.getName());
-
-        cardRepository.update(id, card);
 
-        // invalidate cache after update
-        cache.clear(ALL_CARDS_CACHE_KEY);
-        logger.info("Cache invalidated after card update");
+        card.setId(id);
+        catalogWriteLock.lock();
+        try {
+            cardRepository.update(id, card, expectedVersion);
+            long version = card.getVersion();
+            changeLog.record(id, version, false);
+            updateCatalog(version, catalog -> catalog.with(version, card));
+            changeFeed.publish(ChangeEvent.card(ChangeEvent.Action.UPDATED, card, version));
+        } finally {
+            catalogWriteLock.unlock();
+        }
 
-        logger.info("Card updated successfully: " + card.getName());
+        logger.info("Card updated successfully: {}", card.getName());
     }
 
     @Override
     public void deleteCard(int id) throws ResourceNotFoundException, DatabaseException {
-        logger.info("Deleting card with ID: " + id);
-        Card card = cardRepository.getById(id);
-        logger.debug("Found card to delete: " + card.getName());
-
-        cardRepository.delete(id);
-
-        // invalidate cache after delete
-        cache.clear(ALL_CARDS_CACHE_KEY);
-        logger.info("Cache invalidated after card deletion");
+        logger.info("Deleting card with ID: {}", id);
+
+        catalogWriteLock.lock();
+        try {
+            // lookup and delete on one connection, committed before the snapshot changes
+            long version = unitOfWork.execute(() -> {
+                Card stored = cardRepository.getById(id);
+                logger.debug("Deleting card: {}", stored.getName());
+                return cardRepository.deleteReturningVersion(id);
+            });
+            changeLog.record(id, version, true);
+            updateCatalog(version, catalog -> catalog.without(version, id));
+            changeFeed.publish(ChangeEvent.cardDeleted(id, version));
+        } finally {
+            catalogWriteLock.unlock();
+        }
 
-        logger.info("Card deleted successfully (ID: " + id + ")");
+        logger.info("Card deleted successfully (ID: {})", id);
     }
 
     @Override
-    public void upgradeCard(int id) throws ResourceNotFoundException, DatabaseException, InvalidInputException {
-        logger.info("Upgrading card with ID: " + id);
-        Card card = cardRepository.getById(id);
-
-        if (!card.canUpgrade()) {
-            throw new InvalidInputException("Card '" + card.getName() +
-                    "' is already at max level (" + card.getLevel() + ")");
+    public Card upgradeCard(int id) throws ResourceNotFoundException, DatabaseException, InvalidInputException {
+        logger.info("Upgrading card with ID: {}", id);
+
+        // level check and increment in one UPDATE ... RETURNING
+        Card card;
+        catalogWriteLock.lock();
+        try {
+            card = cardRepository.upgradeLevel(id, Card.MAX_LEVEL);
+            if (card != null) {
+                Card upgraded = card;
+                long version = upgraded.getVersion();
+                changeLog.record(id, version, false);
+                updateCatalog(version, catalog -> catalog.with(version, upgraded));
+                changeFeed.publish(ChangeEvent.card(ChangeEvent.Action.UPDATED, upgraded, version));
+            }
+        } finally {
+            catalogWriteLock.unlock();
+        }
+        if (card == null) {
+            Card maxed = cardRepository.getById(id);
+            throw new InvalidInputException("Card '" + maxed.getName() +
+                    "' is already at max level (" + maxed.getLevel() + ")");
         }
 
-        int oldLevel = card.getLevel();
-        card.upgrade();
-        cardRepository.update(id, card);
-
-        // invalidate cache after upgrade
-        cache.clear(ALL_CARDS_CACHE_KEY);
-        logger.info("Cache invalidated after card upgrade");
-
-        logger.info(" Card upgraded: " + card.getName() +
-                " from level " + oldLevel + " to " + card.getLevel());
+        logger.info(" Card upgraded: {} from level {} to {}", card.getName(), card.getLevel() - 1, card.getLevel());
+        return card;
     }
 
     @Override
     public List<Card> getCardsByType(String type) throws DatabaseException {
-        logger.info("Fetching cards by type: " + type);
+        logger.info("Fetching cards by type: {}", type);
 
         if (!isValidCardType(type)) {
-            logger.error("Invalid card type: " + type);
+            logger.error("Invalid card type: {}", type);
             throw new DatabaseException("Invalid card type. Must be WARRIOR, SPELL, or BUILDING");
         }
 
-        return cardRepository.getByType(type);
+        CardCatalog catalog = getCatalog();
+        return catalog.toCards(catalog.ofType(CardCatalog.typeCode(type)));
     }
 
     @Override
     public List<Card> getCardsByRarity(String rarity) throws DatabaseException {
-        logger.info("Fetching cards by rarity: " + rarity);
+        logger.info("Fetching cards by rarity: {}", rarity);
 
         if (!isValidRarity(rarity)) {
-            logger.error("Invalid rarity: " + rarity);
+            logger.error("Invalid rarity: {}", rarity);
             throw new DatabaseException("Invalid rarity. Must be COMMON, RARE, EPIC, or LEGENDARY");
         }
 
-        return cardRepository.getByRarity(rarity);
+        CardCatalog catalog = getCatalog();
+        return catalog.toCards(catalog.ofRarity(CardCatalog.rarityCode(rarity)));
     }
 
     private boolean isValidCardType(String type) {
@@ -160,7 +373,49 @@ public class CardService implements CardServiceInterface {
 
     //manually clear cache (for admins)
     public void clearCache() {
-        cache.clear(ALL_CARDS_CACHE_KEY);
+        cache.clear(CATALOG_CACHE_KEY);
+        invalidationBus.publish(CATALOG_CACHE_KEY);
         logger.info("Cache manually cleared by admin");
     }
+
+    //another instance changed cards: drop our snapshot and load the new one right away,
+    //so our ETags catch up before the next conditional GET
+    private void onInvalidation(Set<String> keys) {
+        if (!keys.contains(CATALOG_CACHE_KEY) && !keys.contains(InvalidationBus.ALL)) {
+            return;
+        }
+        logger.info("Card catalog changed on another instance, reloading");
+        cache.clear(CATALOG_CACHE_KEY);
+        missingCards.invalidateAll();
+        try {
+            getCatalog();
+        } catch (DatabaseException e) {
+            // the next read loads it
+            logger.error("Failed to reload card catalog: {}", e.getMessage());
+        }
+    }
+
+    // swaps the cached snapshot for a changed copy. must run under catalogWriteLock, right after
+    // the database write (which returned version) and the change log record. the copy is only the
+    // database state at version if the snapshot is the state right before it: if another instance wrote
+    // in between, the snapshot is dropped and the next read loads it. if no snapshot is cached the next
+    // read loads one too. the other instances drop theirs and reload
+    private void updateCatalog(long version, UnaryOperator<CardCatalog> change) {
+        boolean[] missedWrite = new boolean[1];
+        cache.update(CATALOG_CACHE_KEY, (CardCatalog catalog) -> {
+            if (catalog.version() + 1 != version) {
+                missedWrite[0] = true;
+                return catalog;
+            }
+            CardCatalog changed = change.apply(catalog);
+            changeLog.snapshot(version);
+            lastCatalog = changed;
+            return changed;
+        });
+        if (missedWrite[0]) {
+            cache.clear(CATALOG_CACHE_KEY);
+        }
+        invalidationBus.publish(CATALOG_CACHE_KEY);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.clashroyale.api.service;
+
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.Deck;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.patterns.builder.DeckBuilder;
+import com.clashroyale.api.repository.CardRepository;
+import com.clashroyale.api.repository.DeckRepository;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import com.clashroyale.api.service.interfaces.DeckServiceInterface;
+import com.clashroyale.api.exception.*;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class DeckService implements DeckServiceInterface {
+
+    private static final int DECK_SIZE = 8;
+
+    private final DeckRepository deckRepository;
+    private final CardRepository cardRepository;
+    private final PlayerRepositoryInterface playerRepository;
+    private final LoggerService logger = LoggerService.getInstance();
+
+    @Autowired
+    public DeckService(DeckRepository deckRepository, CardRepository cardRepository,
+                       PlayerRepositoryInterface playerRepository) {
+        this.deckRepository = deckRepository;
+        this.cardRepository = cardRepository;
+        this.playerRepository = playerRepository;
+    }
+
+    @Override
+    public Deck createDeck(int playerId, String deckName, List<Integer> cardIds)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+        logger.info("Creating deck {} for player {}", deckName, playerId);
+
+        playerRepository.getById(playerId); // throws ResourceNotFoundException
+        Deck deck = buildDeck(0, playerId, deckName, cardIds);
+        deckRepository.create(deck);
+
+        logger.info("Deck created with ID: {}", deck.getId());
+        return deck;
+    }
+
+    @Override
+    public List<Deck> getAllDecks() throws DatabaseException {
+        logger.info("Showing all decks");
+        return deckRepository.getAll();
+    }
+
+    @Override
+    public List<Deck> getDecksByPlayer(int playerId) throws DatabaseException {
+        logger.info("Showing decks of player {}", playerId);
+        List<Deck> decks = deckRepository.getByPlayerIds(new int[]{playerId}).get(playerId);
+        return decks != null ? decks : new ArrayList<>();
+    }
+
+    @Override
+    public Deck getDeckById(int id) throws ResourceNotFoundException, DatabaseException {
+        logger.info("Showing deck with ID: {}", id);
+        return deckRepository.getById(id);
+    }
+
+    @Override
+    public Deck updateDeck(int id, String deckName, List<Integer> cardIds)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+        logger.info("updating deck...");
+
+        Deck stored = deckRepository.getById(id);
+        Deck deck = buildDeck(id, stored.getPlayerId(), deckName, cardIds);
+        deckRepository.update(id, deck);
+
+        logger.info(" Deck updated: {}", deck.getDeckName());
+        return deck;
+    }
+
+    @Override
+    public void deleteDeck(int id) throws ResourceNotFoundException, DatabaseException {
+        logger.info("deleting deck...");
+        deckRepository.delete(id);
+        logger.info("Deck deleted with ID: {}", id);
+    }
+
+    @Override
+    public void attachDecks(List<Player> players) throws DatabaseException {
+        if (players.isEmpty()) {
+            return;
+        }
+        int[] ids = new int[players.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = players.get(i).getId();
+        }
+
+        Map<Integer, List<Deck>> decks = deckRepository.getByPlayerIds(ids);
+        for (Player player : players) {
+            List<Deck> own = decks.get(player.getId());
+            // Player holds one deck, the oldest one is the main deck
+            player.setDeck(own != null ? own.get(0) : null);
+        }
+    }
+
+    // checks the ids, loads all 8 cards with one query and builds the deck
+    private Deck buildDeck(int id, int playerId, String deckName, List<Integer> cardIds)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+        if (deckName == null || deckName.isBlank()) {
+            throw new InvalidInputException("Deck name can't be empty");
+        }
+        if (cardIds == null || cardIds.size() != DECK_SIZE) {
+            throw new InvalidInputException("Deck must have exactly " + DECK_SIZE + " cards");
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        int[] ids = new int[DECK_SIZE];
+        for (int i = 0; i < DECK_SIZE; i++) {
+            Integer cardId = cardIds.get(i);
+            if (cardId == null) {
+                throw new InvalidInputException("Card id can't be null");
+            }
+            if (!seen.add(cardId)) {
+                throw new InvalidInputException("Card " + cardId + " is in the deck twice");
+            }
+            ids[i] = cardId;
+        }
+
+        Map<Integer, Card> cards = cardRepository.getByIds(ids);
+        List<Card> ordered = new ArrayList<>(DECK_SIZE);
+        for (int cardId : ids) {
+            Card card = cards.get(cardId);
+            if (card == null) {
+                throw new ResourceNotFoundException("Card with id " + cardId + " not found");
+            }
+            ordered.add(card);
+        }
+
+        return DeckBuilder.builder()
+                .id(id)
+                .playerId(playerId)
+                .name(deckName)
+                .cards(ordered)
+                .build();
+    }
+}
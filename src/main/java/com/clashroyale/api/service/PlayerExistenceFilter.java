@@ -0,0 +1,234 @@
+package com.clashroyale.api.service;
+
+import com.clashroyale.api.cache.BloomFilter;
+import com.clashroyale.api.cache.BoundedCache;
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.patterns.observer.InvalidationBus;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Answers "does this player id / name exist?" without the database, for lookups of ids that don't exist.
+ *
+ * Bloom filters of all ids and names are built from the database on startup and periodically, players
+ * created here and ids other instances announce on the invalidation bus are added right away.
+ * The id filter is only trusted up to the highest id seen in the database by the last rebuild, local
+ * creates don't raise it: a lower id may have been created by another instance in between. Misses
+ * above it go to the database once and are then remembered for a few seconds (negative cache).
+ *
+ * The filters only give false positives (a deleted player still "may exist"), which cost a database
+ * lookup like before.
+ */
+@Service
+public class PlayerExistenceFilter {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // room for players created before the next rebuild
+    private static final double GROWTH_HEADROOM = 1.5;
+    private static final String PLAYER_KEY_PREFIX = "player:";
+
+    private final PlayerRepositoryInterface playerRepository;
+    private final boolean enabled;
+    private final BoundedCache<Integer, Boolean> absentIds;
+    private final LoggerService logger = LoggerService.getInstance();
+
+    private volatile Filters filters;
+    // players created while a rebuild reads the database, added to the new filters before the swap
+    private List<Created> createdDuringRebuild;
+    private final Object rebuildLock = new Object();
+
+    @Autowired
+    public PlayerExistenceFilter(PlayerRepositoryInterface playerRepository, InvalidationBus invalidationBus,
+                                 @Value("${cardbattle.players.existence.enabled:true}") boolean enabled,
+                                 @Value("${cardbattle.players.existence.negative-ttl-seconds:30}") long negativeTtlSeconds,
+                                 @Value("${cardbattle.players.existence.negative-max-size:100000}") long negativeMaxSize) {
+        this.playerRepository = playerRepository;
+        this.enabled = enabled;
+        this.absentIds = new BoundedCache<>(negativeMaxSize, Duration.ofSeconds(negativeTtlSeconds));
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (DatabaseException | IOException e) {
+            logger.error("Player existence filter build failed, lookups go to the database: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cardbattle.players.existence.rebuild-interval-ms:600000}",
+            initialDelayString = "${cardbattle.players.existence.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        buildOnStartup();
+    }
+
+    //reads all ids and names with a database cursor into new filters and swaps them in
+    public void rebuild() throws DatabaseException, IOException {
+        synchronized (rebuildLock) {
+            createdDuringRebuild = new ArrayList<>();
+        }
+
+        // hashes are collected first, the filters are sized once the number of players is known
+        long[][] buffers = {new long[1024], new long[1024]};
+        int[] count = {0};
+        int[] maxId = {0};
+        try {
+            playerRepository.streamAll(row -> {
+                int i = count[0]++;
+                if (i == buffers[0].length) {
+                    buffers[0] = Arrays.copyOf(buffers[0], i * 2);
+                    buffers[1] = Arrays.copyOf(buffers[1], i * 2);
+                }
+                int id = row.getInt("id");
+                buffers[0][i] = BloomFilter.hash(id);
+                buffers[1][i] = BloomFilter.hash(row.getString("name"));
+                maxId[0] = Math.max(maxId[0], id);
+            });
+        } catch (DatabaseException | IOException e) {
+            synchronized (rebuildLock) {
+                createdDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        long expected = (long) (Math.max(count[0], 1024) * GROWTH_HEADROOM);
+        Filters built = new Filters(new BloomFilter(expected, FALSE_POSITIVE_RATE),
+                new BloomFilter(expected, FALSE_POSITIVE_RATE), maxId[0]);
+        for (int i = 0; i < count[0]; i++) {
+            built.ids.put(buffers[0][i]);
+            built.names.put(buffers[1][i]);
+        }
+
+        synchronized (rebuildLock) {
+            for (Created created : createdDuringRebuild) {
+                built.add(created);
+            }
+            createdDuringRebuild = null;
+            filters = built;
+        }
+        logger.info("Player existence filter built: {} players, max id {}", count[0], maxId[0]);
+    }
+
+    //true only if the player certainly doesn't exist, false means "ask the database"
+    public boolean isKnownAbsent(int id) {
+        Filters current = filters;
+        if (current != null && id > 0 && id <= current.maxId && !current.ids.mightContain(BloomFilter.hash(id))) {
+            return true;
+        }
+        return absentIds.contains(id);
+    }
+
+    //false only if no player has this name, true means "ask the database"
+    public boolean mightExist(String name) {
+        Filters current = filters;
+        return current == null || current.names.mightContain(BloomFilter.hash(name));
+    }
+
+    //the database said there is no such player
+    public void recordAbsent(int id) {
+        if (enabled) {
+            absentIds.put(id, Boolean.TRUE);
+        }
+    }
+
+    public void recordCreated(int id, String name) {
+        absentIds.invalidate(id);
+        Created created = new Created(id, name);
+        synchronized (rebuildLock) {
+            if (createdDuringRebuild != null) {
+                createdDuringRebuild.add(created);
+            }
+            if (filters != null) {
+                filters.add(created);
+            }
+        }
+    }
+
+    //renamed player: the new name exists from now on (the old one stays a false positive)
+    public void recordName(String name) {
+        Filters current = filters;
+        if (current != null) {
+            current.names.put(BloomFilter.hash(name));
+        }
+    }
+
+    // another instance wrote a player: it may exist now (a deleted one only becomes a false positive)
+    private void onInvalidation(Set<String> keys) {
+        if (keys.contains(InvalidationBus.ALL)) {
+            absentIds.invalidateAll();
+            return;
+        }
+        for (String key : keys) {
+            if (key.startsWith(PLAYER_KEY_PREFIX)) {
+                try {
+                    int id = Integer.parseInt(key.substring(PLAYER_KEY_PREFIX.length()));
+                    absentIds.invalidate(id);
+                    recordId(id);
+                } catch (NumberFormatException e) {
+                    logger.error("Invalid player invalidation key: {}", key);
+                }
+            }
+        }
+    }
+
+    // into the current filters and into the ones a running rebuild builds
+    private void recordId(int id) {
+        Created created = new Created(id, null);
+        synchronized (rebuildLock) {
+            if (createdDuringRebuild != null) {
+                createdDuringRebuild.add(created);
+            }
+            if (filters != null) {
+                filters.add(created);
+            }
+        }
+    }
+
+    private static final class Filters {
+        private final BloomFilter ids;
+        private final BloomFilter names;
+        // highest id in the database when the filters were built, never raised by local creates
+        private final int maxId;
+
+        Filters(BloomFilter ids, BloomFilter names, int maxId) {
+            this.ids = ids;
+            this.names = names;
+            this.maxId = maxId;
+        }
+
+        void add(Created created) {
+            ids.put(BloomFilter.hash(created.id));
+            if (created.name != null) {
+                names.put(BloomFilter.hash(created.name));
+            }
+        }
+    }
+
+    // name is null for ids announced by other instances
+    private static final class Created {
+        private final int id;
+        private final String name;
+
+        Created(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
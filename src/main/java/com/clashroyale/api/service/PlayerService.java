@@ -1,26 +1,56 @@
 package com.clashroyale.api.service;
 
+import com.clashroyale.api.cache.CacheStats;
 import com.clashroyale.api.model.Player;
-import com.clashroyale.api.repository.interfaces.CrudRepository;
+import com.clashroyale.api.repository.CachingPlayerRepository;
+import com.clashroyale.api.repository.Page;
+import com.clashroyale.api.repository.UnitOfWork;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import com.clashroyale.api.dto.NdjsonRowWriter;
+import com.clashroyale.api.service.events.ChangeEvent;
 import com.clashroyale.api.service.interfaces.PlayerServiceInterface;
+import com.clashroyale.api.service.leaderboard.LeaderboardService;
+import com.clashroyale.api.service.ledger.TrophyLedger;
 import com.clashroyale.api.exception.*;
 import com.clashroyale.api.patterns.singleton.LoggerService;
+import com.clashroyale.api.web.ChangeFeed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 //business logic for players.  demonstrates SRP and DIP
 @Service
 public class PlayerService implements PlayerServiceInterface {
 
-    private final CrudRepository<Player> playerRepository;
+    private final PlayerRepositoryInterface playerRepository;
+    private final UnitOfWork unitOfWork;
+    private final TrophyLedger trophyLedger;
+    private final LeaderboardService leaderboard;
+    private final ChangeFeed changeFeed;
+    // ids and names that certainly don't exist are answered without the database
+    private final PlayerExistenceFilter existence;
+    // writes to one player that check and write without another write in between synchronize on a stripe
+    private static final int LOCK_STRIPES = 64;
+    private final Object[] locks = new Object[LOCK_STRIPES];
     private final LoggerService logger = LoggerService.getInstance();
 
     // Demonstrates DIP High-level module Service don't depend on low-level modules Repository
-    // Spring pass implementation of CrudRepository automatically
+    // Spring pass implementation of PlayerRepositoryInterface automatically
     @Autowired
-    public PlayerService(CrudRepository<Player> playerRepository) {
+    public PlayerService(PlayerRepositoryInterface playerRepository, UnitOfWork unitOfWork, TrophyLedger trophyLedger,
+                         LeaderboardService leaderboard, ChangeFeed changeFeed,
+                         PlayerExistenceFilter existence) {
         this.playerRepository = playerRepository;
+        this.unitOfWork = unitOfWork;
+        this.trophyLedger = trophyLedger;
+        this.leaderboard = leaderboard;
+        this.changeFeed = changeFeed;
+        this.existence = existence;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
     }
 
     //create player with validation and logging
@@ -29,9 +59,20 @@ public class PlayerService implements PlayerServiceInterface {
         logger.info("Creating player... ");
 
         player.validate(); // business rule: validate before creating
-        playerRepository.create(player); //delegate to repository for database operation
-
-        logger.info(" Player created: " + player.getName());
+        // a name the filter has never seen is new, only a possible duplicate costs a lookup (same connection
+        // as the insert). the unique constraint still catches two creates racing for the same name
+        unitOfWork.execute(() -> {
+            if (existence.mightExist(player.getName()) && playerRepository.existsByName(player.getName())) {
+                throw new DuplicateResourceException("Player with name " + player.getName() + " already exists");
+            }
+            playerRepository.create(player); //delegate to repository for database operation
+            return null;
+        });
+        existence.recordCreated(player.getId(), player.getName());
+        leaderboard.update(player);
+        changeFeed.publish(ChangeEvent.player(ChangeEvent.Action.CREATED, player, player.getVersion()));
+
+        logger.info(" Player created: {}", player.getName());
     }
 
     //list all players with logging
@@ -41,38 +82,167 @@ public class PlayerService implements PlayerServiceInterface {
         return playerRepository.getAll();
     }
 
+    @Override
+    public Page<Player> getPlayersPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException {
+        logger.info("Showing players page (limit {})", limit);
+        return playerRepository.getPage(afterCursor, limit);
+    }
+
+    //writes all players as NDJSON directly from the database cursor
+    @Override
+    public void exportPlayers(OutputStream out) throws DatabaseException, IOException {
+        logger.info("Exporting all players...");
+        try (NdjsonRowWriter writer = new NdjsonRowWriter(out, NdjsonRowWriter.PLAYER_FIELDS)) {
+            playerRepository.streamAll(writer::writeRow);
+        }
+    }
+
     @Override
     public Player getPlayerById(int id) throws ResourceNotFoundException, DatabaseException {
-        logger.info("Showing player with ID: " + id);
-        return playerRepository.getById(id);
+        logger.info("Showing player with ID: {}", id);
+        checkNotKnownAbsent(id);
+        try {
+            // stored value and pending grants from the same side of a ledger flush
+            return trophyLedger.readStable(() -> withPendingTrophies(playerRepository.getById(id)));
+        } catch (ResourceNotFoundException e) {
+            existence.recordAbsent(id);
+            throw e;
+        }
     }
 
     @Override
-    public void updatePlayer(int id, Player player) throws InvalidInputException, ResourceNotFoundException, DatabaseException {
+    public CacheStats getCacheStats() throws ResourceNotFoundException {
+        if (playerRepository instanceof CachingPlayerRepository caching) {
+            return caching.stats();
+        }
+        throw new ResourceNotFoundException("Player cache is disabled (cardbattle.players.cache.enabled)");
+    }
+
+    @Override
+    public void updatePlayer(int id, Player player, Long expectedVersion)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException, PreconditionFailedException {
         logger.info("updating player...");
 
         player.validate(); // business rule: validate before updating
-        playerRepository.update(id, player);
-
-        logger.info(" Player updated: " + player.getName());
+        // the version check is the UPDATE's WHERE, the lock only keeps grants of this instance out
+        synchronized (lockFor(id)) {
+            if (trophyLedger.isEnabled()) {
+                // copies with unwritten grants have no ETag, so an If-Match can't be for this state
+                if (expectedVersion != null && trophyLedger.pending(id) != 0) {
+                    throw new PreconditionFailedException("Player " + id + " was changed by someone else");
+                }
+                // the new value replaces this player's unwritten grants, otherwise a flush would add them on top
+                try (TrophyLedger.Reset reset = trophyLedger.reset(id)) {
+                    playerRepository.update(id, player, expectedVersion, reset.getName());
+                    reset.written();
+                }
+            } else {
+                playerRepository.update(id, player, expectedVersion);
+            }
+            existence.recordName(player.getName());
+            Player updated = new Player(id, player.getName(), player.getLevel(), player.getTrophies());
+            updated.setVersion(player.getVersion());
+            leaderboard.update(updated);
+            changeFeed.publish(ChangeEvent.player(ChangeEvent.Action.UPDATED, updated, updated.getVersion()));
+        }
+
+        logger.info(" Player updated: {}", player.getName());
     }
 
     @Override
     public void deletePlayer(int id) throws ResourceNotFoundException, DatabaseException {
         logger.info("deleting player...");
-        playerRepository.delete(id);
-        logger.info("Player deleted with ID: " + id);
+        synchronized (lockFor(id)) {
+            long version = playerRepository.deleteReturningVersion(id);
+            existence.recordAbsent(id);
+            leaderboard.remove(id);
+            changeFeed.publish(ChangeEvent.playerDeleted(id, version));
+        }
+        logger.info("Player deleted with ID: {}", id);
     }
 
     @Override
-    public void addTrophies(int playerId, int trophies) throws ResourceNotFoundException, DatabaseException {
+    public Player addTrophies(int playerId, int trophies)
+            throws ResourceNotFoundException, DatabaseException, InvalidInputException {
         logger.info("Adding trophies...");
+        checkNotKnownAbsent(playerId);
+
+        Player player;
+        try {
+            synchronized (lockFor(playerId)) {
+                if (trophyLedger.isEnabled()) {
+                    // version 0: the grant is not written yet, this state has no stored version
+                    player = addTrophiesWriteBehind(playerId, trophies);
+                    changeFeed.publish(ChangeEvent.player(ChangeEvent.Action.UPDATED, player, player.getVersion()));
+                    return player;
+                }
+
+                // one atomic UPDATE ... RETURNING, no read-modify-write
+                player = playerRepository.addTrophies(playerId, trophies);
+                if (player == null) {
+                    throw new InvalidInputException("Trophies can't be negative: player " + playerId +
+                            " doesn't have " + (-trophies) + " trophies");
+                }
+                leaderboard.update(player);
+                changeFeed.publish(ChangeEvent.player(ChangeEvent.Action.UPDATED, player, player.getVersion()));
+            }
+        } catch (ResourceNotFoundException e) {
+            existence.recordAbsent(playerId);
+            throw e;
+        }
+
+        logger.info(" Added {} trophies to {} Total: {}", trophies, player.getName(), player.getTrophies());
+        return player;
+    }
+
+    // write-behind: the grant is journaled and kept in memory, the ledger writes it to the database later.
+    // the database clamps the final value at 0 in case two concurrent removals both passed this check
+    private Player addTrophiesWriteBehind(int playerId, int trophies)
+            throws ResourceNotFoundException, DatabaseException, InvalidInputException {
+        int[] pending = new int[1];
+        Player stored = trophyLedger.readStable(() -> {
+            Player player = playerRepository.getById(playerId);
+            pending[0] = trophyLedger.pending(playerId);
+            return player;
+        });
+        int current = stored.getTrophies() + pending[0];
+        if ((long) current + trophies < 0) {
+            throw new InvalidInputException("Trophies can't be negative: player " + playerId +
+                    " doesn't have " + (-trophies) + " trophies");
+        }
+
+        trophyLedger.add(playerId, trophies);
+
+        Player player = new Player(stored.getId(), stored.getName(), stored.getLevel(), current + trophies);
+        leaderboard.update(player);
+        logger.info(" Added {} trophies to {} Total: {} (pending write)", trophies, stored.getName(), current + trophies);
+        return player;
+    }
+
+    // stored value + grants that the ledger has not written yet. returns a copy, the stored object is not changed.
+    // the copy has version 0: it is no stored state, so it gets no ETag
+    private Player withPendingTrophies(Player player) {
+        if (!trophyLedger.isEnabled()) {
+            return player;
+        }
+        int pending = trophyLedger.pending(player.getId());
+        if (pending == 0) {
+            return player;
+        }
+        Player merged = new Player(player.getId(), player.getName(), player.getLevel(),
+                Math.max(0, player.getTrophies() + pending));
+        merged.setDeck(player.getDeck());
+        return merged;
+    }
 
-        Player player = playerRepository.getById(playerId);
-        player.setTrophies(player.getTrophies() + trophies);
-        playerRepository.update(playerId, player);
+    private Object lockFor(int id) {
+        return locks[Math.floorMod(id, LOCK_STRIPES)];
+    }
 
-        logger.info(" Added " + trophies + " trophies to " + player.getName() +
-                " Total: " + player.getTrophies());
+    // ids that certainly don't exist get their 404 without the database and without a stack trace
+    private void checkNotKnownAbsent(int id) throws ResourceNotFoundException {
+        if (existence.isKnownAbsent(id)) {
+            throw ResourceNotFoundException.withoutStackTrace("Player with id: " + id + " doesn't exist");
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,465 @@
+package com.clashroyale.api.service.catalog;
+
+import com.clashroyale.api.cache.Weighted;
+import com.clashroyale.api.model.BuildingCard;
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.SpellCard;
+import com.clashroyale.api.model.WarriorCard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of all cards, stored column by column (struct of arrays).
+ *
+ * Position i in every column is the i-th card in the default order (level DESC, name ASC, id ASC),
+ * the same order as GET /api/cards. Type and rarity are byte codes, rarity text is shared between
+ * cards, so a card costs a few dozen bytes plus its name instead of a Card object graph.
+ * Other sort orders and the per-type / per-rarity indexes are computed once when the snapshot is built.
+ *
+ * A snapshot never changes after construction: writers build a new one (with / without) and swap it,
+ * readers keep using the one they have without locking or copying. The bitmap search index
+ * is the only lazily built part.
+ */
+public final class CardCatalog implements Weighted {
+
+    public static final byte WARRIOR = 0;
+    public static final byte SPELL = 1;
+    public static final byte BUILDING = 2;
+
+    public static final byte COMMON = 0;
+    public static final byte RARE = 1;
+    public static final byte EPIC = 2;
+    public static final byte LEGENDARY = 3;
+    //rarity that is none of the four above, its text is still kept
+    public static final byte OTHER_RARITY = 4;
+
+    //same strings as Card.getType() of WarriorCard, SpellCard and BuildingCard
+    private static final String[] TYPE_NAMES = {"WARRIOR", "Spell", "Building"};
+    private static final String[] RARITY_NAMES = {"COMMON", "RARE", "EPIC", "LEGENDARY"};
+
+    public enum SortOrder {
+        //level DESC, name ASC - the order of the columns themselves
+        DEFAULT,
+        ID,
+        NAME,
+        //elixir ASC, then default order
+        ELIXIR
+    }
+
+    private final long version;
+    private final int size;
+
+    private final int[] ids;
+    private final String[] names;
+    private final byte[] types;
+    private final byte[] rarities;
+    private final String[] rarityLabels;
+    private final int[] elixirCosts;
+    private final int[] levels;
+    private final int[] damages;
+    private final int[] hps;
+    private final int[] radii;
+    private final int[] lifetimes;
+    // version of each card's last write (card ETag), never above the snapshot version
+    private final long[] versions;
+
+    private final PositionList all;
+    private final int[] idOrder;
+    private final PositionList byId;
+    private final PositionList byName;
+    private final PositionList byElixir;
+    private final PositionList[] byType;
+    private final PositionList[] byRarity;
+    //built on the first search, a snapshot that is never searched doesn't pay for it
+    private volatile CardSearchIndex searchIndex;
+
+    private CardCatalog(long version, Rows rows) {
+        this.version = version;
+        this.size = rows.size;
+
+        // default order first, every column is written in it
+        Integer[] order = boxedRange(size);
+        Arrays.sort(order, Comparator
+                .comparingInt((Integer row) -> -rows.levels[row])
+                .thenComparing(row -> rows.names[row])
+                .thenComparingInt(row -> rows.ids[row]));
+
+        ids = new int[size];
+        names = new String[size];
+        types = new byte[size];
+        rarities = new byte[size];
+        rarityLabels = new String[size];
+        elixirCosts = new int[size];
+        levels = new int[size];
+        damages = new int[size];
+        hps = new int[size];
+        radii = new int[size];
+        lifetimes = new int[size];
+        versions = new long[size];
+        Map<String, String> labels = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            ids[i] = rows.ids[row];
+            names[i] = rows.names[row];
+            types[i] = rows.types[row];
+            rarities[i] = rarityCodeOrOther(rows.rarityLabels[row]);
+            rarityLabels[i] = rows.rarityLabels[row] == null ? null
+                    : labels.computeIfAbsent(rows.rarityLabels[row], label -> label);
+            elixirCosts[i] = rows.elixirCosts[row];
+            levels[i] = rows.levels[row];
+            damages[i] = rows.damages[row];
+            hps[i] = rows.hps[row];
+            radii[i] = rows.radii[row];
+            lifetimes[i] = rows.lifetimes[row];
+            versions[i] = rows.versions[row];
+        }
+
+        int[] identity = new int[size];
+        for (int i = 0; i < size; i++) {
+            identity[i] = i;
+        }
+        all = new PositionList(identity);
+        idOrder = sortByKey(ids);
+        byId = new PositionList(idOrder);
+        byElixir = new PositionList(sortByKey(elixirCosts));
+
+        Integer[] nameOrder = boxedRange(size);
+        Arrays.sort(nameOrder, Comparator.comparing((Integer position) -> names[position])
+                .thenComparingInt(position -> position));
+        int[] nameOrderPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            nameOrderPositions[i] = nameOrder[i];
+        }
+        byName = new PositionList(nameOrderPositions);
+
+        byType = group(types, TYPE_NAMES.length);
+        byRarity = group(rarities, RARITY_NAMES.length);
+    }
+
+    public static CardCatalog empty(long version) {
+        return new CardCatalog(version, new Rows(0));
+    }
+
+    public static CardCatalog of(long version, Collection<? extends Card> cards) {
+        Rows rows = new Rows(cards.size());
+        for (Card card : cards) {
+            rows.add(card);
+        }
+        return new CardCatalog(version, rows);
+    }
+
+    //new snapshot where the given cards are added, or replace the cards with the same id
+    public CardCatalog with(long version, Collection<? extends Card> cards) {
+        Set<Integer> replaced = new HashSet<>();
+        for (Card card : cards) {
+            replaced.add(card.getId());
+        }
+        Rows rows = new Rows(size + cards.size());
+        for (int i = 0; i < size; i++) {
+            if (!replaced.contains(ids[i])) {
+                rows.add(this, i);
+            }
+        }
+        for (Card card : cards) {
+            rows.add(card);
+        }
+        return new CardCatalog(version, rows);
+    }
+
+    public CardCatalog with(long version, Card card) {
+        return with(version, List.of(card));
+    }
+
+    //new snapshot without the card, the same snapshot if there is no such card
+    public CardCatalog without(long version, int id) {
+        int removed = indexOf(id);
+        if (removed < 0) {
+            return this;
+        }
+        Rows rows = new Rows(size - 1);
+        for (int i = 0; i < size; i++) {
+            if (i != removed) {
+                rows.add(this, i);
+            }
+        }
+        return new CardCatalog(version, rows);
+    }
+
+    //catalog version from the database: increases with every change, equal versions mean equal content
+    public long version() { return version; }
+
+    public int size() { return size; }
+
+    //cache weight: one per card
+    @Override
+    public int weight() { return Math.max(1, size); }
+
+    //highest card id in the snapshot, 0 if it is empty
+    public int maxId() {
+        return size == 0 ? 0 : ids[idOrder[size - 1]];
+    }
+
+    //position of the card with this id, -1 if there is none
+    public int indexOf(int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = ids[idOrder[middle]];
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return idOrder[middle];
+            }
+        }
+        return -1;
+    }
+
+    // columns, position is 0 <= position < size()
+    public int id(int position) { return ids[position]; }
+    public String name(int position) { return names[position]; }
+    public byte typeCode(int position) { return types[position]; }
+    public String type(int position) { return TYPE_NAMES[types[position]]; }
+    public byte rarityCode(int position) { return rarities[position]; }
+    public String rarity(int position) { return rarityLabels[position]; }
+    public int elixirCost(int position) { return elixirCosts[position]; }
+    public int level(int position) { return levels[position]; }
+    public int damage(int position) { return damages[position]; }
+    public int hp(int position) { return hps[position]; }
+    public int radius(int position) { return radii[position]; }
+    public int lifetime(int position) { return lifetimes[position]; }
+    public long cardVersion(int position) { return versions[position]; }
+
+    //all positions in the given order
+    public PositionList order(SortOrder order) {
+        return switch (order) {
+            case DEFAULT -> all;
+            case ID -> byId;
+            case NAME -> byName;
+            case ELIXIR -> byElixir;
+        };
+    }
+
+    //same values in all columns but the version (used to find what a reload from the database changed)
+    public boolean sameCard(int position, CardCatalog other, int otherPosition) {
+        return ids[position] == other.ids[otherPosition]
+                && names[position].equals(other.names[otherPosition])
+                && types[position] == other.types[otherPosition]
+                && Objects.equals(rarityLabels[position], other.rarityLabels[otherPosition])
+                && elixirCosts[position] == other.elixirCosts[otherPosition]
+                && levels[position] == other.levels[otherPosition]
+                && damages[position] == other.damages[otherPosition]
+                && hps[position] == other.hps[otherPosition]
+                && radii[position] == other.radii[otherPosition]
+                && lifetimes[position] == other.lifetimes[otherPosition];
+    }
+
+    //positions of one card type in default order, see typeCode(String)
+    public PositionList ofType(byte typeCode) {
+        return typeCode >= 0 && typeCode < byType.length ? byType[typeCode] : PositionList.EMPTY;
+    }
+
+    //positions of one rarity in default order, see rarityCode(String)
+    public PositionList ofRarity(byte rarityCode) {
+        return rarityCode >= 0 && rarityCode < byRarity.length ? byRarity[rarityCode] : PositionList.EMPTY;
+    }
+
+    //one page of cards matching the query, in the query's sort order
+    public CardSearchResult search(CardQuery query, int offset, int limit) {
+        return searchIndex().search(query, offset, limit);
+    }
+
+    private CardSearchIndex searchIndex() {
+        CardSearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    index = new CardSearchIndex(this, elixirCosts, levels, damages, hps);
+                    searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    //a new Card object for the position (callers may change it, the snapshot stays the same)
+    public Card toCard(int position) {
+        int id = ids[position];
+        String name = names[position];
+        String rarity = rarityLabels[position];
+        int elixir = elixirCosts[position];
+        int level = levels[position];
+        Card card = switch (types[position]) {
+            case WARRIOR -> new WarriorCard(id, name, rarity, elixir, level, hps[position], damages[position]);
+            case SPELL -> new SpellCard(id, name, rarity, elixir, level, radii[position], damages[position]);
+            default -> new BuildingCard(id, name, rarity, elixir, level, hps[position], lifetimes[position]);
+        };
+        card.setVersion(versions[position]);
+        return card;
+    }
+
+    public List<Card> toCards(PositionList positions) {
+        List<Card> cards = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            cards.add(toCard(positions.get(i)));
+        }
+        return cards;
+    }
+
+    //WARRIOR, SPELL, BUILDING in any case, -1 for anything else
+    public static byte typeCode(String type) {
+        return indexOfIgnoreCase(TYPE_NAMES, type);
+    }
+
+    //COMMON, RARE, EPIC, LEGENDARY in any case, -1 for anything else
+    public static byte rarityCode(String rarity) {
+        return indexOfIgnoreCase(RARITY_NAMES, rarity);
+    }
+
+    private static byte rarityCodeOrOther(String rarity) {
+        byte code = rarityCode(rarity);
+        return code < 0 ? OTHER_RARITY : code;
+    }
+
+    private static byte indexOfIgnoreCase(String[] values, String value) {
+        if (value != null) {
+            for (byte i = 0; i < values.length; i++) {
+                if (values[i].equalsIgnoreCase(value)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    //positions sorted by key, ties stay in default order.
+    //key and position are packed into one long, so this is a plain primitive sort
+    private static int[] sortByKey(int[] keys) {
+        long[] packed = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            packed[i] = ((long) keys[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] positions = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            positions[i] = (int) packed[i];
+        }
+        return positions;
+    }
+
+    //codes >= groups (OTHER_RARITY) are not indexed
+    private static PositionList[] group(byte[] codes, int groups) {
+        int[] counts = new int[groups];
+        for (byte code : codes) {
+            if (code < groups) {
+                counts[code]++;
+            }
+        }
+        int[][] positions = new int[groups][];
+        for (int g = 0; g < groups; g++) {
+            positions[g] = new int[counts[g]];
+            counts[g] = 0;
+        }
+        for (int i = 0; i < codes.length; i++) {
+            byte code = codes[i];
+            if (code < groups) {
+                positions[code][counts[code]++] = i;
+            }
+        }
+        PositionList[] lists = new PositionList[groups];
+        for (int g = 0; g < groups; g++) {
+            lists[g] = new PositionList(positions[g]);
+        }
+        return lists;
+    }
+
+    private static Integer[] boxedRange(int size) {
+        Integer[] range = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            range[i] = i;
+        }
+        return range;
+    }
+
+    //unsorted input of the constructor
+    private static final class Rows {
+        final int[] ids;
+        final String[] names;
+        final byte[] types;
+        final String[] rarityLabels;
+        final int[] elixirCosts;
+        final int[] levels;
+        final int[] damages;
+        final int[] hps;
+        final int[] radii;
+        final int[] lifetimes;
+        final long[] versions;
+        int size;
+
+        Rows(int capacity) {
+            ids = new int[capacity];
+            names = new String[capacity];
+            types = new byte[capacity];
+            rarityLabels = new String[capacity];
+            elixirCosts = new int[capacity];
+            levels = new int[capacity];
+            damages = new int[capacity];
+            hps = new int[capacity];
+            radii = new int[capacity];
+            lifetimes = new int[capacity];
+            versions = new long[capacity];
+        }
+
+        void add(Card card) {
+            byte type = typeCode(card.getType());
+            if (type < 0) {
+                throw new IllegalArgumentException("Wrong card type: " + card.getType());
+            }
+            int row = size++;
+            ids[row] = card.getId();
+            names[row] = card.getName();
+            types[row] = type;
+            rarityLabels[row] = card.getRarity();
+            elixirCosts[row] = card.getElixirCost();
+            levels[row] = card.getLevel();
+            versions[row] = card.getVersion();
+            if (card instanceof WarriorCard warrior) {
+                damages[row] = warrior.getDamage();
+                hps[row] = warrior.getHp();
+            } else if (card instanceof SpellCard spell) {
+                damages[row] = spell.getDamage();
+                radii[row] = spell.getRadius();
+            } else if (card instanceof BuildingCard building) {
+                hps[row] = building.getHp();
+                lifetimes[row] = building.getLifetime();
+            }
+        }
+
+        void add(CardCatalog catalog, int position) {
+            int row = size++;
+            ids[row] = catalog.ids[position];
+            names[row] = catalog.names[position];
+            types[row] = catalog.types[position];
+            rarityLabels[row] = catalog.rarityLabels[position];
+            elixirCosts[row] = catalog.elixirCosts[position];
+            levels[row] = catalog.levels[position];
+            damages[row] = catalog.damages[position];
+            hps[row] = catalog.hps[position];
+            radii[row] = catalog.radii[position];
+            lifetimes[row] = catalog.lifetimes[position];
+            versions[row] = catalog.versions[position];
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.clashroyale.api.service.catalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Which cards changed at which catalog version, for delta sync (GET /api/cards/changes).
+ *
+ * Compaction: only the latest change of every card is kept (an update after a create replaces it,
+ * a delete leaves a tombstone), and at most maxEntries changes are kept. Dropping the oldest one
+ * moves the horizon: a client that synced before the horizon may have missed a change and has
+ * to take a full snapshot.
+ *
+ * Writers record a change before the catalog snapshot with that version is published, so every
+ * change up to a visible catalog version is in the log.
+ *
+ * Versions come from the database and are the same on every instance, but a delta is only answered
+ * from a version this instance had a snapshot of: between two reloads another instance may have created
+ * and deleted a card that none of our snapshots contained, and a client that saw it there must get
+ * a full snapshot to lose it.
+ */
+public class CardChangeLog {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    // repeated writes to the same cards don't move the horizon, so snapshot versions have their own bound
+    private static final int MAX_SNAPSHOTS = 10_000;
+
+    private final int maxEntries;
+    private final TreeMap<Long, List<Change>> byVersion = new TreeMap<>();
+    private final Map<Integer, Change> latest = new HashMap<>();
+    // versions of the snapshots this instance served, oldest are dropped with the horizon
+    private final TreeSet<Long> snapshots = new TreeSet<>();
+    // deltas are complete only for since >= horizon. nothing is known before the first snapshot
+    private long horizon = Long.MAX_VALUE;
+
+    public CardChangeLog() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public CardChangeLog(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public synchronized Change record(int cardId, long version, boolean deleted) {
+        Change previous = latest.remove(cardId);
+        if (previous != null) {
+            List<Change> sameVersion = byVersion.get(previous.version);
+            sameVersion.remove(previous);
+            if (sameVersion.isEmpty()) {
+                byVersion.remove(previous.version);
+            }
+        }
+        Change change = new Change(cardId, version, deleted);
+        latest.put(cardId, change);
+        byVersion.computeIfAbsent(version, v -> new ArrayList<>(1)).add(change);
+
+        while (latest.size() > maxEntries) {
+            Map.Entry<Long, List<Change>> oldest = byVersion.pollFirstEntry();
+            for (Change dropped : oldest.getValue()) {
+                latest.remove(dropped.cardId);
+            }
+            horizon = oldest.getKey();
+        }
+        trimSnapshots();
+        return change;
+    }
+
+    //a snapshot with this version is served from now on, ?since= of its version can get a delta
+    public synchronized void snapshot(long version) {
+        snapshots.add(version);
+        trimSnapshots();
+    }
+
+    private void trimSnapshots() {
+        snapshots.headSet(horizon).clear();
+        while (snapshots.size() > MAX_SNAPSHOTS) {
+            snapshots.pollFirst();
+        }
+    }
+
+    //changes between two snapshots that were not made through record() (reload from the database,
+    //for example after another instance changed cards). changes already in the log (our own writes made
+    //while no snapshot was cached, previous is older than them) are not recorded twice.
+    //returns what was recorded
+    public synchronized List<Change> recordDiff(CardCatalog previous, CardCatalog current) {
+        if (previous == null) {
+            // first snapshot: nothing to compare with, everybody starts from it
+            byVersion.clear();
+            latest.clear();
+            snapshots.clear();
+            horizon = current.version();
+            snapshots.add(horizon);
+            return List.of();
+        }
+        long version = current.version();
+        List<Change> found = new ArrayList<>();
+        for (int position = 0; position < current.size(); position++) {
+            int cardId = current.id(position);
+            int previousPosition = previous.indexOf(cardId);
+            if (previousPosition >= 0 && current.sameCard(position, previous, previousPosition)) {
+                continue;
+            }
+            // the row version is the write that made it so
+            long cardVersion = current.cardVersion(position);
+            Change logged = latest.get(cardId);
+            if (logged == null || logged.deleted || logged.version < cardVersion) {
+                found.add(record(cardId, cardVersion, false));
+            }
+        }
+        for (int position = 0; position < previous.size(); position++) {
+            int cardId = previous.id(position);
+            if (current.indexOf(cardId) >= 0) {
+                continue;
+            }
+            // the delete's version is not stored anywhere, the reload's version is after it
+            Change logged = latest.get(cardId);
+            if (logged == null || !logged.deleted) {
+                found.add(record(cardId, version, true));
+            }
+        }
+        snapshot(version);
+        return found;
+    }
+
+    //latest change of every card with since < version <= upTo, oldest first.
+    //null if the log can't tell (since is before the horizon, after upTo or not a snapshot we served)
+    public synchronized List<Change> since(long since, long upTo) {
+        if (since < horizon || since > upTo || (since < upTo && !snapshots.contains(since))) {
+            return null;
+        }
+        List<Change> changes = new ArrayList<>();
+        for (List<Change> sameVersion : byVersion.subMap(since, false, upTo, true).values()) {
+            changes.addAll(sameVersion);
+        }
+        return changes;
+    }
+
+    public static final class Change {
+        private final int cardId;
+        private final long version;
+        private final boolean deleted;
+
+        Change(int cardId, long version, boolean deleted) {
+            this.cardId = cardId;
+            this.version = version;
+            this.deleted = deleted;
+        }
+
+        public int getCardId() { return cardId; }
+        public long getVersion() { return version; }
+        public boolean isDeleted() { return deleted; }
+    }
+}
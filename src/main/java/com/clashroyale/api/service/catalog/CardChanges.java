@@ -0,0 +1,49 @@
+package com.clashroyale.api.service.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//answer to "what changed since version X": either the changed cards plus deleted ids,
+//or (snapshot == true) all cards of the catalog, which replace whatever the client has
+public class CardChanges {
+
+    private final CardCatalog catalog;
+    private final boolean snapshot;
+    private final PositionList changed;
+    private final List<Integer> deleted;
+
+    CardChanges(CardCatalog catalog, boolean snapshot, PositionList changed, List<Integer> deleted) {
+        this.catalog = catalog;
+        this.snapshot = snapshot;
+        this.changed = changed;
+        this.deleted = deleted;
+    }
+
+    public static CardChanges snapshot(CardCatalog catalog) {
+        return new CardChanges(catalog, true, catalog.order(CardCatalog.SortOrder.DEFAULT), List.of());
+    }
+
+    //changes from the log, card data is taken from the catalog (state at catalog.version())
+    public static CardChanges delta(CardCatalog catalog, List<CardChangeLog.Change> changes) {
+        int[] positions = new int[changes.size()];
+        int count = 0;
+        List<Integer> deleted = new ArrayList<>();
+        for (CardChangeLog.Change change : changes) {
+            int position = catalog.indexOf(change.getCardId());
+            if (change.isDeleted() || position < 0) {
+                deleted.add(change.getCardId());
+            } else {
+                positions[count++] = position;
+            }
+        }
+        return new CardChanges(catalog, false, new PositionList(Arrays.copyOf(positions, count)), deleted);
+    }
+
+    //version to send as ?since= next time
+    public long getVersion() { return catalog.version(); }
+    public CardCatalog getCatalog() { return catalog; }
+    public boolean isSnapshot() { return snapshot; }
+    public PositionList getChanged() { return changed; }
+    public List<Integer> getDeleted() { return deleted; }
+}
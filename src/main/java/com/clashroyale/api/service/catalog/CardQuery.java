@@ -0,0 +1,115 @@
+package com.clashroyale.api.service.catalog;
+
+import com.clashroyale.api.exception.InvalidInputException;
+import com.clashroyale.api.model.Validatable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//filters of GET /api/cards/search. values inside one filter are OR-ed (type=WARRIOR,SPELL),
+//different filters are AND-ed. null means "no filter"
+public class CardQuery implements Validatable {
+
+    private List<String> types;
+    private List<String> rarities;
+    private Integer minElixir;
+    private Integer maxElixir;
+    private Integer minLevel;
+    private Integer maxLevel;
+    private Integer minDamage;
+    private Integer minHp;
+    private CardCatalog.SortOrder sort = CardCatalog.SortOrder.DEFAULT;
+
+    public CardQuery types(List<String> types) {
+        this.types = types;
+        return this;
+    }
+
+    public CardQuery rarities(List<String> rarities) {
+        this.rarities = rarities;
+        return this;
+    }
+
+    public CardQuery elixir(Integer min, Integer max) {
+        this.minElixir = min;
+        this.maxElixir = max;
+        return this;
+    }
+
+    public CardQuery level(Integer min, Integer max) {
+        this.minLevel = min;
+        this.maxLevel = max;
+        return this;
+    }
+
+    public CardQuery minDamage(Integer minDamage) {
+        this.minDamage = minDamage;
+        return this;
+    }
+
+    public CardQuery minHp(Integer minHp) {
+        this.minHp = minHp;
+        return this;
+    }
+
+    public CardQuery sort(CardCatalog.SortOrder sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    @Override
+    public void validate() throws InvalidInputException {
+        if (types != null) {
+            for (String type : types) {
+                if (CardCatalog.typeCode(type) < 0) {
+                    throw new InvalidInputException("Invalid card type: " + type + ". Must be WARRIOR, SPELL, or BUILDING");
+                }
+            }
+        }
+        if (rarities != null) {
+            for (String rarity : rarities) {
+                if (CardCatalog.rarityCode(rarity) < 0) {
+                    throw new InvalidInputException("Invalid rarity: " + rarity + ". Must be COMMON, RARE, EPIC, or LEGENDARY");
+                }
+            }
+        }
+        checkRange("elixir", minElixir, maxElixir);
+        checkRange("level", minLevel, maxLevel);
+        if (sort == null) {
+            throw new InvalidInputException("Sort order can't be empty");
+        }
+    }
+
+    private static void checkRange(String name, Integer min, Integer max) throws InvalidInputException {
+        if (min != null && max != null && min > max) {
+            throw new InvalidInputException(name + " min can't be greater than max");
+        }
+    }
+
+    // codes of the type / rarity filters, null if the filter is not set
+    byte[] typeCodes() { return codes(types, true); }
+    byte[] rarityCodes() { return codes(rarities, false); }
+
+    private static byte[] codes(List<String> names, boolean type) {
+        if (names == null) {
+            return null;
+        }
+        List<Byte> codes = new ArrayList<>(names.size());
+        for (String name : names) {
+            codes.add(type ? CardCatalog.typeCode(name) : CardCatalog.rarityCode(name));
+        }
+        byte[] result = new byte[codes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = codes.get(i);
+        }
+        return result;
+    }
+
+    public Integer getMinElixir() { return minElixir; }
+    public Integer getMaxElixir() { return maxElixir; }
+    public Integer getMinLevel() { return minLevel; }
+    public Integer getMaxLevel() { return maxLevel; }
+    public Integer getMinDamage() { return minDamage; }
+    public Integer getMinHp() { return minHp; }
+    public CardCatalog.SortOrder getSort() { return sort; }
+}
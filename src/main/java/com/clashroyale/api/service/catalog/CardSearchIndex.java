@@ -0,0 +1,116 @@
+package com.clashroyale.api.service.catalog;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+//compressed bitmap indexes over one CardCatalog snapshot. bit i = catalog position i,
+//so a filter is a few AND/OR operations and the result is already in default order
+final class CardSearchIndex {
+
+    private final CardCatalog catalog;
+    private final RoaringBitmap all;
+    private final RoaringBitmap[] byType;
+    private final RoaringBitmap[] byRarity;
+    private final RangeBitmapIndex elixir;
+    private final RangeBitmapIndex level;
+    private final RangeBitmapIndex damage;
+    private final RangeBitmapIndex hp;
+
+    CardSearchIndex(CardCatalog catalog, int[] elixirCosts, int[] levels, int[] damages, int[] hps) {
+        this.catalog = catalog;
+        this.all = RoaringBitmap.bitmapOfRange(0, catalog.size());
+        this.byType = new RoaringBitmap[3];
+        for (byte code = 0; code < byType.length; code++) {
+            byType[code] = toBitmap(catalog.ofType(code));
+        }
+        this.byRarity = new RoaringBitmap[4];
+        for (byte code = 0; code < byRarity.length; code++) {
+            byRarity[code] = toBitmap(catalog.ofRarity(code));
+        }
+        this.elixir = new RangeBitmapIndex(elixirCosts);
+        this.level = new RangeBitmapIndex(levels);
+        this.damage = new RangeBitmapIndex(damages);
+        this.hp = new RangeBitmapIndex(hps);
+    }
+
+    CardSearchResult search(CardQuery query, int offset, int limit) {
+        RoaringBitmap hits = match(query);
+        int total = hits.getCardinality();
+        if (offset >= total) {
+            return new CardSearchResult(catalog, PositionList.EMPTY, total);
+        }
+
+        int[] page = new int[Math.min(limit, total - offset)];
+        int count = 0;
+        if (query.getSort() == CardCatalog.SortOrder.DEFAULT) {
+            // bitmap order is default order, jump straight to the offset-th hit
+            PeekableIntIterator it = hits.getIntIterator();
+            it.advanceIfNeeded(hits.select(offset));
+            while (it.hasNext() && count < page.length) {
+                page[count++] = it.next();
+            }
+        } else {
+            PositionList order = catalog.order(query.getSort());
+            int skipped = 0;
+            for (int i = 0; i < order.size() && count < page.length; i++) {
+                int position = order.get(i);
+                if (hits.contains(position) && skipped++ >= offset) {
+                    page[count++] = position;
+                }
+            }
+        }
+        return new CardSearchResult(catalog, new PositionList(page), total);
+    }
+
+    private RoaringBitmap match(CardQuery query) {
+        RoaringBitmap hits = all;
+        hits = and(hits, anyOf(byType, query.typeCodes()));
+        hits = and(hits, anyOf(byRarity, query.rarityCodes()));
+        if (query.getMinElixir() != null) {
+            hits = and(hits, elixir.atLeast(query.getMinElixir()));
+        }
+        if (query.getMaxElixir() != null) {
+            hits = and(hits, elixir.atMost(query.getMaxElixir()));
+        }
+        if (query.getMinLevel() != null) {
+            hits = and(hits, level.atLeast(query.getMinLevel()));
+        }
+        if (query.getMaxLevel() != null) {
+            hits = and(hits, level.atMost(query.getMaxLevel()));
+        }
+        if (query.getMinDamage() != null) {
+            hits = and(hits, damage.atLeast(query.getMinDamage()));
+        }
+        if (query.getMinHp() != null) {
+            hits = and(hits, hp.atLeast(query.getMinHp()));
+        }
+        return hits;
+    }
+
+    //static and/or return new bitmaps, the shared index bitmaps are never changed
+    private static RoaringBitmap and(RoaringBitmap left, RoaringBitmap right) {
+        return right == null ? left : RoaringBitmap.and(left, right);
+    }
+
+    private static RoaringBitmap anyOf(RoaringBitmap[] bitmaps, byte[] codes) {
+        if (codes == null) {
+            return null;
+        }
+        RoaringBitmap union = new RoaringBitmap();
+        for (byte code : codes) {
+            if (code >= 0 && code < bitmaps.length) {
+                union.or(bitmaps[code]);
+            }
+        }
+        return union;
+    }
+
+    private static RoaringBitmap toBitmap(PositionList positions) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < positions.size(); i++) {
+            bitmap.add(positions.get(i));
+        }
+        bitmap.runOptimize();
+        return bitmap;
+    }
+}
@@ -0,0 +1,19 @@
+package com.clashroyale.api.service.catalog;
+
+//one page of search hits. positions point into catalog, total counts all hits, not just this page
+public class CardSearchResult {
+
+    private final CardCatalog catalog;
+    private final PositionList positions;
+    private final int total;
+
+    CardSearchResult(CardCatalog catalog, PositionList positions, int total) {
+        this.catalog = catalog;
+        this.positions = positions;
+        this.total = total;
+    }
+
+    public CardCatalog getCatalog() { return catalog; }
+    public PositionList getPositions() { return positions; }
+    public int getTotal() { return total; }
+}
@@ -0,0 +1,22 @@
+package com.clashroyale.api.service.catalog;
+
+//read-only view of an index array of a CardCatalog (positions of cards in the catalog).
+//wraps the catalog's own array, so handing it out costs nothing and nobody can change it
+public final class PositionList {
+
+    static final PositionList EMPTY = new PositionList(new int[0]);
+
+    private final int[] positions;
+
+    PositionList(int[] positions) {
+        this.positions = positions;
+    }
+
+    public int size() {
+        return positions.length;
+    }
+
+    public int get(int index) {
+        return positions[index];
+    }
+}
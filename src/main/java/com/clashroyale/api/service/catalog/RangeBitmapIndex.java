@@ -0,0 +1,105 @@
+package com.clashroyale.api.service.catalog;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+
+//range-encoded bitmaps over one int column: atLeast[b] = positions with value >= bounds[b].
+//small domains (elixir, level) get one bound per distinct value and answer exactly from bitmaps.
+//wide domains (damage, hp) get MAX_BOUNDS quantile bounds, only the one bucket a query cuts
+//through is checked against the column
+final class RangeBitmapIndex {
+
+    private static final int MAX_BOUNDS = 64;
+
+    private final int[] values;
+    private final int[] bounds;
+    private final RoaringBitmap[] atLeast;
+    private final boolean exact;
+
+    RangeBitmapIndex(int[] values) {
+        this.values = values;
+
+        int[] distinct = Arrays.stream(values).sorted().distinct().toArray();
+        exact = distinct.length <= MAX_BOUNDS;
+        if (exact) {
+            bounds = distinct;
+        } else {
+            int[] sorted = values.clone();
+            Arrays.sort(sorted);
+            bounds = Arrays.stream(quantiles(sorted)).distinct().toArray();
+        }
+
+        // one pass: bucket every position, then build the cumulative bitmaps from the top down
+        RoaringBitmap[] buckets = new RoaringBitmap[bounds.length];
+        for (int b = 0; b < bounds.length; b++) {
+            buckets[b] = new RoaringBitmap();
+        }
+        for (int position = 0; position < values.length; position++) {
+            buckets[bucketOf(values[position])].add(position);
+        }
+        atLeast = new RoaringBitmap[bounds.length];
+        RoaringBitmap running = new RoaringBitmap();
+        for (int b = bounds.length - 1; b >= 0; b--) {
+            running = RoaringBitmap.or(running, buckets[b]);
+            running.runOptimize();
+            atLeast[b] = running;
+        }
+    }
+
+    //positions with value >= min. the returned bitmap may be shared, don't change it
+    RoaringBitmap atLeast(int min) {
+        if (bounds.length == 0 || min <= bounds[0]) {
+            return all();
+        }
+        int b = firstBoundAtLeast(min);
+        RoaringBitmap whole = b < bounds.length ? atLeast[b] : new RoaringBitmap();
+        if (exact) {
+            return whole;
+        }
+
+        // bucket b-1 holds values in [bounds[b-1], bounds[b]), some of them may still be >= min
+        RoaringBitmap partial = RoaringBitmap.andNot(atLeast[b - 1], whole);
+        RoaringBitmap matched = new RoaringBitmap();
+        IntIterator it = partial.getIntIterator();
+        while (it.hasNext()) {
+            int position = it.next();
+            if (values[position] >= min) {
+                matched.add(position);
+            }
+        }
+        return matched.isEmpty() ? whole : RoaringBitmap.or(whole, matched);
+    }
+
+    //positions with value <= max
+    RoaringBitmap atMost(int max) {
+        if (max == Integer.MAX_VALUE) {
+            return all();
+        }
+        return RoaringBitmap.andNot(all(), atLeast(max + 1));
+    }
+
+    private RoaringBitmap all() {
+        return atLeast.length == 0 ? new RoaringBitmap() : atLeast[0];
+    }
+
+    private int firstBoundAtLeast(int value) {
+        int index = Arrays.binarySearch(bounds, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    //the bucket is the last bound <= value
+    private int bucketOf(int value) {
+        int index = Arrays.binarySearch(bounds, value);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static int[] quantiles(int[] sorted) {
+        int[] quantiles = new int[MAX_BOUNDS];
+        for (int q = 0; q < MAX_BOUNDS; q++) {
+            quantiles[q] = sorted[(int) ((long) q * sorted.length / MAX_BOUNDS)];
+        }
+        return quantiles;
+    }
+}
@@ -0,0 +1,68 @@
+package com.clashroyale.api.service.events;
+
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.Player;
+
+import java.util.Locale;
+
+//one committed write to a card or player, published by the services after the database write
+public final class ChangeEvent {
+
+    public enum Entity {
+        CARD, PLAYER;
+
+        //"card" / "player", as used in URLs and event names
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        //null if the key is unknown
+        public static Entity fromKey(String key) {
+            for (Entity entity : values()) {
+                if (entity.key().equalsIgnoreCase(key)) {
+                    return entity;
+                }
+            }
+            return null;
+        }
+    }
+
+    public enum Action { CREATED, UPDATED, DELETED }
+
+    private final Entity entity;
+    private final Action action;
+    private final int id;
+    private final long version;
+    // Card or Player after the write, null for deletes
+    private final Object data;
+
+    private ChangeEvent(Entity entity, Action action, int id, long version, Object data) {
+        this.entity = entity;
+        this.action = action;
+        this.id = id;
+        this.version = version;
+        this.data = data;
+    }
+
+    public static ChangeEvent card(Action action, Card card, long version) {
+        return new ChangeEvent(Entity.CARD, action, card.getId(), version, card);
+    }
+
+    public static ChangeEvent cardDeleted(int id, long version) {
+        return new ChangeEvent(Entity.CARD, Action.DELETED, id, version, null);
+    }
+
+    public static ChangeEvent player(Action action, Player player, long version) {
+        return new ChangeEvent(Entity.PLAYER, action, player.getId(), version, player);
+    }
+
+    public static ChangeEvent playerDeleted(int id, long version) {
+        return new ChangeEvent(Entity.PLAYER, Action.DELETED, id, version, null);
+    }
+
+    public Entity getEntity() { return entity; }
+    public Action getAction() { return action; }
+    public int getId() { return id; }
+    public long getVersion() { return version; }
+    public Object getData() { return data; }
+}
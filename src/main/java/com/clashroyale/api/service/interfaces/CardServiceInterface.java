@@ -1,7 +1,15 @@
 package com.clashroyale.api.service.interfaces;
 
+import com.clashroyale.api.model.BulkImportResult;
 import com.clashroyale.api.model.Card;
 import com.clashroyale.api.exception.*;
+import com.clashroyale.api.repository.Page;
+import com.clashroyale.api.service.catalog.CardCatalog;
+import com.clashroyale.api.service.catalog.CardChanges;
+import com.clashroyale.api.service.catalog.CardQuery;
+import com.clashroyale.api.service.catalog.CardSearchResult;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 //demonstrates ISP and DIP
@@ -11,9 +19,29 @@ public interface CardServiceInterface {
     // throws DatabaseException if database operation fails
     void createCard(Card card) throws InvalidInputException, DatabaseException;
 
+    //validates and inserts many cards at once, null entries are already rejected in result.
+    //outcome of every row (id or error) is written to result
+    void importCards(List<Card> cards, BulkImportResult result) throws InvalidInputException, DatabaseException;
+
     //lists all cards
     List<Card> getAllCards() throws DatabaseException;
 
+    //immutable in-memory snapshot of all cards, replaced on every write
+    CardCatalog getCatalog() throws DatabaseException;
+
+    //cards created/updated/upgraded/deleted after catalog version since (delta sync),
+    //or a full snapshot if the client is too far behind
+    CardChanges getChanges(long since) throws DatabaseException;
+
+    //one page of cards matching all filters of the query, answered from the catalog's bitmap index
+    CardSearchResult searchCards(CardQuery query, int offset, int limit) throws InvalidInputException, DatabaseException;
+
+    //one page of cards (level DESC, name ASC), afterCursor is null for the first page
+    Page<Card> getCardsPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException;
+
+    //writes all cards to out as newline-delimited JSON, row by row
+    void exportCards(OutputStream out) throws DatabaseException, IOException;
+
     //list card by id, throws ResourceNotFoundException if card not found
     Card getCardById(int id) throws ResourceNotFoundException, DatabaseException;
 
@@ -23,11 +51,13 @@ public interface CardServiceInterface {
     //list cards by rarity
     List<Card> getCardsByRarity(String rarity) throws DatabaseException;
 
-    //update card by id
-    void updateCard(int id, Card card) throws InvalidInputException, ResourceNotFoundException, DatabaseException;
+    //update card by id, the card gets its new version (ETag). if expectedVersion is not null and the
+    //card has another version in the database (If-Match), nothing is written and PreconditionFailedException is thrown
+    void updateCard(int id, Card card, Long expectedVersion)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException, PreconditionFailedException;
 
-    //upgrade card by id
-    void upgradeCard(int id) throws ResourceNotFoundException, DatabaseException, InvalidInputException;
+    //upgrade card by id and return upgraded card
+    Card upgradeCard(int id) throws ResourceNotFoundException, DatabaseException, InvalidInputException;
 
     //delete card by id
     void deleteCard(int id) throws ResourceNotFoundException, DatabaseException;
@@ -0,0 +1,33 @@
+package com.clashroyale.api.service.interfaces;
+
+import com.clashroyale.api.model.Deck;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.exception.*;
+import java.util.List;
+
+//demonstrates ISP and DIP
+public interface DeckServiceInterface {
+
+    //creates a deck of exactly 8 different existing cards for an existing player
+    Deck createDeck(int playerId, String deckName, List<Integer> cardIds)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException;
+
+    //lists all decks with their cards
+    List<Deck> getAllDecks() throws DatabaseException;
+
+    //decks of one player
+    List<Deck> getDecksByPlayer(int playerId) throws DatabaseException;
+
+    //deck by id, throws ResourceNotFoundException if deck not found
+    Deck getDeckById(int id) throws ResourceNotFoundException, DatabaseException;
+
+    //renames the deck and replaces its cards
+    Deck updateDeck(int id, String deckName, List<Integer> cardIds)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException;
+
+    //delete deck by id
+    void deleteDeck(int id) throws ResourceNotFoundException, DatabaseException;
+
+    //sets the first deck of every player (Player.setDeck) with a constant number of queries
+    void attachDecks(List<Player> players) throws DatabaseException;
+}
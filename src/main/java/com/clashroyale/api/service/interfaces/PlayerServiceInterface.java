@@ -1,7 +1,11 @@
 package com.clashroyale.api.service.interfaces;
 
+import com.clashroyale.api.cache.CacheStats;
 import com.clashroyale.api.model.Player;
 import com.clashroyale.api.exception.*;
+import com.clashroyale.api.repository.Page;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 //demonstrates ISP and DIP
@@ -14,15 +18,28 @@ public interface PlayerServiceInterface {
     //lists all players
     List<Player> getAllPlayers() throws DatabaseException;
 
-    //list player by id, throws ResourceNotFoundException if player not found
+    //one page of players (trophies DESC), afterCursor is null for the first page
+    Page<Player> getPlayersPage(String afterCursor, int limit) throws DatabaseException, InvalidInputException;
+
+    //writes all players to out as newline-delimited JSON, row by row
+    void exportPlayers(OutputStream out) throws DatabaseException, IOException;
+
+    //list player by id, throws ResourceNotFoundException if player not found.
+    //version 0 if the player has trophy grants that are not written yet
     Player getPlayerById(int id) throws ResourceNotFoundException, DatabaseException;
 
-    //update player by id
-    void updatePlayer(int id, Player player) throws InvalidInputException, ResourceNotFoundException, DatabaseException;
+    //counters of the player cache, throws ResourceNotFoundException if the cache is turned off
+    CacheStats getCacheStats() throws ResourceNotFoundException;
+
+    //update player by id, the player gets its new version (ETag). if expectedVersion is not null and the
+    //player has another version in the database (If-Match), nothing is written and PreconditionFailedException is thrown
+    void updatePlayer(int id, Player player, Long expectedVersion)
+            throws InvalidInputException, ResourceNotFoundException, DatabaseException, PreconditionFailedException;
 
     //delete player by id
     void deletePlayer(int id) throws ResourceNotFoundException, DatabaseException;
 
-    //add trophies to player
-    void addTrophies(int playerId, int trophies) throws ResourceNotFoundException, DatabaseException;
+    //add trophies to player and return updated player.
+    //throws InvalidInputException if trophies would become negative
+    Player addTrophies(int playerId, int trophies) throws ResourceNotFoundException, DatabaseException, InvalidInputException;
 }
\ No newline at end of file
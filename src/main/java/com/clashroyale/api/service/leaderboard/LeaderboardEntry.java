@@ -0,0 +1,25 @@
+package com.clashroyale.api.service.leaderboard;
+
+//one row of the leaderboard, rank is 1-based
+public class LeaderboardEntry {
+
+    private final int rank;
+    private final int playerId;
+    private final String name;
+    private final int level;
+    private final int trophies;
+
+    public LeaderboardEntry(int rank, int playerId, String name, int level, int trophies) {
+        this.rank = rank;
+        this.playerId = playerId;
+        this.name = name;
+        this.level = level;
+        this.trophies = trophies;
+    }
+
+    public int getRank() { return rank; }
+    public int getPlayerId() { return playerId; }
+    public String getName() { return name; }
+    public int getLevel() { return level; }
+    public int getTrophies() { return trophies; }
+}
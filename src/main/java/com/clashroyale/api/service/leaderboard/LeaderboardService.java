@@ -0,0 +1,249 @@
+package com.clashroyale.api.service.leaderboard;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.exception.LeaderboardUnavailableException;
+import com.clashroyale.api.exception.ResourceNotFoundException;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import com.clashroyale.api.service.ledger.TrophyLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory leaderboard: players ordered by trophies DESC, id ASC in an indexable skip list.
+ * Page, rank and "players around me" queries are O(log n) and never touch the database.
+ *
+ * PlayerService reports every write here. The index is built from the database when the
+ * application starts and rebuilt periodically, so any drift (for example writes made by another
+ * instance) is corrected.
+ */
+@Service
+public class LeaderboardService {
+
+    // Retry-After for queries while the first build runs
+    private static final long LOADING_RETRY_AFTER_SECONDS = 5;
+
+    private final PlayerRepositoryInterface playerRepository;
+    private final TrophyLedger trophyLedger;
+    private final LoggerService logger = LoggerService.getInstance();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private RankedSkipList ranking = new RankedSkipList();
+    private Map<Integer, Player> players = new HashMap<>();
+    // writes made while a rebuild is reading the database, replayed on the new index
+    private List<Runnable> writesDuringRebuild;
+    private volatile boolean ready;
+    // when the scheduled rebuild retries after a failed build, 0 while the first build runs
+    private volatile long retryAt;
+
+    @Value("${cardbattle.leaderboard.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cardbattle.leaderboard.rebuild-interval-ms:600000}")
+    private long rebuildIntervalMs;
+
+    @Autowired
+    public LeaderboardService(PlayerRepositoryInterface playerRepository, TrophyLedger trophyLedger) {
+        this.playerRepository = playerRepository;
+        this.trophyLedger = trophyLedger;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (DatabaseException | IOException e) {
+            if (!ready) {
+                retryAt = System.currentTimeMillis() + rebuildIntervalMs;
+            }
+            logger.error("Leaderboard build failed, queries will fail until the next rebuild: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cardbattle.leaderboard.rebuild-interval-ms:600000}",
+            initialDelayString = "${cardbattle.leaderboard.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        buildOnStartup();
+    }
+
+    //reads all players with a database cursor into a new index and swaps it in
+    public void rebuild() throws DatabaseException, IOException {
+        lock.writeLock().lock();
+        try {
+            writesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        RankedSkipList newRanking = new RankedSkipList();
+        Map<Integer, Player> newPlayers = new HashMap<>();
+        try (TrophyLedger.CommitTracker commits = trophyLedger.trackCommits()) {
+            // no lock during the scan, ledger flushes keep committing
+            List<Player> scanned = new ArrayList<>();
+            Set<String> appliedSegments = playerRepository.streamAllWithAppliedSegments(row -> scanned.add(
+                    new Player(row.getInt(1), row.getString(2), row.getInt(3), row.getInt(4))), commits::segments);
+
+            // stored value + flushes the snapshot missed + still pending, an in-memory pass between two flushes
+            trophyLedger.readStable(() -> {
+                Map<Integer, Long> missed = commits.deltasNotIn(appliedSegments);
+                for (Player player : scanned) {
+                    int id = player.getId();
+                    long trophies = player.getTrophies() + missed.getOrDefault(id, 0L) + trophyLedger.pending(id);
+                    player.setTrophies((int) Math.max(0, Math.min(Integer.MAX_VALUE, trophies)));
+                    newPlayers.put(id, player);
+                    newRanking.insert(id, player.getTrophies());
+                }
+                return null;
+            });
+        } catch (DatabaseException | IOException | RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                writesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Runnable> replay = writesDuringRebuild;
+            writesDuringRebuild = null;
+            ranking = newRanking;
+            players = newPlayers;
+            replay.forEach(Runnable::run);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Leaderboard built: {} players", newPlayers.size());
+    }
+
+    //called after a player is created or changed
+    public void update(Player player) {
+        if (!enabled) {
+            return;
+        }
+        Player snapshot = new Player(player.getId(), player.getName(), player.getLevel(), player.getTrophies());
+        write(() -> {
+            Player previous = players.put(snapshot.getId(), snapshot);
+            if (previous != null) {
+                ranking.delete(previous.getId(), previous.getTrophies());
+            }
+            ranking.insert(snapshot.getId(), snapshot.getTrophies());
+        });
+    }
+
+    //called after a player is deleted
+    public void remove(int playerId) {
+        if (!enabled) {
+            return;
+        }
+        write(() -> {
+            Player previous = players.remove(playerId);
+            if (previous != null) {
+                ranking.delete(previous.getId(), previous.getTrophies());
+            }
+        });
+    }
+
+    //offset is 0-based
+    public List<LeaderboardEntry> getPage(int offset, int limit) throws LeaderboardUnavailableException {
+        lock.readLock().lock();
+        try {
+            checkReady();
+            List<LeaderboardEntry> page = new ArrayList<>(Math.min(limit, ranking.size()));
+            ranking.visitFrom(offset + 1, limit, (rank, id, trophies) -> page.add(toEntry(rank, id)));
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public LeaderboardEntry getRank(int playerId) throws ResourceNotFoundException, LeaderboardUnavailableException {
+        lock.readLock().lock();
+        try {
+            checkReady();
+            Player player = players.get(playerId);
+            if (player == null) {
+                throw new ResourceNotFoundException("Player with id: " + playerId + " is not on the leaderboard");
+            }
+            return toEntry(ranking.rank(playerId, player.getTrophies()), playerId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //the player and up to `radius` players above and below
+    public List<LeaderboardEntry> getAround(int playerId, int radius) throws ResourceNotFoundException, LeaderboardUnavailableException {
+        lock.readLock().lock();
+        try {
+            checkReady();
+            Player player = players.get(playerId);
+            if (player == null) {
+                throw new ResourceNotFoundException("Player with id: " + playerId + " is not on the leaderboard");
+            }
+            int rank = ranking.rank(playerId, player.getTrophies());
+            int first = Math.max(1, rank - radius);
+            int count = rank - first + radius + 1;
+            List<LeaderboardEntry> around = new ArrayList<>(count);
+            ranking.visitFrom(first, count, (entryRank, id, trophies) -> around.add(toEntry(entryRank, id)));
+            return around;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ranking.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkReady() throws LeaderboardUnavailableException {
+        if (!enabled) {
+            throw LeaderboardUnavailableException.disabled();
+        }
+        if (!ready) {
+            long retryAt = this.retryAt;
+            throw LeaderboardUnavailableException.loading(retryAt == 0 ? LOADING_RETRY_AFTER_SECONDS
+                    : (retryAt - System.currentTimeMillis() + 999) / 1000);
+        }
+    }
+
+    private LeaderboardEntry toEntry(int rank, int playerId) {
+        Player player = players.get(playerId);
+        return new LeaderboardEntry(rank, playerId, player.getName(), player.getLevel(), player.getTrophies());
+    }
+}
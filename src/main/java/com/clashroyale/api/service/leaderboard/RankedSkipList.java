@@ -0,0 +1,167 @@
+package com.clashroyale.api.service.leaderboard;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Indexable skip list ordered by trophies DESC, id ASC (same idea as a Redis sorted set).
+ * Every forward link stores how many nodes it jumps over (span), so rank lookups and
+ * "element at rank" are O(log n) like insert and delete. Ranks are 1-based.
+ * Not thread-safe, LeaderboardService guards it with a lock.
+ */
+final class RankedSkipList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    private final Node head = new Node(0, 0, MAX_LEVEL);
+    private int level = 1;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void insert(int id, int trophies) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], trophies, id)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                update[i].span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(id, trophies, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    boolean delete(int id, int trophies) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], trophies, id)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        x = x.next[0];
+        if (x == null || x.id != id || x.trophies != trophies) {
+            return false;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    //1-based rank of the entry, 0 if it is not in the list
+    int rank(int id, int trophies) {
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && !before(trophies, id, x.next[i])) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && x.id == id && x.trophies == trophies) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    //walks `count` entries starting at the 1-based rank and passes their ids to the visitor
+    void visitFrom(int startRank, int count, EntryVisitor visitor) {
+        if (startRank < 1 || startRank > size || count <= 0) {
+            return;
+        }
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= startRank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == startRank) {
+                break;
+            }
+        }
+
+        int rank = startRank;
+        while (x != null && count-- > 0) {
+            visitor.visit(rank++, x.id, x.trophies);
+            x = x.next[0];
+        }
+    }
+
+    interface EntryVisitor {
+        void visit(int rank, int id, int trophies);
+    }
+
+    // true if node comes before (trophies, id) in leaderboard order
+    private static boolean before(Node node, int trophies, int id) {
+        return node.trophies > trophies || (node.trophies == trophies && node.id < id);
+    }
+
+    // true if (trophies, id) comes strictly before node
+    private static boolean before(int trophies, int id, Node node) {
+        return trophies > node.trophies || (trophies == node.trophies && id < node.id);
+    }
+
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (nodeLevel < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    private static final class Node {
+        final int id;
+        final int trophies;
+        final Node[] next;
+        final int[] span;
+
+        Node(int id, int trophies, int level) {
+            this.id = id;
+            this.trophies = trophies;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.clashroyale.api.service.ledger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Append-only local journal of trophy deltas that are acknowledged but not yet in the database.
+ *
+ * Records are 12 bytes: player id, delta and a checksum; a torn record at the end of a file
+ * (crash in the middle of a write) is ignored on recovery. A reset record (checksum with RESET_MARK)
+ * says that the player's earlier deltas were replaced by a written value; it is named by its segment
+ * and offset, and the write commits that name, so recovery can tell whether the reset happened. The journal is split into segments:
+ * the ledger seals the current segment when it flushes and deletes sealed segments once their
+ * deltas are committed. fsync is group-committed - one force() covers every append before it.
+ */
+class TrophyJournal {
+
+    static final String SEGMENT_PREFIX = "trophies-";
+    static final String SEGMENT_SUFFIX = ".journal";
+    private static final int RECORD_SIZE = 12;
+    private static final int CHECKSUM_SALT = 0x5eed7a11;
+    private static final int RESET_MARK = 0x0de1e7ed;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final String processId = UUID.randomUUID().toString().substring(0, 8);
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+
+    private long segmentSequence;
+    private Path currentPath;
+    private FileChannel current;
+    private volatile long written;
+    private volatile long synced;
+
+    TrophyJournal(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+    }
+
+    //reads every segment left from a previous run: segment name -> its records in order
+    Map<String, List<Entry>> recover() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null);
+
+        Map<String, List<Entry>> recovered = new LinkedHashMap<>();
+        for (Path segment : segments) {
+            recovered.put(segment.getFileName().toString(), readSegment(segment));
+        }
+        return recovered;
+    }
+
+    void open() throws IOException {
+        synchronized (writeLock) {
+            openNextSegment();
+        }
+    }
+
+    //durably records one delta, returns after the record is on disk (if fsync is on)
+    void append(int playerId, int delta) throws IOException {
+        long end;
+        synchronized (writeLock) {
+            end = write(playerId, delta, checksum(playerId, delta)) + RECORD_SIZE;
+        }
+        if (fsync) {
+            syncUpTo(end);
+        }
+    }
+
+    //records a reset of the player's earlier deltas and returns its name. not on disk before sync()
+    String appendReset(int playerId) throws IOException {
+        synchronized (writeLock) {
+            long offset = write(playerId, 0, checksum(playerId, 0) ^ RESET_MARK);
+            return resetName(currentPath.getFileName().toString(), offset);
+        }
+    }
+
+    //forces everything appended so far (if fsync is on)
+    void sync() throws IOException {
+        if (fsync) {
+            syncUpTo(written);
+        }
+    }
+
+    boolean isCurrentSegmentEmpty() {
+        return written == 0;
+    }
+
+    //closes the current segment and starts a new one, returns the name of the closed segment.
+    //the caller makes sure no append runs at the same time
+    String seal() throws IOException {
+        synchronized (writeLock) {
+            String sealed = currentPath.getFileName().toString();
+            synchronized (syncLock) {
+                current.force(false);
+                current.close();
+            }
+            openNextSegment();
+            return sealed;
+        }
+    }
+
+    void delete(List<String> segments) throws IOException {
+        for (String segment : segments) {
+            Files.deleteIfExists(directory.resolve(segment));
+        }
+    }
+
+    void close() throws IOException {
+        synchronized (writeLock) {
+            if (current != null) {
+                current.force(false);
+                current.close();
+            }
+        }
+    }
+
+    //group commit: whoever gets the lock forces everything written so far,
+    //threads whose record is already covered return without calling force()
+    private void syncUpTo(long position) throws IOException {
+        if (synced >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long target = written;
+            current.force(false);
+            synced = target;
+        }
+    }
+
+    //writes one record, returns its offset. caller holds writeLock
+    private long write(int playerId, int delta, int checksum) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putInt(playerId).putInt(delta).putInt(checksum).flip();
+        while (record.hasRemaining()) {
+            current.write(record);
+        }
+        long offset = written;
+        written = offset + RECORD_SIZE;
+        return offset;
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentSequence++;
+        String name = String.format("%s%d-%s-%06d%s", SEGMENT_PREFIX, System.currentTimeMillis(),
+                processId, segmentSequence, SEGMENT_SUFFIX);
+        currentPath = directory.resolve(name);
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        written = 0;
+        synced = 0;
+    }
+
+    private List<Entry> readSegment(Path segment) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        String name = segment.getFileName().toString();
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        while (data.remaining() >= RECORD_SIZE) {
+            int offset = data.position();
+            int playerId = data.getInt();
+            int delta = data.getInt();
+            int checksum = data.getInt();
+            if (checksum == checksum(playerId, delta)) {
+                entries.add(new Entry(playerId, delta, null));
+            } else if (delta == 0 && checksum == (checksum(playerId, 0) ^ RESET_MARK)) {
+                entries.add(new Entry(playerId, 0, resetName(name, offset)));
+            } else {
+                break; // torn or corrupted tail
+            }
+        }
+        return entries;
+    }
+
+    private static String resetName(String segment, long offset) {
+        return segment + "@" + offset;
+    }
+
+    private static int checksum(int playerId, int delta) {
+        return Integer.rotateLeft(playerId, 13) ^ delta ^ CHECKSUM_SALT;
+    }
+
+    //one record of a segment: a delta, or a reset of the player's earlier deltas
+    static final class Entry {
+        private final int playerId;
+        private final int delta;
+        private final String reset;
+
+        Entry(int playerId, int delta, String reset) {
+            this.playerId = playerId;
+            this.delta = delta;
+            this.reset = reset;
+        }
+
+        int getPlayerId() { return playerId; }
+        int getDelta() { return delta; }
+        //name of the reset, null for a delta
+        String getReset() { return reset; }
+    }
+}
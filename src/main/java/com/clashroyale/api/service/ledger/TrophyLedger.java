@@ -0,0 +1,539 @@
+package com.clashroyale.api.service.ledger;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import com.clashroyale.api.repository.UnitOfWork;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind ledger for trophy grants.
+ *
+ * add() journals the delta to a local file and adds it to an in-memory counter, without touching
+ * the database. Counters are split into stripes by player id, so grants for different players don't
+ * contend. A background thread periodically drains all stripes and group-commits the summed deltas
+ * with one batched UPDATE. The journal segments covered by a flush are recorded in the same
+ * transaction (trophy_ledger_flushes), so replaying the journal after a crash never applies a delta twice.
+ *
+ * pending(id) returns deltas that are acknowledged but not yet in the database,
+ * readers add it to the stored value. They read both inside readStable(), which a flush can't commit
+ * in the middle of: a delta is either in the stored value or in pending, never in both or in neither.
+ *
+ * A write of an absolute value (PUT) replaces the player's pending deltas with reset(): only this
+ * player is touched, the reset is journaled and its name is committed together with the new row, so
+ * after a crash the deltas before it are dropped only if the write really happened.
+ *
+ * A reader that can't hold readStable() for long (a scan of all players) reads on its own database
+ * snapshot instead and uses trackCommits() to find the commits that snapshot doesn't contain.
+ *
+ * If the commit fails the deltas stay pending. The commit may still have reached the database (lost
+ * connection during COMMIT), so before they are written again trophy_ledger_flushes is asked whether
+ * their segments were applied.
+ */
+@Component
+public class TrophyLedger {
+
+    // journal segment names are kept in the database this long, only needed for crash recovery
+    private static final int SEGMENT_RETENTION_DAYS = 7;
+
+    private final PlayerRepositoryInterface playerRepository;
+    private final LoggerService logger = LoggerService.getInstance();
+
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final Path journalDirectory;
+    private final boolean fsync;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    // add() holds the read lock, flush takes the write lock to seal the journal and drain stripes together
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    // journal segments whose deltas are in memory but not committed yet
+    private final List<String> sealedSegments = new ArrayList<>();
+    // deltas drained by a running (or failed) flush, still visible to readers until the commit
+    private volatile Map<Integer, Long> flushing = Collections.emptyMap();
+    // readers hold the read lock around "stored value + pending", the commit holds the write lock
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    // flush holds the write lock, a reset holds the read lock until its value is committed
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    // segments of a commit that failed, it is unknown whether the database has them. guarded by this
+    private List<String> unconfirmedSegments = List.of();
+    // commits made while a CommitTracker is open, guarded by itself
+    private final List<Commit> trackedCommits = new ArrayList<>();
+    private long commitSequence;
+    private int openTrackers;
+
+    private TrophyJournal journal;
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public TrophyLedger(PlayerRepositoryInterface playerRepository,
+                        @Value("${cardbattle.trophies.ledger.enabled:false}") boolean enabled,
+                        @Value("${cardbattle.trophies.ledger.flush-interval-ms:1000}") long flushIntervalMs,
+                        @Value("${cardbattle.trophies.ledger.journal-dir:data/trophy-journal}") String journalDirectory,
+                        @Value("${cardbattle.trophies.ledger.fsync:true}") boolean fsync,
+                        @Value("${cardbattle.trophies.ledger.stripes:64}") int stripes) {
+        this.playerRepository = playerRepository;
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.journalDirectory = Path.of(journalDirectory);
+        this.fsync = fsync;
+
+        int stripeCount = Integer.highestOneBit(Math.max(stripes, 1) - 1) << 1;
+        this.stripes = new Stripe[Math.max(stripeCount, 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeMask = this.stripes.length - 1;
+    }
+
+    @PostConstruct
+    public void start() throws IOException, DatabaseException {
+        if (!enabled) {
+            return;
+        }
+        journal = new TrophyJournal(journalDirectory, fsync);
+        playerRepository.purgeAppliedTrophySegments(SEGMENT_RETENTION_DAYS);
+        recover();
+        journal.open();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trophy-ledger-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Trophy ledger started (flush every {} ms, journal {})", flushIntervalMs, journalDirectory);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+            flush();
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // deltas stay in the journal and are replayed on next start
+            logger.error("Trophy ledger final flush failed: {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //journals the delta and adds it to the pending counter. once this returns the grant survives a crash
+    public void add(int playerId, int delta) {
+        rotationLock.readLock().lock();
+        try {
+            journal.append(playerId, delta);
+            stripeFor(playerId).add(playerId, delta);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal trophy delta", e);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    //acknowledged trophies that are not in the database yet. the read lock keeps a flush from
+    //draining the stripes while they are read (the delta would be in neither place)
+    public int pending(int playerId) {
+        long total;
+        rotationLock.readLock().lock();
+        try {
+            total = stripeFor(playerId).get(playerId) + flushing.getOrDefault(playerId, 0L);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, total));
+    }
+
+    //runs a read of stored trophies + pending() without a flush committing in between
+    public <T, E extends Exception> T readStable(UnitOfWork.Work<T, E> read) throws E, DatabaseException {
+        if (!enabled) {
+            return read.run();
+        }
+        commitLock.readLock().lock();
+        try {
+            return read.run();
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    //starts recording commits, for a reader that scans the database outside of readStable()
+    public CommitTracker trackCommits() {
+        synchronized (trackedCommits) {
+            openTrackers++;
+            return new CommitTracker(commitSequence);
+        }
+    }
+
+    //starts replacing the player's pending deltas by a value the caller writes with getName() (see
+    //PlayerRepositoryInterface.update). written() drops the replaced deltas, close() without it keeps them
+    public Reset reset(int playerId) throws DatabaseException {
+        // no flush may commit (and delete the journal of) the replaced deltas before the value is written
+        flushLock.readLock().lock();
+        try {
+            synchronized (this) {
+                // the replaced amount must not count deltas that a failed commit may have written
+                if (!unconfirmedSegments.isEmpty()) {
+                    confirmFailedCommit();
+                }
+            }
+            String name;
+            long replaced;
+            rotationLock.writeLock().lock();
+            try {
+                name = journal.appendReset(playerId);
+                replaced = stripeFor(playerId).get(playerId) + flushing.getOrDefault(playerId, 0L);
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+            journal.sync();
+            return new Reset(playerId, name, replaced);
+        } catch (IOException e) {
+            flushLock.readLock().unlock();
+            throw new UncheckedIOException("Failed to journal trophy reset", e);
+        } catch (DatabaseException | RuntimeException e) {
+            flushLock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    //writes all pending deltas to the database in one batch
+    public void flush() throws IOException, DatabaseException {
+        flushLock.writeLock().lock();
+        try {
+            flushExclusive();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private synchronized void flushExclusive() throws IOException, DatabaseException {
+        if (!unconfirmedSegments.isEmpty()) {
+            confirmFailedCommit();
+        }
+
+        List<String> segments;
+        Map<Integer, Long> drained;
+
+        rotationLock.writeLock().lock();
+        try {
+            if (journal.isCurrentSegmentEmpty() && sealedSegments.isEmpty()) {
+                return; // nothing was added since the last flush
+            }
+            sealedSegments.add(journal.seal());
+            // deltas of a failed commit that didn't reach the database go again, with the new ones
+            drained = new HashMap<>(flushing);
+            for (Stripe stripe : stripes) {
+                stripe.drainTo(drained);
+            }
+            segments = new ArrayList<>(sealedSegments);
+            flushing = drained;
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+
+        if (drained.isEmpty()) {
+            // sealed segments hold no records or only deltas that cancel out, nothing to write
+            flushing = Collections.emptyMap();
+            sealedSegments.removeAll(segments);
+            journal.delete(segments);
+            return;
+        }
+
+        commitLock.writeLock().lock();
+        try {
+            commit(drained, segments);
+            flushing = Collections.emptyMap();
+            recordCommit(segments, drained);
+        } catch (DatabaseException e) {
+            // the deltas stay in flushing (still pending for readers) until we know where they are
+            unconfirmedSegments = segments;
+            throw e;
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+
+        sealedSegments.removeAll(segments);
+        journal.delete(segments);
+    }
+
+    // a commit failed: if its segments are recorded it did reach the database, the deltas must not be
+    // written again (that would also fail forever on the trophy_ledger_flushes primary key)
+    private void confirmFailedCommit() throws IOException, DatabaseException {
+        List<String> segments = unconfirmedSegments;
+        Set<String> applied = playerRepository.findAppliedTrophySegments(segments);
+        if (!applied.isEmpty()) {
+            commitLock.writeLock().lock();
+            try {
+                recordCommit(segments, flushing);
+                flushing = Collections.emptyMap();
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+            sealedSegments.removeAll(segments);
+            journal.delete(segments);
+            logger.info("Trophy ledger: failed flush of {} segments had been committed", segments.size());
+        }
+        unconfirmedSegments = List.of();
+    }
+
+    private void commit(Map<Integer, Long> deltas, List<String> segments) throws DatabaseException {
+        int[] playerIds = new int[deltas.size()];
+        long[] amounts = new long[deltas.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Long> entry : deltas.entrySet()) {
+            playerIds[i] = entry.getKey();
+            amounts[i] = entry.getValue();
+            i++;
+        }
+        playerRepository.applyTrophyDeltas(playerIds, amounts, segments);
+        if (playerIds.length > 0) {
+            logger.debug("Trophy ledger flushed {} players", playerIds.length);
+        }
+    }
+
+    private void recordCommit(List<String> segments, Map<Integer, Long> deltas) {
+        synchronized (trackedCommits) {
+            commitSequence++;
+            if (openTrackers > 0) {
+                trackedCommits.add(new Commit(commitSequence, segments, deltas));
+            }
+        }
+    }
+
+    //loads segments left after a crash, skipping those that were already committed
+    //and deltas replaced by a reset whose write was committed
+    private void recover() throws IOException, DatabaseException {
+        Map<String, List<TrophyJournal.Entry>> recovered = journal.recover();
+        if (recovered.isEmpty()) {
+            return;
+        }
+
+        List<String> names = new ArrayList<>(recovered.keySet());
+        for (List<TrophyJournal.Entry> entries : recovered.values()) {
+            for (TrophyJournal.Entry entry : entries) {
+                if (entry.getReset() != null) {
+                    names.add(entry.getReset());
+                }
+            }
+        }
+        Set<String> applied = playerRepository.findAppliedTrophySegments(names);
+
+        // segments are sorted by time, a reset drops the deltas before it in all segments
+        Map<Integer, Long> deltas = new HashMap<>();
+        List<String> alreadyApplied = new ArrayList<>();
+        for (Map.Entry<String, List<TrophyJournal.Entry>> segment : recovered.entrySet()) {
+            if (applied.contains(segment.getKey())) {
+                alreadyApplied.add(segment.getKey());
+                continue;
+            }
+            sealedSegments.add(segment.getKey());
+            for (TrophyJournal.Entry entry : segment.getValue()) {
+                if (entry.getReset() == null) {
+                    deltas.merge(entry.getPlayerId(), (long) entry.getDelta(), TrophyLedger::sum);
+                } else if (applied.contains(entry.getReset())) {
+                    deltas.remove(entry.getPlayerId());
+                }
+            }
+        }
+        for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+            stripeFor(delta.getKey()).add(delta.getKey(), delta.getValue());
+        }
+        journal.delete(alreadyApplied);
+        logger.info("Trophy ledger recovered {} journal segments ({} already applied)",
+                sealedSegments.size(), alreadyApplied.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Trophy ledger flush failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private Stripe stripeFor(int playerId) {
+        int hash = playerId * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+    }
+
+    // deltas that sum to 0 are removed, a flush doesn't write (and bump the version of) unchanged players
+    private static Long sum(Long a, Long b) {
+        long total = a + b;
+        return total == 0 ? null : total;
+    }
+
+    /**
+     * A player's pending deltas being replaced by a written value. The writer commits getName() with
+     * the row and calls written(); until close() no flush runs.
+     */
+    public final class Reset implements AutoCloseable {
+        private final int playerId;
+        private final String name;
+        private final long replaced;
+        private boolean written;
+        private boolean closed;
+
+        private Reset(int playerId, String name, long replaced) {
+            this.playerId = playerId;
+            this.name = name;
+            this.replaced = replaced;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        //the value is committed: the deltas it replaced are no longer pending
+        public void written() {
+            if (written || closed) {
+                return;
+            }
+            written = true;
+            if (replaced != 0) {
+                // deltas added after the reset stay, flush sums flushing and stripes
+                stripeFor(playerId).add(playerId, -replaced);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            try {
+                if (!written) {
+                    // a lost COMMIT may still have written the value
+                    written = !playerRepository.findAppliedTrophySegments(List.of(name)).isEmpty();
+                    if (written && replaced != 0) {
+                        stripeFor(playerId).add(playerId, -replaced);
+                    }
+                }
+            } catch (DatabaseException e) {
+                logger.error("Trophy ledger: outcome of reset {} unknown, its deltas stay pending: {}", name, e.getMessage());
+            } finally {
+                closed = true;
+                flushLock.readLock().unlock();
+            }
+        }
+    }
+
+    //deltas of one commit and the journal segments recorded with them
+    private static final class Commit {
+        private final long sequence;
+        private final List<String> segments;
+        private final Map<Integer, Long> deltas;
+
+        Commit(long sequence, List<String> segments, Map<Integer, Long> deltas) {
+            this.sequence = sequence;
+            this.segments = segments;
+            this.deltas = deltas;
+        }
+    }
+
+    /**
+     * Commits made after trackCommits(). A reader opens the tracker before its database snapshot,
+     * scans without any lock, asks the same snapshot which of segments() it already has and then,
+     * inside readStable(), adds deltasNotIn() and pending() to the stored values.
+     */
+    public final class CommitTracker implements AutoCloseable {
+        private final long start;
+        private boolean closed;
+
+        private CommitTracker(long start) {
+            this.start = start;
+        }
+
+        //journal segments of the commits so far
+        public List<String> segments() {
+            List<String> segments = new ArrayList<>();
+            synchronized (trackedCommits) {
+                for (Commit commit : trackedCommits) {
+                    if (commit.sequence > start) {
+                        segments.addAll(commit.segments);
+                    }
+                }
+            }
+            return segments;
+        }
+
+        //summed deltas of the commits whose segments are not in appliedSegments. a commit made after
+        //segments() was called can't be in the snapshot either. call inside readStable()
+        public Map<Integer, Long> deltasNotIn(Set<String> appliedSegments) {
+            Map<Integer, Long> missed = new HashMap<>();
+            synchronized (trackedCommits) {
+                for (Commit commit : trackedCommits) {
+                    // the segments of a commit are inserted in one transaction, one of them is enough
+                    if (commit.sequence > start && !appliedSegments.contains(commit.segments.get(0))) {
+                        commit.deltas.forEach((playerId, delta) -> missed.merge(playerId, delta, Long::sum));
+                    }
+                }
+            }
+            return missed;
+        }
+
+        @Override
+        public void close() {
+            synchronized (trackedCommits) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (--openTrackers == 0) {
+                    trackedCommits.clear();
+                }
+            }
+        }
+    }
+
+    //one partition of the counters, guarded by its own monitor
+    private static final class Stripe {
+        private Map<Integer, Long> deltas = new HashMap<>();
+
+        synchronized void add(int playerId, long delta) {
+            deltas.merge(playerId, delta, TrophyLedger::sum);
+        }
+
+        synchronized long get(int playerId) {
+            return deltas.getOrDefault(playerId, 0L);
+        }
+
+        synchronized void drainTo(Map<Integer, Long> target) {
+            if (deltas.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<Integer, Long> entry : deltas.entrySet()) {
+                target.merge(entry.getKey(), entry.getValue(), TrophyLedger::sum);
+            }
+            deltas = new HashMap<>();
+        }
+    }
+}
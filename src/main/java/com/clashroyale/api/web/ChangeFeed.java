@@ -0,0 +1,336 @@
+package com.clashroyale.api.web;
+
+import com.clashroyale.api.dto.ChangeEventResponse;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import com.clashroyale.api.service.events.ChangeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events fan-out for GET /api/stream.
+ *
+ * publish() never blocks on a client: the event is serialized once, then only offered to the
+ * bounded queue of every matching subscriber. A small pool of dispatch threads drains queues that
+ * have something in them, so idle subscribers cost no thread. A subscriber whose queue is full
+ * (slow client) loses its queued events and gets one "resync" event instead: it should reload
+ * what it shows (for cards, GET /api/cards/changes) and keep listening.
+ *
+ * emitter.send is a blocking servlet write. A client that stops reading blocks its dispatch thread once
+ * the socket buffer is full, so every send has a deadline: past it the subscriber is dropped, the pool
+ * gets one more thread for as long as the send stays blocked, and the emitter is completed when (if)
+ * the send returns. The client reconnects and gets the changes it missed with a reload.
+ */
+@Component
+public class ChangeFeed {
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT =
+            SseEmitter.event().comment("heartbeat").build();
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> RESYNC =
+            SseEmitter.event().name("resync").data("{}").build();
+    // events one subscriber sends before its queue goes back into the pool, so one busy client can't hog a thread
+    private static final int DRAIN_BATCH = 64;
+    // extra dispatch threads for blocked sends at most, after that blocked clients are only dropped
+    private static final int MAX_COMPENSATION_THREADS = 32;
+
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int queueSize;
+    private final long sendTimeoutNanos;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor dispatcher;
+    private int compensationThreads; // guarded by dispatcher
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong stalledDrops = new AtomicLong();
+    private final LoggerService logger = LoggerService.getInstance();
+
+    @Autowired
+    public ChangeFeed(ObjectMapper objectMapper,
+                      @Value("${cardbattle.stream.timeout-ms:1800000}") long timeoutMs,
+                      @Value("${cardbattle.stream.queue-size:256}") int queueSize,
+                      @Value("${cardbattle.stream.dispatch-threads:4}") int dispatchThreads,
+                      @Value("${cardbattle.stream.send-timeout-ms:5000}") long sendTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.queueSize = Math.max(queueSize, 1);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(sendTimeoutMs, 1));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(dispatchThreads, 1);
+        this.dispatcher = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "change-feed-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    //new subscriber. empty entities / ids means no filter on that
+    public SseEmitter subscribe(Set<ChangeEvent.Entity> entities, Set<Integer> ids) {
+        SseEmitter emitter = createEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, entities, ids);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // first bytes right away, so proxies pass the response through and the client sees it is connected
+        subscriber.offer(HEARTBEAT);
+
+        logger.debug("Stream subscriber added ({} subscribers)", subscribers.size());
+        return emitter;
+    }
+
+    //tests replace it with an emitter whose sends they control
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    public void publish(ChangeEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> frame;
+        try {
+            frame = SseEmitter.event()
+                    .id(Long.toString(event.getVersion()))
+                    .name(event.getEntity().key())
+                    .data(objectMapper.writeValueAsString(ChangeEventResponse.fromEvent(event)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize {} event for {}: {}", event.getEntity().key(), event.getId(), e.getMessage());
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.accepts(event)) {
+                subscriber.offer(frame);
+            }
+        }
+    }
+
+    //keeps idle connections open through proxies and finds clients that went away
+    @Scheduled(fixedDelayString = "${cardbattle.stream.heartbeat-interval-ms:15000}",
+            initialDelayString = "${cardbattle.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue.isEmpty()) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    //drops subscribers whose send is blocked past the deadline, so they stop holding a dispatch thread
+    @Scheduled(fixedDelayString = "${cardbattle.stream.send-check-interval-ms:1000}")
+    public void checkSendDeadlines() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedAt;
+            if (started != 0 && now - started > sendTimeoutNanos) {
+                subscriber.stall();
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    //how many times a slow subscriber lost events and was told to resync
+    public long getResyncCount() {
+        return resyncs.get();
+    }
+
+    //subscribers dropped because a send to them was blocked past cardbattle.stream.send-timeout-ms
+    public long getStalledDropCount() {
+        return stalledDrops.get();
+    }
+
+    // +1 while a dispatch thread is blocked in a dropped subscriber's send, -1 when the send returns.
+    // max is raised before core and lowered after it, core <= max always holds
+    private boolean addCompensationThread() {
+        synchronized (dispatcher) {
+            if (compensationThreads >= MAX_COMPENSATION_THREADS || dispatcher.isShutdown()) {
+                return false;
+            }
+            compensationThreads++;
+            dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + 1);
+            dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + 1);
+            return true;
+        }
+    }
+
+    private void removeCompensationThread() {
+        synchronized (dispatcher) {
+            compensationThreads--;
+            dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() - 1);
+            dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() - 1);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<ChangeEvent.Entity> entities;
+        private final Set<Integer> ids;
+        private final ArrayBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        // true while a dispatch task for this subscriber is queued or running, at most one at a time
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean overflowed;
+        // System.nanoTime() when the running send started, 0 when no send is running. written under this
+        private volatile long sendStartedAt;
+        // a send went past its deadline, the subscriber is out of the feed. guarded by this
+        private boolean stalled;
+        // the pool got an extra thread for the blocked send. guarded by this
+        private boolean compensated;
+
+        Subscriber(SseEmitter emitter, Set<ChangeEvent.Entity> entities, Set<Integer> ids) {
+            this.emitter = emitter;
+            this.entities = entities;
+            this.ids = ids;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        boolean accepts(ChangeEvent event) {
+            return (entities.isEmpty() || entities.contains(event.getEntity()))
+                    && (ids.isEmpty() || ids.contains(event.getId()));
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+            if (!queue.offer(frame)) {
+                // too far behind: what is queued is useless without the dropped event, the client reloads instead
+                queue.clear();
+                if (!overflowed) {
+                    overflowed = true;
+                    resyncs.incrementAndGet();
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // dispatcher is shut down
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        // called by the deadline check. the blocked send holds the emitter's monitor, so the emitter can
+        // only be completed by the dispatch thread once the send returns
+        void stall() {
+            synchronized (this) {
+                // the send may have returned since the check
+                if (stalled || sendStartedAt == 0) {
+                    return;
+                }
+                stalled = true;
+                compensated = addCompensationThread();
+            }
+            subscribers.remove(this);
+            queue.clear();
+            stalledDrops.incrementAndGet();
+            logger.warn("Stream subscriber dropped, send blocked for more than {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+        }
+
+        private void drain() {
+            try {
+                for (int sent = 0; sent < DRAIN_BATCH; sent++) {
+                    Set<ResponseBodyEmitter.DataWithMediaType> frame;
+                    if (overflowed) {
+                        overflowed = false;
+                        frame = RESYNC;
+                    } else {
+                        frame = queue.poll();
+                        if (frame == null) {
+                            break;
+                        }
+                    }
+                    synchronized (this) {
+                        sendStartedAt = System.nanoTime();
+                    }
+                    try {
+                        emitter.send(frame);
+                    } finally {
+                        synchronized (this) {
+                            sendStartedAt = 0;
+                        }
+                    }
+                    if (isStalled()) {
+                        break;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client disconnected or the emitter is already complete. scheduled stays set, nothing is sent again
+                subscribers.remove(this);
+                queue.clear();
+                releaseStalled(false);
+                return;
+            }
+            if (isStalled()) {
+                // the blocked send got through after all, end the response. scheduled stays set
+                releaseStalled(true);
+                return;
+            }
+            scheduled.set(false);
+            if (overflowed || !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private synchronized boolean isStalled() {
+            return stalled;
+        }
+
+        // stall() only happens during a send, so this runs after every stall, on the dispatch thread
+        private void releaseStalled(boolean complete) {
+            boolean release;
+            synchronized (this) {
+                if (!stalled) {
+                    return;
+                }
+                release = compensated;
+                compensated = false;
+            }
+            if (complete) {
+                emitter.complete();
+            }
+            if (release) {
+                removeCompensationThread();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.clashroyale.api.web;
+
+//response encodings we keep ready-made bodies for. brotli would need a native library,
+//deflate is the third option instead
+public enum ContentEncoding {
+    GZIP("gzip"),
+    DEFLATE("deflate"),
+    IDENTITY("identity");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    //picks the encoding for an Accept-Encoding header: highest q-value wins, on a tie gzip before deflate.
+    //identity is the answer when nothing else is accepted
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        double gzip = 0;
+        double deflate = 0;
+        double wildcard = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String name = tokens[0].trim().toLowerCase();
+            double quality = quality(tokens);
+            switch (name) {
+                case "gzip", "x-gzip" -> gzip = quality;
+                case "deflate" -> deflate = quality;
+                case "*" -> wildcard = quality;
+                default -> { }
+            }
+        }
+        if (wildcard >= 0) {
+            // "*" covers the encodings that are not listed by name
+            if (!acceptEncoding.toLowerCase().contains("gzip")) {
+                gzip = wildcard;
+            }
+            if (!acceptEncoding.toLowerCase().contains("deflate")) {
+                deflate = wildcard;
+            }
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : IDENTITY;
+    }
+
+    private static double quality(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String parameter = tokens[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
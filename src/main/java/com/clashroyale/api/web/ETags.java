@@ -0,0 +1,66 @@
+package com.clashroyale.api.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+//strong ETags of the form "<resource>-<version>" and the If-None-Match / If-Match checks.
+//versions come from the database (version columns), so a tag means the same on every instance
+public final class ETags {
+
+    private ETags() {}
+
+    public static String of(String resource, long version) {
+        return "\"" + resource + "-" + version + "\"";
+    }
+
+    //bodies in different encodings are different representations, so they get different tags
+    public static String of(String resource, long version, ContentEncoding encoding) {
+        if (encoding == ContentEncoding.IDENTITY) {
+            return of(resource, version);
+        }
+        return "\"" + resource + "-" + version + "-" + encoding.token() + "\"";
+    }
+
+    //true if the client copy (If-None-Match) is current. weak comparison: W/ prefixes are ignored.
+    //"*" ("any current representation") never matches: the request gets the full 200 (or the 404)
+    public static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Version a PUT expects, from its If-Match header: null if there is no condition
+     * (no header or "*"), -1 if the header can never match (weak tag, other resource, garbage).
+     * Only one tag is supported, that is what clients send for optimistic updates.
+     */
+    public static Long expectedVersion(String ifMatch, String resource) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        String prefix = "\"" + resource + "-";
+        if (!tag.startsWith(prefix) || !tag.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    public static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.clashroyale.api.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+//one JSON response body, serialized once and compressed once per encoding.
+//small bodies are not compressed, for them every encoding gets the identity bytes
+public final class EncodedBody {
+
+    private static final int MIN_COMPRESS_BYTES = 1024;
+
+    private final long version;
+    private final Map<ContentEncoding, byte[]> variants = new EnumMap<>(ContentEncoding.class);
+
+    EncodedBody(long version, byte[] json) throws IOException {
+        this.version = version;
+        variants.put(ContentEncoding.IDENTITY, json);
+        if (json.length >= MIN_COMPRESS_BYTES) {
+            variants.put(ContentEncoding.GZIP, gzip(json));
+            variants.put(ContentEncoding.DEFLATE, deflate(json));
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    //bytes to send for the encoding, and the encoding they really have
+    ContentEncoding resolve(ContentEncoding wanted) {
+        return variants.containsKey(wanted) ? wanted : ContentEncoding.IDENTITY;
+    }
+
+    byte[] bytes(ContentEncoding encoding) {
+        return variants.get(encoding);
+    }
+
+    //total size of all variants, used as cache weight
+    int weight() {
+        int total = 0;
+        for (byte[] bytes : variants.values()) {
+            total += bytes.length;
+        }
+        return total;
+    }
+
+    //200 response with the variant for the negotiated encoding (see ContentEncoding.negotiate).
+    //the array is handed to the byte array converter as is, it is copied straight to the output stream
+    public ResponseEntity<byte[]> toResponse(ContentEncoding wanted, String etag) {
+        ContentEncoding encoding = resolve(wanted);
+        byte[] bytes = bytes(encoding);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(bytes.length)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding != ContentEncoding.IDENTITY) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, encoding.token());
+        }
+        return builder.body(bytes);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (OutputStream gzip = new GZIPOutputStream(out) {
+            { def.setLevel(Deflater.BEST_COMPRESSION); }
+        }) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    //HTTP "deflate" is the zlib format, which is what DeflaterOutputStream writes
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (OutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+            deflate.write(data);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
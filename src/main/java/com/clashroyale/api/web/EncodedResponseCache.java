@@ -0,0 +1,52 @@
+package com.clashroyale.api.web;
+
+import com.clashroyale.api.cache.BoundedCache;
+import com.clashroyale.api.metrics.RequestTrace;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Ready-to-send response bodies for read-mostly views (all cards, cards of a type).
+ * Key is view name + data version, so a new catalog version simply misses and the old
+ * entry ages out. Every body is serialized and compressed once, by one thread (single-flight),
+ * and after that serving it is a plain byte copy.
+ */
+@Component
+public class EncodedResponseCache {
+
+    // weight is bytes of all variants together
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+    // a few views times a few versions. sized by MAX_BYTES the sketch alone would take 128 MiB
+    private static final long EXPECTED_BODIES = 64;
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    private final ObjectMapper objectMapper;
+    private final BoundedCache<String, EncodedBody> bodies =
+            new BoundedCache<>(MAX_BYTES, EXPECTED_BODIES, TTL, EncodedBody::weight);
+
+    @Autowired
+    public EncodedResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    //body of the view at this version, content is only built and serialized on a miss
+    public EncodedBody get(String view, long version, Supplier<?> content) throws IOException {
+        return bodies.get(view + "@" + version, () -> new EncodedBody(version, serialize(content.get())));
+    }
+
+    private byte[] serialize(Object content) throws IOException {
+        RequestTrace trace = RequestTrace.current();
+        int span = trace.enter(RequestTrace.Layer.SERIALIZE, "EncodedResponseCache", System.nanoTime());
+        try {
+            return objectMapper.writeValueAsBytes(content);
+        } finally {
+            trace.exit(RequestTrace.Layer.SERIALIZE, span, System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.clashroyale.api.web;
+
+import com.clashroyale.api.metrics.RequestTrace;
+import com.clashroyale.api.patterns.singleton.LoggerService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Traces every API request (see RequestTrace) and sends the time per layer as a Server-Timing header:
+ *   Server-Timing: controller;dur=2.104, service;dur=1.950, cache;dur=0.012, repository;dur=1.801, ...
+ *
+ * Headers can't change once the body has started, so the header is added right before the first byte
+ * (or the status, for responses without a body). A sampled share of the requests also logs its spans.
+ *
+ * The trace is a per-thread object that is reused by the thread's next request, so only the request
+ * thread reads it. Async responses (SSE, StreamingResponseBody) write from other threads: for them the
+ * header value is built on the request thread when it leaves the filter, a write before that gets no header.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+    // browsers only show Server-Timing of other origins with this header
+    private static final String TIMING_ALLOW_ORIGIN = "Timing-Allow-Origin";
+
+    private final double sampleRate;
+    private final LoggerService logger = LoggerService.getInstance();
+
+    public ServerTimingFilter(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.current();
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        trace.begin(sampled);
+        TimingResponse timingResponse = new TimingResponse(response, trace);
+        try {
+            chain.doFilter(request, timingResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                timingResponse.freeze();
+            }
+            timingResponse.addServerTiming();
+            if (sampled) {
+                logger.info(trace.describe(request.getMethod() + " " + request.getRequestURI() + " " +
+                        response.getStatus(), System.nanoTime()));
+            }
+            trace.end();
+        }
+    }
+
+    //adds the header once, just before the response is committed
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+        private final Thread requestThread = Thread.currentThread();
+        private final RequestTrace trace;
+        private boolean added;
+        // header value fixed on the request thread for an async response, other threads use only this
+        private String frozen;
+
+        TimingResponse(HttpServletResponse response, RequestTrace trace) {
+            super(response);
+            this.trace = trace;
+        }
+
+        //request thread, before it leaves the filter and its trace is reused
+        synchronized void freeze() {
+            if (frozen == null) {
+                frozen = trace.serverTiming(System.nanoTime());
+            }
+        }
+
+        synchronized void addServerTiming() {
+            if (added || isCommitted()) {
+                return;
+            }
+            String value = frozen;
+            if (value == null) {
+                if (Thread.currentThread() != requestThread) {
+                    return; // async write before the request thread is done, the trace isn't ours to read
+                }
+                value = trace.serverTiming(System.nanoTime());
+            }
+            added = true;
+            setHeader(SERVER_TIMING, value);
+            setHeader(TIMING_ALLOW_ORIGIN, "*");
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.clashroyale.api.web;
+
+import com.clashroyale.api.metrics.RequestTrace;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * JSON converter that serializes a traced request's body into a buffer first: the time Jackson takes
+ * is the "serialize" span, and the Server-Timing header (written when the body starts) can still
+ * include it. The body goes out with a Content-Length instead of chunked.
+ *
+ * Every thread reuses its buffer, bodies over MAX_RETAINED_BYTES don't keep theirs.
+ */
+public class TracingJacksonConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final int INITIAL_BYTES = 8 * 1024;
+    private static final int MAX_RETAINED_BYTES = 256 * 1024;
+
+    private static final ThreadLocal<BodyBuffer> BUFFERS = ThreadLocal.withInitial(BodyBuffer::new);
+
+    public TracingJacksonConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        RequestTrace trace = RequestTrace.current();
+        if (!trace.isActive()) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+
+        BodyBuffer buffer = BUFFERS.get();
+        buffer.reset();
+        try {
+            long start = System.nanoTime();
+            int span = trace.enter(RequestTrace.Layer.SERIALIZE, object.getClass().getSimpleName(), start);
+            try {
+                super.writeInternal(object, type, new BufferedMessage(outputMessage.getHeaders(), buffer));
+            } finally {
+                trace.exit(RequestTrace.Layer.SERIALIZE, span, System.nanoTime());
+            }
+            outputMessage.getHeaders().setContentLength(buffer.size());
+            buffer.writeTo(outputMessage.getBody());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static final class BodyBuffer extends ByteArrayOutputStream {
+        BodyBuffer() {
+            super(INITIAL_BYTES);
+        }
+
+        // a rare large body doesn't stay allocated for the life of the thread
+        void release() {
+            if (buf.length > MAX_RETAINED_BYTES) {
+                buf = new byte[INITIAL_BYTES];
+            }
+            count = 0;
+        }
+    }
+
+    private static final class BufferedMessage implements HttpOutputMessage {
+        private final HttpHeaders headers;
+        private final OutputStream body;
+
+        BufferedMessage(HttpHeaders headers, OutputStream body) {
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
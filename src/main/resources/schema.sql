@@ -1,3 +1,5 @@
+DROP TABLE IF EXISTS trophy_ledger_flushes CASCADE;
+DROP TABLE IF EXISTS card_catalog_version CASCADE;
 DROP TABLE IF EXISTS deck_cards CASCADE;
 DROP TABLE IF EXISTS decks CASCADE;
 DROP TABLE IF EXISTS cards CASCADE;
@@ -8,7 +10,8 @@ create table players (
     id serial primary key,
     name varchar(50) unique not null,
     level int default 1,
-    trophies int default 0
+    trophies int default 0 check (trophies >= 0),
+    version bigint not null default 1 -- +1 при каждом UPDATE, из него ETag и проверка If-Match
 );
 
 ---таблица карт
@@ -22,9 +25,18 @@ create table cards (
     damage int default 0,
     hp int default 0,
     radius int default 0,
-    lifetime int default 0
+    lifetime int default 0,
+    version bigint not null default 1 -- версия каталога, в которой карта последний раз менялась
 );
 
+-- версия каталога карт (одна строка): каждая запись в cards берёт следующую в том же запросе,
+-- поэтому все инстансы видят одну и ту же последовательность версий (ETag, ?since=)
+create table card_catalog_version (
+    id boolean primary key default true check (id),
+    version bigint not null
+);
+insert into card_catalog_version (version) values (1);
+
 --- таблица колод
 create table decks (
     id serial primary key,
@@ -41,6 +53,20 @@ primary key (deck_id, card_id),
 unique (deck_id, position)
 );
 
+-- сегменты журнала трофеев, которые уже записаны в players (write-behind ledger).
+-- пишется в той же транзакции, что и UPDATE, поэтому после сбоя сегмент не применится дважды
+-- сюда же PUT игрока пишет имя сброса (segment@offset): после сбоя его старые дельты отбрасываются,
+-- только если новое значение действительно записано
+create table trophy_ledger_flushes (
+    segment varchar(100) primary key,
+    applied_at timestamp not null default now()
+);
+
+-- индексы для keyset пагинации (GET /api/players?limit=&after=, GET /api/cards?limit=&after=)
+-- порядок совпадает с ORDER BY -trophies, id и ORDER BY -level, name, id
+create index idx_players_keyset on players ((-trophies), id);
+create index idx_cards_keyset on cards ((-level), name, id);
+
 insert into players (name, level, trophies) values
                                                 ('Amirhan', 12, 10000),
                                                 ('Batyr', 3, 90);
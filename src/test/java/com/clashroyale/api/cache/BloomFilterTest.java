@@ -0,0 +1,54 @@
+package com.clashroyale.api.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void everythingAddedIsFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(BloomFilter.hash(i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(BloomFilter.hash(i)), "id " + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(BloomFilter.hash(i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain(BloomFilter.hash(i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives in 100000");
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        assertFalse(filter.mightContain(BloomFilter.hash(1)));
+        assertFalse(filter.mightContain(BloomFilter.hash("player")));
+    }
+
+    @Test
+    void stringsHashByContent() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.put(BloomFilter.hash("Knight"));
+
+        assertTrue(filter.mightContain(BloomFilter.hash(new String("Knight"))));
+        assertEquals(BloomFilter.hash("a"), BloomFilter.hash("a"));
+        assertNotEquals(BloomFilter.hash("ab"), BloomFilter.hash("ba"));
+    }
+}
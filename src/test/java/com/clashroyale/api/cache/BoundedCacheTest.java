@@ -0,0 +1,178 @@
+package com.clashroyale.api.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    @Test
+    void getReturnsWhatWasPut() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, Duration.ZERO);
+        cache.put(1, "one");
+
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void sizeNeverExceedsTheLimit() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, Duration.ZERO);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i);
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.stats().getEvictions());
+    }
+
+    @Test
+    void weightIsBoundedNotTheNumberOfEntries() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 10, Duration.ZERO, String::length);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, "x".repeat(30));
+        }
+
+        assertTrue(cache.stats().getWeight() <= 100);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void valueHeavierThanTheLimitIsNotStored() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, 10, Duration.ZERO, String::length);
+        cache.put(1, "small");
+        cache.put(1, "x".repeat(11));
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.stats().getWeight());
+    }
+
+    @Test
+    void loadedValueHeavierThanTheLimitIsReturnedButNotStored() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, 10, Duration.ZERO, String::length);
+        cache.put(1, "small");
+        cache.invalidate(1);
+
+        assertEquals(11, cache.get(1, () -> "x".repeat(11)).length());
+        assertNull(cache.get(1));
+        assertEquals(0, cache.stats().getWeight());
+        // the key is not stuck as "loading"
+        assertEquals("again", cache.get(1, () -> "again"));
+    }
+
+    @Test
+    void popularEntriesSurviveAScan() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, Duration.ZERO);
+        cache.put(-1, "hot");
+        for (int i = 0; i < 20; i++) {
+            cache.get(-1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "cold");
+        }
+
+        assertEquals("hot", cache.get(-1));
+    }
+
+    @Test
+    void expiredEntryIsAMiss() throws InterruptedException {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, Duration.ofMillis(1));
+        cache.put(1, "one");
+        Thread.sleep(5);
+
+        assertNull(cache.get(1));
+        assertFalse(cache.contains(1));
+        assertEquals(1, cache.stats().getExpirations());
+    }
+
+    @Test
+    void loaderRunsOnlyOnMiss() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        CacheLoader<String, RuntimeException> loader = () -> "load " + loads.incrementAndGet();
+
+        assertEquals("load 1", cache.get(1, loader));
+        assertEquals("load 1", cache.get(1, loader));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void loaderExceptionIsRethrownAndNothingIsCached() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> cache.get(1, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertFalse(cache.contains(1));
+        assertEquals(1, cache.stats().getLoadFailures());
+    }
+
+    @Test
+    void updateReplacesAndNullRemoves() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, Duration.ZERO);
+        cache.put(1, "one");
+
+        cache.update(1, value -> value + "!");
+        assertEquals("one!", cache.get(1));
+
+        cache.update(1, value -> null);
+        assertNull(cache.get(1));
+
+        cache.update(2, value -> "never stored");
+        assertFalse(cache.contains(2));
+    }
+
+    @Test
+    void invalidatedNodesDoNotPileUpInTheEvictionQueue() {
+        // the cache never gets full, so eviction never polls the queue
+        BoundedCache<Integer, String> cache = new BoundedCache<>(1000, Duration.ZERO);
+        for (int i = 0; i < 100_000; i++) {
+            cache.put(i, "v");
+            cache.invalidate(i);
+        }
+
+        assertEquals(0, cache.size());
+        assertTrue(cache.queuedNodes() <= 100, "queue holds " + cache.queuedNodes() + " nodes");
+    }
+
+    @Test
+    void removedByUpdateAndExpiryAreCompactedToo() throws InterruptedException {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(1000, Duration.ZERO);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, "v");
+            cache.update(i, value -> null);
+        }
+        assertTrue(cache.queuedNodes() <= 100, "queue holds " + cache.queuedNodes() + " nodes");
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, "v", Duration.ofNanos(1));
+        }
+        Thread.sleep(5);
+        for (int i = 0; i < 10_000; i++) {
+            cache.get(i);
+        }
+        assertEquals(0, cache.size());
+        assertTrue(cache.queuedNodes() <= 100, "queue holds " + cache.queuedNodes() + " nodes");
+    }
+
+    @Test
+    void entriesPutAfterInvalidateAllCanStillBeEvicted() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, Duration.ZERO);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "v");
+        }
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+
+        for (int i = 0; i < 500; i++) {
+            cache.put(1000 + i, "v");
+        }
+        assertEquals(100, cache.size());
+        assertEquals(100, cache.queuedNodes());
+    }
+}
@@ -0,0 +1,90 @@
+package com.clashroyale.api.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void countsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertEquals(0, sketch.frequency(42));
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment(42);
+        }
+        assertEquals(5, sketch.frequency(42));
+
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(42);
+        }
+        assertEquals(15, sketch.frequency(42));
+    }
+
+    @Test
+    void otherKeysAreNotCounted() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(1);
+        }
+
+        assertEquals(0, sketch.frequency(2));
+    }
+
+    @Test
+    void agingLetsOldPopularityFade() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(-1);
+        }
+        assertEquals(15, sketch.frequency(-1));
+
+        // 10 * table size additions start a reset, other keys keep being counted
+        int key = 0;
+        while (sketch.frequency(-1) == 15 && key < 1000) {
+            sketch.increment(key++);
+        }
+
+        assertTrue(sketch.frequency(-1) < 15, "no reset after " + key + " keys");
+        assertTrue(key <= 300, "reset after " + key + " keys");
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws InterruptedException {
+        // large enough that no reset runs. 4 threads * 3 rounds stays below the 15 cap, so a lost update shows
+        FrequencySketch sketch = new FrequencySketch(1 << 16);
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int round = 0; round < 3; round++) {
+                    for (int key = 0; key < 1000; key++) {
+                        sketch.increment(key);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // collisions can only raise the estimate
+        for (int key = 0; key < 1000; key++) {
+            assertTrue(sketch.frequency(key) >= 12, "key " + key + ": " + sketch.frequency(key));
+        }
+    }
+}
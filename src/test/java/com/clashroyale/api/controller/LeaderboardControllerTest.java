@@ -0,0 +1,67 @@
+package com.clashroyale.api.controller;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.exception.GlobalExceptionHandler;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import com.clashroyale.api.service.ledger.TrophyLedger;
+import com.clashroyale.api.service.leaderboard.LeaderboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LeaderboardControllerTest {
+
+    private PlayerRepositoryInterface playerRepository;
+    private TrophyLedger trophyLedger;
+    private LeaderboardService leaderboardService;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        playerRepository = mock(PlayerRepositoryInterface.class);
+        trophyLedger = mock(TrophyLedger.class);
+        leaderboardService = new LeaderboardService(playerRepository, trophyLedger);
+        ReflectionTestUtils.setField(leaderboardService, "enabled", true);
+        ReflectionTestUtils.setField(leaderboardService, "rebuildIntervalMs", 600_000L);
+        mvc = MockMvcBuilders.standaloneSetup(new LeaderboardController(leaderboardService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void loadingIsServiceUnavailableWithRetryAfter() throws Exception {
+        mvc.perform(get("/api/leaderboard"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+    }
+
+    @Test
+    void failedBuildRetriesAtTheNextRebuild() throws Exception {
+        when(trophyLedger.trackCommits()).thenReturn(mock(TrophyLedger.CommitTracker.class));
+        when(playerRepository.streamAllWithAppliedSegments(any(), any()))
+                .thenThrow(new DatabaseException("database down", null));
+        leaderboardService.buildOnStartup();
+
+        mvc.perform(get("/api/leaderboard"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "600"));
+    }
+
+    @Test
+    void disabledIsNotFound() throws Exception {
+        ReflectionTestUtils.setField(leaderboardService, "enabled", false);
+
+        mvc.perform(get("/api/leaderboard"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.RETRY_AFTER));
+    }
+}
@@ -0,0 +1,100 @@
+package com.clashroyale.api.controller;
+
+import com.clashroyale.api.exception.GlobalExceptionHandler;
+import com.clashroyale.api.exception.PreconditionFailedException;
+import com.clashroyale.api.exception.ResourceNotFoundException;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.service.interfaces.DeckServiceInterface;
+import com.clashroyale.api.service.interfaces.PlayerServiceInterface;
+import com.clashroyale.api.service.leaderboard.LeaderboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PlayerControllerTest {
+
+    private static final String BODY = "{\"name\":\"Amirhan\",\"level\":12,\"trophies\":500}";
+
+    private PlayerServiceInterface playerService;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        playerService = mock(PlayerServiceInterface.class);
+        PlayerController controller = new PlayerController(playerService, mock(DeckServiceInterface.class),
+                mock(LeaderboardService.class));
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void etagIsTheStoredVersion() throws Exception {
+        when(playerService.getPlayerById(1)).thenReturn(stored(3));
+
+        mvc.perform(get("/api/players/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"player-1-3\""));
+        mvc.perform(get("/api/players/1").header(HttpHeaders.IF_NONE_MATCH, "\"player-1-3\""))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/players/1").header(HttpHeaders.IF_NONE_MATCH, "\"player-1-2\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void deletedPlayerIsNotFoundWhateverTheClientHolds() throws Exception {
+        when(playerService.getPlayerById(1)).thenThrow(new ResourceNotFoundException("Player with id: 1 doesn't exist"));
+
+        mvc.perform(get("/api/players/1").header(HttpHeaders.IF_NONE_MATCH, "\"player-1-3\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void unwrittenGrantsGiveNoETag() throws Exception {
+        when(playerService.getPlayerById(1)).thenReturn(stored(0));
+
+        mvc.perform(get("/api/players/1").header(HttpHeaders.IF_NONE_MATCH, "\"player-1-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void ifMatchGoesToTheUpdateAndTheNewVersionComesBack() throws Exception {
+        doAnswer(call -> {
+            call.getArgument(1, Player.class).setVersion(4);
+            return null;
+        }).when(playerService).updatePlayer(eq(1), any(Player.class), eq(3L));
+
+        mvc.perform(put("/api/players/1").contentType(MediaType.APPLICATION_JSON).content(BODY)
+                        .header(HttpHeaders.IF_MATCH, "\"player-1-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"player-1-4\""));
+    }
+
+    @Test
+    void staleIfMatchIsPreconditionFailed() throws Exception {
+        doThrow(new PreconditionFailedException("Player 1 was changed by someone else"))
+                .when(playerService).updatePlayer(eq(1), any(Player.class), eq(2L));
+
+        mvc.perform(put("/api/players/1").contentType(MediaType.APPLICATION_JSON).content(BODY)
+                        .header(HttpHeaders.IF_MATCH, "\"player-1-2\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    private static Player stored(long version) {
+        Player player = new Player(1, "Amirhan", 12, 500);
+        player.setVersion(version);
+        return player;
+    }
+}
@@ -0,0 +1,70 @@
+package com.clashroyale.api.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptySnapshot() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.valueAt(0.99));
+        assertEquals(0, snapshot.getMeanNanos());
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMaxNanos());
+        assertEquals(500_500, snapshot.getMeanNanos(), 0.001);
+        // 16 sub-buckets per power of two: an upper bound is at most 1/16 above the value
+        assertWithin(500_000, snapshot.valueAt(0.5));
+        assertWithin(990_000, snapshot.valueAt(0.99));
+        assertEquals(1_000_000, snapshot.valueAt(1.0));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(4, histogram.snapshot().valueAt(0.5));
+        assertEquals(9, histogram.snapshot().valueAt(1.0));
+    }
+
+    @Test
+    void negativeAndHugeValuesAreKept() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.valueAt(0.5));
+        assertEquals(Long.MAX_VALUE / 2, snapshot.valueAt(1.0));
+    }
+
+    @Test
+    void everyValueFitsItsBucket() {
+        for (long value = 0; value < 1_000_000; value = value * 3 / 2 + 1) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1), "value " + value);
+        }
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 16, expected + " vs " + actual);
+    }
+}
@@ -0,0 +1,73 @@
+package com.clashroyale.api.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static com.clashroyale.api.metrics.RequestTrace.Layer.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTraceTest {
+
+    private static final long MS = 1_000_000;
+
+    private final RequestTrace trace = RequestTrace.current();
+
+    @AfterEach
+    void end() {
+        trace.end();
+    }
+
+    @Test
+    void layersAreSummedAndNestedCallsCountOnce() {
+        trace.begin(false);
+        long t = System.nanoTime();
+        int service = trace.enter(SERVICE, "PlayerService.getPlayerById", t);
+        int repository = trace.enter(REPOSITORY, "PlayerRepository.getById", t + MS);
+        trace.exit(REPOSITORY, repository, t + 3 * MS);
+        // a service calling another service is still one service call
+        int inner = trace.enter(SERVICE, "DeckService.attachDecks", t + 3 * MS);
+        repository = trace.enter(REPOSITORY, "DeckRepository.getByPlayerIds", t + 4 * MS);
+        trace.exit(REPOSITORY, repository, t + 5 * MS);
+        trace.exit(SERVICE, inner, t + 5 * MS);
+        trace.exit(SERVICE, service, t + 6 * MS);
+
+        String header = trace.serverTiming(t + 7 * MS);
+
+        assertTrue(header.startsWith("service;dur=6.000, repository;dur=3.000;desc=\"2 calls\", total;dur="), header);
+    }
+
+    @Test
+    void unusedLayersAreLeftOut() {
+        trace.begin(false);
+
+        assertTrue(trace.serverTiming(System.nanoTime()).startsWith("total;dur="));
+    }
+
+    @Test
+    void nothingIsTracedOutsideARequest() {
+        trace.begin(true);
+        trace.end();
+
+        assertFalse(trace.isActive());
+        assertEquals(RequestTrace.NOT_TRACED, trace.enter(SERVICE, "CardService.getAllCards", System.nanoTime()));
+    }
+
+    @Test
+    void sampledRequestListsItsSpans() {
+        trace.begin(true);
+        long t = System.nanoTime();
+        int service = trace.enter(SERVICE, "CardService.getCardById", t);
+        int db = trace.enter(DB, "SELECT cards", t + MS);
+        trace.exit(DB, db, t + 2 * MS);
+        int log = trace.enter(LOG, "info", t + 2 * MS);
+        trace.exit(LOG, log, t + 2 * MS);
+        trace.exit(SERVICE, service, t + 3 * MS);
+
+        String spans = trace.describe("GET /api/cards/1 200", t + 4 * MS);
+
+        assertTrue(spans.contains("ms 3.000ms service CardService.getCardById"), spans);
+        assertTrue(spans.contains("\n    +"), "db span is nested: " + spans);
+        assertTrue(spans.contains("1.000ms db SELECT cards"), spans);
+        assertTrue(spans.contains("log: 1 calls"), spans);
+    }
+}
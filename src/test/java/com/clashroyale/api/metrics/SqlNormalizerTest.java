@@ -0,0 +1,49 @@
+package com.clashroyale.api.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlNormalizerTest {
+
+    @Test
+    void literalsBecomePlaceholders() {
+        assertEquals("SELECT * FROM cards WHERE id = ? AND name = ?",
+                SqlNormalizer.normalize("SELECT * FROM cards WHERE id = 42 AND name = 'Knight'"));
+    }
+
+    @Test
+    void escapedQuotesStayInsideTheLiteral() {
+        assertEquals("UPDATE players SET name = ? WHERE id = ?",
+                SqlNormalizer.normalize("UPDATE players SET name = 'O''Brien' WHERE id = 7"));
+    }
+
+    @Test
+    void digitsOfIdentifiersAndParametersAreKept() {
+        assertEquals("SELECT card2 FROM t1 WHERE x = $1 AND y = ?",
+                SqlNormalizer.normalize("SELECT card2 FROM t1 WHERE x = $1 AND y = 3.5"));
+    }
+
+    @Test
+    void whitespaceIsCollapsed() {
+        assertEquals("SELECT id FROM cards WHERE level > ?",
+                SqlNormalizer.normalize("  SELECT id\n\tFROM   cards\n WHERE level >  10  "));
+    }
+
+    @Test
+    void inListsOfAnyLengthAreOneStatement() {
+        String three = SqlNormalizer.normalize("SELECT * FROM cards WHERE id IN (1, 2, 3)");
+        String two = SqlNormalizer.normalize("SELECT * FROM cards WHERE id IN (?,?)");
+
+        assertEquals("SELECT * FROM cards WHERE id IN (?...)", three);
+        assertEquals(three, two);
+    }
+
+    @Test
+    void multiRowValuesAreFolded() {
+        assertEquals("INSERT INTO decks (player_id, card_id) VALUES (?, ?), ...",
+                SqlNormalizer.normalize("INSERT INTO decks (player_id, card_id) VALUES (1, 2), (1, 3), (1, 4)"));
+        assertEquals("INSERT INTO decks (player_id, card_id) VALUES (?, ?)",
+                SqlNormalizer.normalize("INSERT INTO decks (player_id, card_id) VALUES (?, ?)"));
+    }
+}
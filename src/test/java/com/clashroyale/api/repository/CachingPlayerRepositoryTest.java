@@ -0,0 +1,110 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.exception.PreconditionFailedException;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.patterns.observer.InvalidationBus;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CachingPlayerRepositoryTest {
+
+    private PlayerRepositoryInterface database;
+    private InvalidationBus bus;
+    private CachingPlayerRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = mock(PlayerRepositoryInterface.class);
+        bus = mock(InvalidationBus.class);
+        repository = new CachingPlayerRepository(database, bus, 100, 300);
+        when(database.getById(1)).thenAnswer(call -> row(500, 3));
+    }
+
+    @AfterEach
+    void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void readThroughHandsOutCopies() throws Exception {
+        Player first = repository.getById(1);
+        first.setTrophies(9999);
+        Player second = repository.getById(1);
+
+        assertEquals(500, second.getTrophies());
+        assertNotSame(first, second);
+        verify(database, times(1)).getById(1);
+    }
+
+    @Test
+    void writeIsCachedAndPublishedRightAwayOutsideATransaction() throws Exception {
+        repository.getById(1);
+
+        repository.update(1, row(700, 4), 3L);
+
+        assertEquals(700, repository.getById(1).getTrophies());
+        assertEquals(4, repository.getById(1).getVersion());
+        verify(database, times(1)).getById(1);
+        verify(bus).publish("player:1");
+    }
+
+    @Test
+    void writeInATransactionIsCachedOnlyAfterTheCommit() throws Exception {
+        repository.getById(1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        repository.update(1, row(700, 4), 3L);
+
+        // not committed yet: the cached row is gone, readers go to the database
+        assertEquals(500, repository.getById(1).getTrophies());
+        verify(database, times(2)).getById(1);
+        verify(bus, never()).publish(anyString());
+
+        // the read above cached the old row again, the commit replaces it
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(700, repository.getById(1).getTrophies());
+        verify(database, times(2)).getById(1);
+        verify(bus).publish("player:1");
+    }
+
+    @Test
+    void rolledBackWriteIsNeverCached() throws Exception {
+        repository.getById(1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        repository.update(1, row(700, 4), 3L);
+        // rollback: afterCommit is never called
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertEquals(500, repository.getById(1).getTrophies());
+        verify(bus, never()).publish(anyString());
+    }
+
+    @Test
+    void staleIfMatchDropsTheCachedRow() throws Exception {
+        repository.getById(1);
+        doThrow(new PreconditionFailedException("Player 1 was changed by someone else"))
+                .when(database).update(eq(1), any(), eq(2L), isNull());
+
+        assertThrows(PreconditionFailedException.class, () -> repository.update(1, row(700, 2), 2L));
+
+        repository.getById(1);
+        verify(database, times(2)).getById(1);
+    }
+
+    private static Player row(int trophies, long version) {
+        Player player = new Player(1, "Amirhan", 12, trophies);
+        player.setVersion(version);
+        return player;
+    }
+}
@@ -0,0 +1,132 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.SpellCard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CardRepositoryTest {
+
+    private static final long VERSION = 7;
+
+    private Connection conn;
+    private CardRepository repository;
+    // names of the rows that reached the table, the id of a row is its position + 1
+    private final List<String> inserted = new ArrayList<>();
+    private String boundName;
+    private int lastId;
+
+    @BeforeEach
+    void database() throws Exception {
+        conn = mock(Connection.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(conn);
+        when(conn.getAutoCommit()).thenReturn(true);
+        when(conn.setSavepoint()).thenReturn(mock(Savepoint.class));
+
+        PreparedStatement versionStmt = mock(PreparedStatement.class);
+        ResultSet versionRow = mock(ResultSet.class);
+        when(conn.prepareStatement(contains("card_catalog_version"))).thenReturn(versionStmt);
+        when(versionStmt.executeQuery()).thenReturn(versionRow);
+        when(versionRow.next()).thenReturn(true);
+        when(versionRow.getLong(1)).thenReturn(VERSION);
+
+        // a batch with a bad row fails as a whole, single rows fail only when they are bad
+        PreparedStatement insertStmt = mock(PreparedStatement.class);
+        when(conn.prepareStatement(startsWith("INSERT INTO cards"), any(String[].class))).thenReturn(insertStmt);
+        doAnswer(call -> boundName = call.getArgument(1)).when(insertStmt).setString(eq(1), anyString());
+        when(insertStmt.executeBatch()).thenThrow(new SQLException("batch entry 1 was aborted"));
+        when(insertStmt.executeUpdate()).thenAnswer(call -> {
+            if (boundName.startsWith("bad")) {
+                throw new SQLException("value too long for type character varying(50)");
+            }
+            inserted.add(boundName);
+            lastId = inserted.size();
+            return 1;
+        });
+        when(insertStmt.getGeneratedKeys()).thenAnswer(call -> {
+            ResultSet keys = mock(ResultSet.class);
+            when(keys.next()).thenReturn(true);
+            when(keys.getInt(1)).thenReturn(lastId);
+            return keys;
+        });
+
+        repository = new CardRepository(dataSource);
+    }
+
+    @Test
+    void failedBatchFallsBackToRowsInTheSameTransaction() throws Exception {
+        List<Card> cards = Arrays.asList(spell("Zap"), spell("bad name"), null, spell("Log"));
+        String[] errors = new String[cards.size()];
+
+        int[] ids = repository.createAll(cards, errors);
+
+        assertArrayEquals(new int[]{1, 0, 0, 2}, ids);
+        assertNull(errors[0]);
+        assertEquals("value too long for type character varying(50)", errors[1]);
+        assertNull(errors[2]);
+        assertEquals(List.of("Zap", "Log"), inserted);
+        assertEquals(VERSION, cards.get(0).getVersion());
+        assertEquals(VERSION, cards.get(3).getVersion());
+        // the batch and the bad row are undone to their savepoints, the rest commits once
+        verify(conn, times(2)).rollback(any(Savepoint.class));
+        verify(conn).commit();
+        verify(conn, never()).rollback();
+        verify(conn).setAutoCommit(true);
+    }
+
+    @Test
+    void importWhereEveryRowFailsIsRolledBack() throws Exception {
+        List<Card> cards = List.of(spell("bad one"), spell("bad two"));
+        String[] errors = new String[cards.size()];
+
+        int[] ids = repository.createAll(cards, errors);
+
+        assertArrayEquals(new int[]{0, 0}, ids);
+        assertNotNull(errors[0]);
+        assertNotNull(errors[1]);
+        // the catalog version taken for the import is given back
+        verify(conn).rollback();
+        verify(conn, never()).commit();
+    }
+
+    @Test
+    void otherErrorsRollBackTheWholeImport() throws Exception {
+        doThrow(new SQLException("connection lost")).when(conn).commit();
+        List<Card> cards = List.of(spell("Zap"), spell("Log"));
+
+        assertThrows(DatabaseException.class, () -> repository.createAll(cards, new String[cards.size()]));
+
+        verify(conn).rollback();
+        assertEquals(0, cards.get(0).getId());
+        assertEquals(0, cards.get(1).getId());
+    }
+
+    @Test
+    void emptyImportDoesNotTouchTheDatabase() throws Exception {
+        List<Card> cards = Arrays.asList(null, null);
+
+        assertArrayEquals(new int[]{0, 0}, repository.createAll(cards, new String[2]));
+
+        verifyNoInteractions(conn);
+    }
+
+    private static Card spell(String name) {
+        return new SpellCard(0, name, "Common", 2, 1, 2, 100);
+    }
+}
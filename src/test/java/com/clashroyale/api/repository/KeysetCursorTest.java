@@ -0,0 +1,48 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.exception.InvalidInputException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTrip() throws Exception {
+        String cursor = KeysetCursor.encode(5000, 42);
+
+        String[] key = KeysetCursor.decode(cursor, 2);
+
+        assertEquals(5000, KeysetCursor.intPart(key, 0, cursor));
+        assertEquals(42, KeysetCursor.intPart(key, 1, cursor));
+    }
+
+    @Test
+    void lastPartKeepsItsSeparators() throws Exception {
+        String cursor = KeysetCursor.encode(3, 7, "P.E.K.K.A: Evolved");
+
+        assertArrayEquals(new String[]{"3", "7", "P.E.K.K.A: Evolved"}, KeysetCursor.decode(cursor, 3));
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        // bytes that standard Base64 would encode as '+' and '/'
+        String cursor = KeysetCursor.encode(1, "ûÿ>?");
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    }
+
+    @Test
+    void malformedCursorsAreInvalidInput() {
+        String tooFewParts = Base64.getUrlEncoder().encodeToString("5000".getBytes(StandardCharsets.UTF_8));
+        String notANumber = KeysetCursor.encode("abc", 1);
+
+        assertThrows(InvalidInputException.class, () -> KeysetCursor.decode("not base64!", 2));
+        assertThrows(InvalidInputException.class, () -> KeysetCursor.decode(tooFewParts, 2));
+        assertThrows(InvalidInputException.class,
+                () -> KeysetCursor.intPart(KeysetCursor.decode(notANumber, 2), 0, notANumber));
+    }
+}
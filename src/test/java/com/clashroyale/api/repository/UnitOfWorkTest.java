@@ -0,0 +1,98 @@
+package com.clashroyale.api.repository;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.exception.InvalidInputException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UnitOfWorkTest {
+
+    private Connection conn;
+    private DataSource pool;
+    // what the repositories use
+    private DataSource repositoryDataSource;
+    private UnitOfWork unitOfWork;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        conn = mock(Connection.class);
+        when(conn.getAutoCommit()).thenReturn(true);
+        pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(conn);
+        repositoryDataSource = new TransactionAwareDataSourceProxy(pool);
+        unitOfWork = new UnitOfWork(new DataSourceTransactionManager(pool));
+    }
+
+    @Test
+    void callsShareOneConnectionAndCommitOnce() throws Exception {
+        int result = unitOfWork.execute(() -> {
+            repositoryCall();
+            repositoryCall();
+            return 42;
+        });
+
+        assertEquals(42, result);
+        verify(pool, times(1)).getConnection();
+        verify(conn).setAutoCommit(false);
+        verify(conn, times(1)).commit();
+        verify(conn, never()).rollback();
+        // the connection goes back to the pool as it came
+        verify(conn).setAutoCommit(true);
+    }
+
+    @Test
+    void failedWorkIsRolledBackAndItsExceptionRethrown() throws Exception {
+        InvalidInputException failure = new InvalidInputException("Deck must have exactly 8 cards");
+
+        InvalidInputException thrown = assertThrows(InvalidInputException.class, () -> unitOfWork.execute(() -> {
+            repositoryCall();
+            throw failure;
+        }));
+
+        assertSame(failure, thrown);
+        verify(conn).rollback();
+        verify(conn, never()).commit();
+    }
+
+    @Test
+    void innerUnitJoinsTheOuterTransaction() throws Exception {
+        unitOfWork.execute(() -> {
+            repositoryCall();
+            return unitOfWork.execute(() -> {
+                repositoryCall();
+                return null;
+            });
+        });
+
+        verify(pool, times(1)).getConnection();
+        verify(conn, times(1)).commit();
+    }
+
+    @Test
+    void failedCommitIsADatabaseException() throws Exception {
+        doThrow(new SQLException("connection lost")).when(conn).commit();
+
+        assertThrows(DatabaseException.class, () -> unitOfWork.execute(() -> {
+            repositoryCall();
+            return null;
+        }));
+    }
+
+    // a repository method: takes a connection and closes it, as CardRepository and PlayerRepository do
+    private void repositoryCall() throws DatabaseException {
+        try (Connection connection = repositoryDataSource.getConnection()) {
+            connection.getAutoCommit();
+        } catch (SQLException e) {
+            throw new DatabaseException(e.getMessage(), e);
+        }
+    }
+}
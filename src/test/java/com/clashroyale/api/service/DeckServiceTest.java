@@ -0,0 +1,87 @@
+package com.clashroyale.api.service;
+
+import com.clashroyale.api.exception.InvalidInputException;
+import com.clashroyale.api.exception.ResourceNotFoundException;
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.Deck;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.model.SpellCard;
+import com.clashroyale.api.repository.CardRepository;
+import com.clashroyale.api.repository.DeckRepository;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DeckServiceTest {
+
+    private static final List<Integer> CARD_IDS = List.of(8, 3, 5, 1, 7, 2, 6, 4);
+
+    private DeckRepository deckRepository;
+    private CardRepository cardRepository;
+    private DeckService deckService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        deckRepository = mock(DeckRepository.class);
+        cardRepository = mock(CardRepository.class);
+        deckService = new DeckService(deckRepository, cardRepository, mock(PlayerRepositoryInterface.class));
+        // the repository answers in its own order, whatever the order of the ids
+        when(cardRepository.getByIds(any())).thenAnswer(call -> {
+            Map<Integer, Card> found = new HashMap<>();
+            for (int id : call.<int[]>getArgument(0)) {
+                if (id <= 8) {
+                    found.put(id, new SpellCard(id, "Card " + id, "Common", 3, 1, 2, 100));
+                }
+            }
+            return found;
+        });
+    }
+
+    @Test
+    void cardsAreLoadedWithOneQueryInTheGivenOrder() throws Exception {
+        Deck deck = deckService.createDeck(1, "Cycle", CARD_IDS);
+
+        assertEquals(CARD_IDS, deck.getCards().stream().map(Card::getId).toList());
+        verify(cardRepository, times(1)).getByIds(any());
+        verify(deckRepository).create(deck);
+    }
+
+    @Test
+    void unknownCardIsNotFound() {
+        List<Integer> withUnknown = List.of(8, 3, 5, 1, 7, 2, 6, 42);
+
+        assertThrows(ResourceNotFoundException.class, () -> deckService.createDeck(1, "Cycle", withUnknown));
+        verifyNoInteractions(deckRepository);
+    }
+
+    @Test
+    void invalidDecksNeverReachTheDatabase() {
+        assertThrows(InvalidInputException.class, () -> deckService.createDeck(1, "Cycle", List.of(1, 2, 3)));
+        assertThrows(InvalidInputException.class,
+                () -> deckService.createDeck(1, "Cycle", List.of(1, 2, 3, 4, 5, 6, 7, 1)));
+        assertThrows(InvalidInputException.class, () -> deckService.createDeck(1, " ", CARD_IDS));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void decksOfAPageOfPlayersComeFromOneQuery() throws Exception {
+        Deck oldest = new Deck(10, "Main");
+        Deck newer = new Deck(11, "Second");
+        when(deckRepository.getByPlayerIds(new int[]{1, 2})).thenReturn(Map.of(1, List.of(oldest, newer)));
+        List<Player> players = List.of(new Player(1, "Amirhan", 12, 500), new Player(2, "Dana", 3, 40));
+
+        deckService.attachDecks(players);
+
+        assertSame(oldest, players.get(0).getDeck());
+        assertNull(players.get(1).getDeck());
+        verify(deckRepository, times(1)).getByPlayerIds(any());
+    }
+}
@@ -0,0 +1,98 @@
+package com.clashroyale.api.service.catalog;
+
+import com.clashroyale.api.model.BuildingCard;
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.SpellCard;
+import com.clashroyale.api.model.WarriorCard;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardCatalogTest {
+
+    private static final List<Card> CARDS = List.of(
+            new WarriorCard(3, "Knight", "Common", 3, 9, 1400, 160),
+            new SpellCard(1, "Zap", "Common", 2, 11, 3, 75),
+            new BuildingCard(7, "Cannon", "Rare", 3, 9, 800, 30),
+            new WarriorCard(2, "Archers", "Epic", 3, 9, 250, 90));
+
+    @Test
+    void defaultOrderIsLevelThenName() {
+        CardCatalog catalog = CardCatalog.of(10, CARDS);
+
+        assertEquals(List.of(1, 2, 7, 3), ids(catalog, catalog.order(CardCatalog.SortOrder.DEFAULT)));
+        assertEquals(List.of(1, 2, 3, 7), ids(catalog, catalog.order(CardCatalog.SortOrder.ID)));
+        assertEquals(List.of(2, 7, 3, 1), ids(catalog, catalog.order(CardCatalog.SortOrder.NAME)));
+        assertEquals(List.of(1, 2, 7, 3), ids(catalog, catalog.order(CardCatalog.SortOrder.ELIXIR)));
+    }
+
+    @Test
+    void toCardGivesBackWhatWentIn() {
+        CardCatalog catalog = CardCatalog.of(10, CARDS);
+
+        for (Card card : CARDS) {
+            Card copy = catalog.toCard(catalog.indexOf(card.getId()));
+            assertEquals(card.getClass(), copy.getClass());
+            assertEquals(card.getName(), copy.getName());
+            assertEquals(card.getRarity(), copy.getRarity());
+            assertEquals(card.getElixirCost(), copy.getElixirCost());
+            assertEquals(card.getLevel(), copy.getLevel());
+        }
+        assertEquals(1400, ((WarriorCard) catalog.toCard(catalog.indexOf(3))).getHp());
+        assertEquals(3, ((SpellCard) catalog.toCard(catalog.indexOf(1))).getRadius());
+        assertEquals(30, ((BuildingCard) catalog.toCard(catalog.indexOf(7))).getLifetime());
+    }
+
+    @Test
+    void typeAndRarityGroupsKeepTheDefaultOrder() {
+        CardCatalog catalog = CardCatalog.of(10, CARDS);
+
+        assertEquals(List.of(2, 3), ids(catalog, catalog.ofType(CardCatalog.typeCode("warrior"))));
+        assertEquals(List.of(1, 3), ids(catalog, catalog.ofRarity(CardCatalog.rarityCode("COMMON"))));
+        assertEquals(-1, CardCatalog.typeCode("Troop"));
+        assertEquals(0, catalog.ofType(CardCatalog.typeCode("Troop")).size());
+    }
+
+    @Test
+    void withAndWithoutBuildNewSnapshots() {
+        CardCatalog before = CardCatalog.of(10, CARDS);
+        Card stronger = new SpellCard(1, "Zap", "Common", 2, 11, 3, 90);
+        stronger.setVersion(11);
+
+        CardCatalog changed = before.with(11, List.of(stronger, new SpellCard(9, "Log", "Legendary", 2, 14, 4, 240)));
+        CardCatalog removed = changed.without(12, 7);
+
+        assertEquals(4, before.size());
+        assertEquals(75, before.damage(before.indexOf(1)));
+        assertEquals(5, changed.size());
+        assertEquals(90, changed.damage(changed.indexOf(1)));
+        assertEquals(11, changed.cardVersion(changed.indexOf(1)));
+        assertEquals(List.of(9, 1, 2, 3), ids(removed, removed.order(CardCatalog.SortOrder.DEFAULT)));
+        assertEquals(-1, removed.indexOf(7));
+        assertEquals(9, removed.maxId());
+        assertSame(removed, removed.without(13, 7));
+    }
+
+    @Test
+    void sameCardIgnoresTheVersion() {
+        CardCatalog before = CardCatalog.of(10, CARDS);
+        Card rewritten = new WarriorCard(3, "Knight", "Common", 3, 9, 1400, 160);
+        rewritten.setVersion(11);
+        Card changed = new WarriorCard(2, "Archers", "Epic", 3, 10, 250, 90);
+        CardCatalog after = before.with(11, List.of(rewritten, changed));
+
+        assertTrue(before.sameCard(before.indexOf(3), after, after.indexOf(3)));
+        assertFalse(before.sameCard(before.indexOf(2), after, after.indexOf(2)));
+    }
+
+    private static List<Integer> ids(CardCatalog catalog, PositionList positions) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < positions.size(); i++) {
+            ids.add(catalog.id(positions.get(i)));
+        }
+        return ids;
+    }
+}
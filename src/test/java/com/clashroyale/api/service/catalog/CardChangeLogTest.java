@@ -0,0 +1,127 @@
+package com.clashroyale.api.service.catalog;
+
+import com.clashroyale.api.model.Card;
+import com.clashroyale.api.model.SpellCard;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardChangeLogTest {
+
+    @Test
+    void nothingIsKnownBeforeTheFirstSnapshot() {
+        CardChangeLog log = new CardChangeLog();
+        log.record(1, 10, false);
+
+        assertNull(log.since(0, 10));
+    }
+
+    @Test
+    void deltaHoldsTheLatestChangePerCard() {
+        CardChangeLog log = startedAt(100);
+        served(log, 1, 101, false);
+        served(log, 2, 102, false);
+        served(log, 1, 103, true);
+
+        List<CardChangeLog.Change> changes = log.since(100, 103);
+        assertEquals(2, changes.size());
+        assertEquals(2, changes.get(0).getCardId());
+        assertEquals(1, changes.get(1).getCardId());
+        assertTrue(changes.get(1).isDeleted());
+        assertEquals(103, changes.get(1).getVersion());
+
+        assertEquals(List.of(), ids(log.since(103, 103)));
+        assertEquals(List.of(1), ids(log.since(102, 103)));
+        assertEquals(List.of(2), ids(log.since(100, 102)));
+    }
+
+    @Test
+    void versionWeHadNoSnapshotOfIsUnknown() {
+        CardChangeLog log = startedAt(100);
+        // 101 and 102 were written by another instance, the reload only shows 103
+        log.recordDiff(CardCatalog.empty(100), CardCatalog.of(103, List.of(spell(1, 100, 102))));
+
+        assertEquals(List.of(1), ids(log.since(100, 103)));
+        assertNull(log.since(101, 103));
+        assertEquals(List.of(), log.since(103, 103));
+    }
+
+    @Test
+    void sinceAfterTheCurrentVersionIsUnknown() {
+        CardChangeLog log = startedAt(100);
+
+        assertNull(log.since(101, 100));
+    }
+
+    @Test
+    void droppingTheOldestChangeMovesTheHorizon() {
+        CardChangeLog log = new CardChangeLog(2);
+        log.recordDiff(null, CardCatalog.empty(100));
+        served(log, 1, 101, false);
+        served(log, 2, 102, false);
+        served(log, 3, 103, false);
+
+        assertNull(log.since(100, 103));
+        assertEquals(List.of(2, 3), ids(log.since(101, 103)));
+    }
+
+    @Test
+    void diffFindsChangedAddedAndRemovedCards() {
+        CardChangeLog log = new CardChangeLog();
+        CardCatalog before = CardCatalog.of(100, List.of(spell(1, 100, 90), spell(2, 200, 95), spell(3, 300, 100)));
+        log.recordDiff(null, before);
+        CardCatalog after = CardCatalog.of(103, List.of(spell(1, 100, 90), spell(2, 250, 102), spell(4, 400, 101)));
+
+        List<CardChangeLog.Change> found = log.recordDiff(before, after);
+
+        assertEquals(3, found.size());
+        List<CardChangeLog.Change> changes = log.since(100, 103);
+        // each change at the version of its row, the delete at the reload's version
+        assertEquals(List.of(4, 2, 3), ids(changes));
+        assertEquals(101, changes.get(0).getVersion());
+        assertEquals(102, changes.get(1).getVersion());
+        assertFalse(changes.get(1).isDeleted());
+        assertTrue(changes.get(2).isDeleted());
+        assertEquals(103, changes.get(2).getVersion());
+    }
+
+    @Test
+    void diffSkipsWritesAlreadyLogged() {
+        CardChangeLog log = new CardChangeLog();
+        CardCatalog before = CardCatalog.of(100, List.of(spell(1, 100, 90), spell(2, 200, 95)));
+        log.recordDiff(null, before);
+        // our own writes while no snapshot was cached: logged, but the last snapshot is still 100
+        log.record(3, 101, false);
+        log.record(2, 102, true);
+        CardCatalog after = CardCatalog.of(103, List.of(spell(1, 150, 103), spell(3, 300, 101)));
+
+        List<CardChangeLog.Change> found = log.recordDiff(before, after);
+
+        assertEquals(List.of(1), ids(found));
+        assertEquals(List.of(3, 2, 1), ids(log.since(100, 103)));
+    }
+
+    private static CardChangeLog startedAt(long version) {
+        CardChangeLog log = new CardChangeLog();
+        log.recordDiff(null, CardCatalog.empty(version));
+        return log;
+    }
+
+    // a write of this instance: recorded, then its snapshot is served
+    private static void served(CardChangeLog log, int cardId, long version, boolean deleted) {
+        log.record(cardId, version, deleted);
+        log.snapshot(version);
+    }
+
+    private static Card spell(int id, int damage, long version) {
+        Card card = new SpellCard(id, "Spell " + id, "Common", 3, 1, 2, damage);
+        card.setVersion(version);
+        return card;
+    }
+
+    private static List<Integer> ids(List<CardChangeLog.Change> changes) {
+        return changes.stream().map(CardChangeLog.Change::getCardId).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.clashroyale.api.service.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeBitmapIndexTest {
+
+    @Test
+    void smallDomainIsExact() {
+        int[] elixir = {1, 3, 3, 5, 7, 10, 2};
+        RangeBitmapIndex index = new RangeBitmapIndex(elixir);
+
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, index.atLeast(3).toArray());
+        assertArrayEquals(new int[]{0, 1, 2, 6}, index.atMost(3).toArray());
+        assertArrayEquals(new int[]{4, 5}, index.atLeast(6).toArray());
+        assertTrue(index.atLeast(11).isEmpty());
+        assertEquals(7, index.atLeast(Integer.MIN_VALUE).getCardinality());
+        assertEquals(7, index.atMost(Integer.MAX_VALUE).getCardinality());
+    }
+
+    @Test
+    void wideDomainMatchesAScan() {
+        Random random = new Random(11);
+        int[] damage = new int[5000];
+        for (int i = 0; i < damage.length; i++) {
+            damage[i] = random.nextInt(2000);
+        }
+        RangeBitmapIndex index = new RangeBitmapIndex(damage);
+
+        for (int bound : new int[]{-1, 0, 1, 17, 250, 999, 1000, 1500, 1999, 2000, 5000}) {
+            assertArrayEquals(scan(damage, bound, Integer.MAX_VALUE), index.atLeast(bound).toArray(), ">= " + bound);
+            assertArrayEquals(scan(damage, Integer.MIN_VALUE, bound), index.atMost(bound).toArray(), "<= " + bound);
+        }
+    }
+
+    @Test
+    void emptyColumn() {
+        RangeBitmapIndex index = new RangeBitmapIndex(new int[0]);
+
+        assertTrue(index.atLeast(0).isEmpty());
+        assertTrue(index.atMost(0).isEmpty());
+    }
+
+    private static int[] scan(int[] values, int min, int max) {
+        RoaringBitmap matched = new RoaringBitmap();
+        for (int position = 0; position < values.length; position++) {
+            if (values[position] >= min && values[position] <= max) {
+                matched.add(position);
+            }
+        }
+        return matched.toArray();
+    }
+}
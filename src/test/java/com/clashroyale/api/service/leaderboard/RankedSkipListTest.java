@@ -0,0 +1,103 @@
+package com.clashroyale.api.service.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedSkipListTest {
+
+    @Test
+    void ranksByTrophiesThenId() {
+        RankedSkipList list = new RankedSkipList();
+        list.insert(3, 100);
+        list.insert(1, 300);
+        list.insert(2, 100);
+
+        assertEquals(3, list.size());
+        assertEquals(1, list.rank(1, 300));
+        assertEquals(2, list.rank(2, 100));
+        assertEquals(3, list.rank(3, 100));
+    }
+
+    @Test
+    void unknownEntryHasRankZero() {
+        RankedSkipList list = new RankedSkipList();
+        list.insert(1, 100);
+
+        assertEquals(0, list.rank(2, 100));
+        assertEquals(0, list.rank(1, 99));
+    }
+
+    @Test
+    void deleteRemovesOnlyTheExactEntry() {
+        RankedSkipList list = new RankedSkipList();
+        list.insert(1, 300);
+        list.insert(2, 200);
+
+        assertFalse(list.delete(1, 200));
+        assertTrue(list.delete(1, 300));
+        assertEquals(1, list.size());
+        assertEquals(1, list.rank(2, 200));
+    }
+
+    @Test
+    void visitFromWalksAPage() {
+        RankedSkipList list = new RankedSkipList();
+        for (int id = 1; id <= 10; id++) {
+            list.insert(id, id * 10);
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        list.visitFrom(3, 4, (rank, id, trophies) -> {
+            assertEquals(ids.size() + 3, rank);
+            assertEquals(id * 10, trophies);
+            ids.add(id);
+        });
+        assertEquals(List.of(8, 7, 6, 5), ids);
+
+        List<Integer> tail = new ArrayList<>();
+        list.visitFrom(9, 5, (rank, id, trophies) -> tail.add(id));
+        assertEquals(List.of(2, 1), tail);
+
+        list.visitFrom(11, 5, (rank, id, trophies) -> fail("past the end"));
+    }
+
+    @Test
+    void matchesASortedListAfterRandomChanges() {
+        RankedSkipList list = new RankedSkipList();
+        List<int[]> expected = new ArrayList<>();
+        Random random = new Random(7);
+        int[] trophies = new int[500];
+        for (int id = 0; id < trophies.length; id++) {
+            trophies[id] = random.nextInt(1000);
+            list.insert(id, trophies[id]);
+        }
+        // trophy changes are a delete and an insert
+        for (int i = 0; i < 2000; i++) {
+            int id = random.nextInt(trophies.length);
+            assertTrue(list.delete(id, trophies[id]));
+            trophies[id] = random.nextInt(1000);
+            list.insert(id, trophies[id]);
+        }
+        for (int id = 0; id < trophies.length; id++) {
+            expected.add(new int[]{id, trophies[id]});
+        }
+        expected.sort(Comparator.<int[]>comparingInt(e -> -e[1]).thenComparingInt(e -> e[0]));
+
+        assertEquals(trophies.length, list.size());
+        for (int i = 0; i < expected.size(); i++) {
+            int[] entry = expected.get(i);
+            assertEquals(i + 1, list.rank(entry[0], entry[1]));
+        }
+        List<Integer> visited = new ArrayList<>();
+        list.visitFrom(1, trophies.length, (rank, id, t) -> visited.add(id));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i)[0], visited.get(i));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.clashroyale.api.service.ledger;
+
+import com.clashroyale.api.exception.DatabaseException;
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.repository.interfaces.PlayerRepositoryInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TrophyLedgerTest {
+
+    @TempDir
+    Path journal;
+
+    private PlayerRepositoryInterface repository;
+    // what the database holds: trophies per player and the names in trophy_ledger_flushes
+    private final Map<Integer, Long> trophies = new HashMap<>();
+    private final Set<String> applied = new HashSet<>();
+    private int commits;
+    // the next commit fails before it reaches the database
+    private boolean failNextCommit;
+    // the next commit reaches the database but the client sees an error (lost COMMIT)
+    private boolean loseNextCommit;
+
+    @BeforeEach
+    void database() throws Exception {
+        repository = mock(PlayerRepositoryInterface.class);
+        doAnswer(call -> {
+            if (failNextCommit) {
+                failNextCommit = false;
+                throw new DatabaseException("database down", null);
+            }
+            int[] ids = call.getArgument(0);
+            long[] deltas = call.getArgument(1);
+            List<String> segments = call.getArgument(2);
+            for (String segment : segments) {
+                if (!applied.add(segment)) {
+                    throw new DatabaseException("duplicate segment " + segment, null);
+                }
+            }
+            for (int i = 0; i < ids.length; i++) {
+                trophies.merge(ids[i], deltas[i], Long::sum);
+            }
+            commits++;
+            if (loseNextCommit) {
+                loseNextCommit = false;
+                throw new DatabaseException("connection lost during COMMIT", null);
+            }
+            return null;
+        }).when(repository).applyTrophyDeltas(any(), any(), any());
+        when(repository.findAppliedTrophySegments(any())).thenAnswer(call -> {
+            Set<String> found = new HashSet<>(call.<List<String>>getArgument(0));
+            found.retainAll(applied);
+            return found;
+        });
+        doAnswer(call -> {
+            Player player = call.getArgument(1);
+            trophies.put(call.getArgument(0), (long) player.getTrophies());
+            applied.add(call.getArgument(3));
+            return null;
+        }).when(repository).update(anyInt(), any(), any(), anyString());
+    }
+
+    @Test
+    void flushWritesSummedDeltasInOneBatch() throws Exception {
+        TrophyLedger ledger = started();
+        ledger.add(1, 5);
+        ledger.add(1, 7);
+        ledger.add(2, -3);
+        assertEquals(12, ledger.pending(1));
+
+        ledger.flush();
+
+        assertEquals(1, commits);
+        assertEquals(12L, trophies.get(1));
+        assertEquals(-3L, trophies.get(2));
+        assertEquals(0, ledger.pending(1));
+    }
+
+    @Test
+    void grantsThatCancelOutAreNotWritten() throws Exception {
+        TrophyLedger ledger = started();
+        ledger.add(1, 5);
+        ledger.add(1, -5);
+
+        ledger.flush();
+
+        assertEquals(0, commits);
+    }
+
+    @Test
+    void crashReplaysOnlyUnappliedSegments() throws Exception {
+        TrophyLedger crashed = started();
+        crashed.add(1, 10);
+        crashed.flush();
+        crashed.add(1, 4);
+        crashed.add(2, 6);
+        // no stop(): the process dies with the last segment unflushed
+
+        TrophyLedger restarted = started();
+
+        assertEquals(4, restarted.pending(1));
+        assertEquals(6, restarted.pending(2));
+        restarted.flush();
+        assertEquals(14L, trophies.get(1));
+        assertEquals(6L, trophies.get(2));
+    }
+
+    @Test
+    void lostCommitIsNotWrittenAgain() throws Exception {
+        TrophyLedger ledger = started();
+        ledger.add(1, 10);
+        loseNextCommit = true;
+
+        assertThrows(DatabaseException.class, ledger::flush);
+        // unknown outcome: still pending for readers
+        assertEquals(10, ledger.pending(1));
+
+        ledger.add(1, 1);
+        ledger.flush();
+
+        assertEquals(11L, trophies.get(1));
+        assertEquals(0, ledger.pending(1));
+    }
+
+    @Test
+    void failedCommitIsWrittenAgain() throws Exception {
+        TrophyLedger ledger = started();
+        ledger.add(1, 10);
+        failNextCommit = true;
+        assertThrows(DatabaseException.class, ledger::flush);
+
+        ledger.flush();
+
+        assertEquals(10L, trophies.get(1));
+    }
+
+    @Test
+    void resetReplacesOnlyThatPlayersDeltas() throws Exception {
+        TrophyLedger ledger = started();
+        ledger.add(1, 5);
+        ledger.add(2, 7);
+
+        try (TrophyLedger.Reset reset = ledger.reset(1)) {
+            repository.update(1, new Player(1, "Amirhan", 10, 100), null, reset.getName());
+            reset.written();
+        }
+        ledger.add(1, 3);
+
+        assertEquals(3, ledger.pending(1));
+        assertEquals(7, ledger.pending(2));
+        ledger.flush();
+        assertEquals(103L, trophies.get(1));
+        assertEquals(7L, trophies.get(2));
+    }
+
+    @Test
+    void resetWithoutAWriteKeepsTheDeltas() throws Exception {
+        TrophyLedger ledger = started();
+        ledger.add(1, 5);
+
+        try (TrophyLedger.Reset reset = ledger.reset(1)) {
+            assertNotNull(reset.getName());
+            // the update failed (412, 404...), written() is not called
+        }
+
+        assertEquals(5, ledger.pending(1));
+    }
+
+    @Test
+    void crashHonoursOnlyCommittedResets() throws Exception {
+        TrophyLedger crashed = started();
+        crashed.add(1, 5);
+        crashed.add(2, 8);
+        try (TrophyLedger.Reset reset = crashed.reset(1)) {
+            repository.update(1, new Player(1, "Amirhan", 10, 100), null, reset.getName());
+            reset.written();
+        }
+        try (TrophyLedger.Reset ignored = crashed.reset(2)) {
+            // the process died before the write
+        }
+        crashed.add(1, 3);
+
+        TrophyLedger restarted = started();
+
+        assertEquals(3, restarted.pending(1));
+        assertEquals(8, restarted.pending(2));
+    }
+
+    @Test
+    void trackerFindsCommitsTheSnapshotMissed() throws Exception {
+        TrophyLedger ledger = started();
+        ledger.add(1, 1);
+        ledger.flush();
+
+        try (TrophyLedger.CommitTracker tracker = ledger.trackCommits()) {
+            ledger.add(1, 5);
+            ledger.flush();
+            Set<String> seenBySnapshot = new HashSet<>(tracker.segments());
+            ledger.add(1, 7);
+            ledger.flush();
+
+            assertEquals(Map.of(1, 12L), tracker.deltasNotIn(Set.of()));
+            assertEquals(Map.of(1, 7L), tracker.deltasNotIn(seenBySnapshot));
+        }
+    }
+
+    private TrophyLedger started() throws Exception {
+        // the background flush never runs during a test
+        TrophyLedger ledger = new TrophyLedger(repository, true, 3_600_000, journal.toString(), false, 4);
+        ledger.start();
+        return ledger;
+    }
+}
@@ -0,0 +1,143 @@
+package com.clashroyale.api.web;
+
+import com.clashroyale.api.model.Player;
+import com.clashroyale.api.service.events.ChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    private ChangeFeed feed;
+
+    @AfterEach
+    void stop() {
+        if (feed != null) {
+            feed.stop();
+        }
+    }
+
+    @Test
+    void fullQueueIsReplacedByOneResync() throws Exception {
+        ControlledEmitter client = new ControlledEmitter(true);
+        feed = feed(2, 60_000, client);
+        feed.subscribe(Set.of(), Set.of());
+        // the heartbeat send is blocked, events pile up behind it
+        client.awaitSend();
+
+        publish(1);
+        publish(2);
+        publish(3);
+        publish(4);
+        assertEquals(1, feed.getResyncCount());
+        client.release.countDown();
+
+        client.awaitFrames(3);
+        assertTrue(client.sent.get(0).contains("heartbeat"));
+        assertTrue(client.sent.get(1).contains("resync"));
+        // 1 and 2 were dropped with the overflow, 3 didn't fit
+        assertTrue(client.sent.get(2).contains("id:4"));
+        assertEquals(1, feed.getSubscriberCount());
+    }
+
+    @Test
+    void blockedSendDropsTheSubscriberButNotTheOthers() throws Exception {
+        ControlledEmitter stuck = new ControlledEmitter(true);
+        ControlledEmitter healthy = new ControlledEmitter(false);
+        feed = feed(16, 50, stuck, healthy);
+        feed.subscribe(Set.of(), Set.of());
+        stuck.awaitSend();
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        feed.checkSendDeadlines();
+
+        assertEquals(0, feed.getSubscriberCount());
+        assertEquals(1, feed.getStalledDropCount());
+        // the only dispatch thread is still blocked, the extra one serves the next client
+        feed.subscribe(Set.of(), Set.of());
+        publish(1);
+        healthy.awaitFrames(2);
+        assertTrue(healthy.sent.get(1).contains("id:1"));
+        assertFalse(stuck.completed);
+
+        // the blocked send returns: its response is ended, nothing more is sent to it
+        stuck.release.countDown();
+        stuck.awaitCompleted();
+        assertEquals(1, stuck.sent.size());
+    }
+
+    private ChangeFeed feed(int queueSize, long sendTimeoutMs, ControlledEmitter... emitters) {
+        List<ControlledEmitter> next = new ArrayList<>(List.of(emitters));
+        return new ChangeFeed(new ObjectMapper(), 0, queueSize, 1, sendTimeoutMs) {
+            @Override
+            SseEmitter createEmitter(long timeoutMs) {
+                return next.remove(0);
+            }
+        };
+    }
+
+    private void publish(long version) {
+        feed.publish(ChangeEvent.player(ChangeEvent.Action.UPDATED, new Player(1, "Amirhan", 12, 500), version));
+    }
+
+    // records every frame, the first send blocks until release is opened
+    private static final class ControlledEmitter extends SseEmitter {
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch release;
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean completed;
+
+        ControlledEmitter(boolean blocking) {
+            super(0L);
+            release = new CountDownLatch(blocking ? 1 : 0);
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            StringBuilder frame = new StringBuilder();
+            items.forEach(item -> frame.append(item.getData()));
+            sent.add(frame.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            done.countDown();
+        }
+
+        void awaitSend() throws InterruptedException {
+            assertTrue(sending.await(5, TimeUnit.SECONDS), "no send started");
+        }
+
+        void awaitCompleted() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS), "response not completed");
+        }
+
+        void awaitFrames(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.size() < count) {
+                assertTrue(System.nanoTime() < deadline, "only " + sent + " were sent");
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.clashroyale.api.web;
+
+import org.junit.jupiter.api.Test;
+
+import static com.clashroyale.api.web.ContentEncoding.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentEncodingTest {
+
+    @Test
+    void nothingAcceptedIsIdentity() {
+        assertEquals(IDENTITY, negotiate(null));
+        assertEquals(IDENTITY, negotiate(""));
+        assertEquals(IDENTITY, negotiate("br"));
+        assertEquals(IDENTITY, negotiate("identity"));
+    }
+
+    @Test
+    void tieGoesToGzip() {
+        assertEquals(GZIP, negotiate("deflate, gzip"));
+        assertEquals(GZIP, negotiate("gzip, deflate, br"));
+        assertEquals(GZIP, negotiate("X-GZIP"));
+    }
+
+    @Test
+    void highestQualityWins() {
+        assertEquals(DEFLATE, negotiate("gzip;q=0.5, deflate;q=0.8"));
+        assertEquals(GZIP, negotiate("gzip; q=0.9, deflate; q=0.1"));
+        assertEquals(DEFLATE, negotiate("gzip;q=0, deflate"));
+        assertEquals(IDENTITY, negotiate("gzip;q=0, deflate;q=0"));
+        // an unreadable q-value counts as refused
+        assertEquals(IDENTITY, negotiate("gzip;q=abc"));
+    }
+
+    @Test
+    void wildcardCoversOnlyUnlistedEncodings() {
+        assertEquals(GZIP, negotiate("*"));
+        assertEquals(DEFLATE, negotiate("gzip;q=0, *"));
+        assertEquals(GZIP, negotiate("deflate;q=0.2, *;q=0.5"));
+        assertEquals(DEFLATE, negotiate("deflate, *;q=0.3"));
+        assertEquals(IDENTITY, negotiate("*;q=0"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.clashroyale.api.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTest {
+
+    @Test
+    void currentTagIsNotModified() {
+        String etag = ETags.of("card-1", 7);
+
+        assertEquals("\"card-1-7\"", etag);
+        assertTrue(ETags.isNotModified(etag, ETags.of("card-1", 7)));
+        assertTrue(ETags.isNotModified("\"other\", W/" + etag, etag));
+        assertFalse(ETags.isNotModified(etag, ETags.of("card-1", 8)));
+        assertFalse(ETags.isNotModified(null, etag));
+    }
+
+    @Test
+    void starNeverMatches() {
+        assertFalse(ETags.isNotModified("*", ETags.of("card-1", 5)));
+    }
+
+    @Test
+    void encodingsGetDifferentTags() {
+        assertNotEquals(ETags.of("cards", 5), ETags.of("cards", 5, ContentEncoding.GZIP));
+        assertEquals(ETags.of("cards", 5), ETags.of("cards", 5, ContentEncoding.IDENTITY));
+    }
+
+    @Test
+    void expectedVersionOfIfMatch() {
+        assertNull(ETags.expectedVersion(null, "card-1"));
+        assertNull(ETags.expectedVersion(" * ", "card-1"));
+        assertEquals(42L, ETags.expectedVersion(ETags.of("card-1", 42), "card-1"));
+        assertEquals(-1L, ETags.expectedVersion(ETags.of("card-2", 42), "card-1"));
+        assertEquals(-1L, ETags.expectedVersion("W/" + ETags.of("card-1", 42), "card-1"));
+        assertEquals(-1L, ETags.expectedVersion(ETags.of("cards", 42, ContentEncoding.GZIP), "cards"));
+        assertEquals(-1L, ETags.expectedVersion("\"card-1-deadbeef.42\"", "card-1"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.clashroyale.api.web;
+
+import com.clashroyale.api.metrics.RequestTrace;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingFilterTest {
+
+    private final ServerTimingFilter filter = new ServerTimingFilter(0);
+
+    @Test
+    void headerIsAddedBeforeTheBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String[] headerWhenWriting = new String[1];
+
+        run(response, new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                int span = RequestTrace.current().enter(RequestTrace.Layer.CONTROLLER, "CardController", System.nanoTime());
+                RequestTrace.current().exit(RequestTrace.Layer.CONTROLLER, span, System.nanoTime());
+                response.getWriter().write("[]");
+                headerWhenWriting[0] = response.getHeader("Server-Timing");
+                response.flushBuffer();
+            }
+        });
+
+        assertNotNull(headerWhenWriting[0]);
+        assertTrue(headerWhenWriting[0].startsWith("controller;dur="), headerWhenWriting[0]);
+        assertTrue(headerWhenWriting[0].contains("total;dur="), headerWhenWriting[0]);
+        assertEquals(headerWhenWriting[0], response.getHeader("Server-Timing"));
+        assertEquals("*", response.getHeader("Timing-Allow-Origin"));
+    }
+
+    @Test
+    void responseWithoutBodyGetsTheHeaderAtTheEnd() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        run(response, new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            }
+        });
+
+        assertTrue(response.getHeader("Server-Timing").startsWith("total;dur="));
+        assertFalse(RequestTrace.current().isActive());
+    }
+
+    @Test
+    void errorResponsesAreTimedToo() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        run(response, new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        });
+
+        assertEquals(404, response.getStatus());
+        assertNotNull(response.getHeader("Server-Timing"));
+    }
+
+    private void run(MockHttpServletResponse response, HttpServlet servlet) throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/cards"), response, new MockFilterChain(servlet));
+    }
+}